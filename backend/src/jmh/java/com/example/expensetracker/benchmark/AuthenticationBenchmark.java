@@ -0,0 +1,75 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.security.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request authentication cost: HTTP Basic (decode the header, look the user up, BCrypt-verify the
+ * password, as BasicAuthenticationFilter does) against verifying a bearer token from TokenService.
+ * The difference is the CPU each request saves once the client logs in and sends the token instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthenticationBenchmark {
+
+    // expense.auth.bcrypt-strength; 10 is the application default
+    @Param({"10", "12"})
+    public int bcryptStrength;
+
+    private UserDetailsService userDetailsService;
+    private PasswordEncoder passwordEncoder;
+    private TokenService tokenService;
+    private String basicHeader;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        passwordEncoder = new BCryptPasswordEncoder(bcryptStrength);
+        userDetailsService = new InMemoryUserDetailsManager(User.withUsername("admin")
+                .password(passwordEncoder.encode("admin"))
+                .roles("USER")
+                .build());
+        tokenService = new TokenService("benchmark-secret-benchmark-secret", Duration.ofMinutes(15));
+        basicHeader = Base64.getEncoder().encodeToString("admin:admin".getBytes(StandardCharsets.UTF_8));
+        token = tokenService.issue("admin", Collections.singletonList("ROLE_USER")).getValue();
+    }
+
+    @Benchmark
+    public boolean basicAuthentication() {
+        String credentials = new String(Base64.getDecoder().decode(basicHeader), StandardCharsets.UTF_8);
+        int colon = credentials.indexOf(':');
+        UserDetails user = userDetailsService.loadUserByUsername(credentials.substring(0, colon));
+        return passwordEncoder.matches(credentials.substring(colon + 1), user.getPassword());
+    }
+
+    @Benchmark
+    public TokenService.Token tokenAuthentication() {
+        return tokenService.verify(token);
+    }
+}
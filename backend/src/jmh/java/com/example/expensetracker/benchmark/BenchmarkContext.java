@@ -0,0 +1,75 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.ExpenseTrackerApplication;
+import com.example.expensetracker.service.CategoryRegistry;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Boots the application (without the web layer) on a private in-memory H2 database and seeds it
+ * with synthetic expenses. Read caches, the analytics engine and the scheduler-driven jobs are off
+ * so that every benchmark invocation measures the database path.
+ */
+final class BenchmarkContext {
+
+    static final String[] CATEGORIES = { "Food", "Transportation", "Utilities", "Entertainment", "Health", "Other" };
+
+    // Seeded rows use explicit ids far above the ids Hibernate draws from expense_seq
+    private static final long SEED_ID_BASE = 1_000_000_000L;
+    private static final int SEED_BATCH = 5_000;
+
+    private BenchmarkContext() {
+    }
+
+    static ConfigurableApplicationContext start(String name) {
+        return new SpringApplicationBuilder(ExpenseTrackerApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN",
+                        "expense.cache.enabled=false",
+                        "expense.analytics.enabled=false",
+                        "expense.archiving.cron=-",
+                        "expense.auth.token-secret=benchmark")
+                .run();
+    }
+
+    /**
+     * Inserts {@code rows} active expenses spread evenly over the last two years (so roughly 95% of them
+     * are past the 30 day retention period), with amounts between 1 and 1000 and a random category.
+     */
+    static void seed(ConfigurableApplicationContext context, int rows) {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        CategoryRegistry categoryRegistry = context.getBean(CategoryRegistry.class);
+        int[] categoryIds = new int[CATEGORIES.length];
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            categoryIds[i] = categoryRegistry.register(CATEGORIES[i]);
+        }
+
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < rows; i++) {
+            batch.add(new Object[]{
+                    SEED_ID_BASE + i,
+                    "Expense #" + i,
+                    1 + random.nextInt(99_900) / 100.0,
+                    Date.valueOf(today.minusDays(random.nextInt(730))),
+                    categoryIds[random.nextInt(categoryIds.length)]});
+            if (batch.size() == SEED_BATCH || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO expense (id, description, amount, date, category_id, deleted, "
+                        + "version, last_modified) VALUES (?, ?, ?, ?, ?, FALSE, 0, CURRENT_TIMESTAMP)", batch);
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseImportService;
+import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.service.ImportResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting {@code rows} expenses one POST-equivalent transaction at a time (ExpenseService.createExpense)
+ * versus a single bulk import (ExpenseImportService, JDBC-batched). Scores are per batch of rows; the
+ * table is emptied before every iteration so both variants insert into a table of the same size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseInsertBenchmark {
+
+    @Param({"100", "1000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ExpenseService expenseService;
+    private ExpenseImportService importService;
+    private JdbcTemplate jdbcTemplate;
+    private byte[] importJson;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkContext.start("insert");
+        expenseService = context.getBean(ExpenseService.class);
+        importService = context.getBean(ExpenseImportService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"description\":\"Bulk ").append(i)
+                    .append("\",\"amount\":").append(1 + i % 1000 / 10.0)
+                    .append(",\"date\":\"").append(LocalDate.now().minusDays(i % 365))
+                    .append("\",\"category\":\"").append(BenchmarkContext.CATEGORIES[i % BenchmarkContext.CATEGORIES.length])
+                    .append("\"}");
+        }
+        importJson = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() {
+        jdbcTemplate.update("DELETE FROM expense");
+        jdbcTemplate.update("DELETE FROM expense_rollup");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int singleRowInserts() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < rows; i++) {
+            expenseService.createExpense(new Expense("Single " + i, 1 + i % 1000 / 10.0, today.minusDays(i % 365),
+                    BenchmarkContext.CATEGORIES[i % BenchmarkContext.CATEGORIES.length]));
+        }
+        return rows;
+    }
+
+    @Benchmark
+    public ImportResult bulkImport() throws IOException {
+        return importService.importJson(new ByteArrayInputStream(importJson));
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.CursorPage;
+import com.example.expensetracker.service.ExpenseService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filter queries of GET /api/expenses: building the Specification alone, and running the filtered
+ * OFFSET and cursor page queries through ExpenseService against H2 at several table sizes.
+ * The entityPage/projectedPage pair reads the same 1000-row page as managed entities and as snapshots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseQueryBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int rows;
+
+    private ConfigurableApplicationContext context;
+    private ExpenseService expenseService;
+    private ExpenseRepository expenseRepository;
+    private LocalDate startDate;
+    private LocalDate endDate;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start("query");
+        BenchmarkContext.seed(context, rows);
+        expenseService = context.getBean(ExpenseService.class);
+        expenseRepository = context.getBean(ExpenseRepository.class);
+        endDate = LocalDate.now().minusDays(30);
+        startDate = endDate.minusDays(180);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Specification<Expense> buildSpecification() {
+        return new ExpenseFilter("Food", startDate, endDate, 10.0, 500.0).toSpecification();
+    }
+
+    @Benchmark
+    public Page<ExpenseSnapshot> filterByCategoryAndDate() {
+        return expenseService.getExpenses("Food", startDate, endDate, null, null, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Page<ExpenseSnapshot> filterByAmount() {
+        return expenseService.getExpenses(null, null, null, 10.0, 500.0, PageRequest.of(0, 10));
+    }
+
+    @Benchmark
+    public Page<ExpenseSnapshot> deepOffsetPage() {
+        return expenseService.getExpenses(null, null, null, null, null, PageRequest.of(rows / 20, 10));
+    }
+
+    @Benchmark
+    public CursorPage<ExpenseSnapshot> firstCursorPage() {
+        return expenseService.getExpensesByCursor(null, startDate, endDate, null, null, null, 10, false);
+    }
+
+    @Benchmark
+    public Page<Expense> entityPage() {
+        return expenseRepository.findAll(new ExpenseFilter(null, null, null, null, null).toSpecification(),
+                PageRequest.of(0, 1000));
+    }
+
+    @Benchmark
+    public Page<ExpenseSnapshot> projectedPage() {
+        return expenseRepository.findSnapshots(new ExpenseFilter(null, null, null, null, null).toSpecification(),
+                PageRequest.of(0, 1000));
+    }
+}
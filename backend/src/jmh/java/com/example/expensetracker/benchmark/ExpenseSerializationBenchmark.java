@@ -0,0 +1,71 @@
+package com.example.expensetracker.benchmark;
+
+import com.example.expensetracker.model.ExpenseColumns;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the response map returned by ExpenseController.getExpenses, using an
+ * ObjectMapper configured the way Spring MVC configures its own, in the row and the columnar shape.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpenseSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    @Param({"rows", "columnar"})
+    public String shape;
+
+    private ObjectMapper objectMapper;
+    private Map<String, Object> response;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<ExpenseSnapshot> data = new ArrayList<>(pageSize);
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < pageSize; i++) {
+            data.add(new ExpenseSnapshot((long) i + 1, "Expense #" + i, 1 + i % 1000 / 10.0, today.minusDays(i % 365),
+                    BenchmarkContext.CATEGORIES[i % BenchmarkContext.CATEGORIES.length]));
+        }
+        response = new HashMap<>();
+        if ("columnar".equals(shape)) {
+            response.put("columns", ExpenseColumns.of(data));
+        } else {
+            response.put("data", data);
+        }
+        response.put("totalPages", 100);
+        response.put("totalExpenses", 100L * pageSize);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
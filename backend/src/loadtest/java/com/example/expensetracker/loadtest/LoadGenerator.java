@@ -0,0 +1,132 @@
+package com.example.expensetracker.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: request i is due at {@code start + i / rate}, whether or not earlier
+ * requests have completed, and is sent asynchronously.
+ * <p>
+ * Latency is recorded twice. The service time runs from the moment the request was actually sent. The
+ * corrected latency runs from the moment it was due. When the server (or the in-flight cap) stalls the
+ * schedule, every request that should have been sent in the meantime is charged the wait. Otherwise a
+ * closed-loop client would quietly send fewer requests during the stall (coordinated omission) and hide it.
+ */
+final class LoadGenerator {
+
+    private final HttpClient client;
+    private final Operation.Target target;
+    private final Operation[] schedule;
+    private final int scheduleTotal;
+    private final int[] cumulativeWeights;
+    private final double rate;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    LoadGenerator(HttpClient client, Operation.Target target, LoadTestConfig config) {
+        this.client = client;
+        this.target = target;
+        this.rate = config.rate;
+        this.maxInFlight = config.maxInFlight;
+        this.inFlight = new Semaphore(config.maxInFlight);
+        this.schedule = config.mix.keySet().toArray(new Operation[0]);
+        this.cumulativeWeights = new int[schedule.length];
+        int total = 0;
+        for (int i = 0; i < schedule.length; i++) {
+            total += config.mix.get(schedule[i]);
+            cumulativeWeights[i] = total;
+        }
+        this.scheduleTotal = total;
+    }
+
+    /**
+     * Drives the mix for the given number of seconds and waits for the outstanding responses.
+     */
+    Results run(int seconds) {
+        Results results = new Results();
+        long durationNanos = TimeUnit.SECONDS.toNanos(seconds);
+        long start = System.nanoTime();
+        for (long i = 0; ; i++) {
+            long intended = start + (long) (i * 1_000_000_000d / rate);
+            if (intended - start >= durationNanos) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquireUninterruptibly();
+
+            Operation operation = nextOperation();
+            long sent = System.nanoTime();
+            client.sendAsync(operation.request(target, ThreadLocalRandom.current()), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        long done = System.nanoTime();
+                        inFlight.release();
+                        boolean ok = error == null && response.statusCode() < 400;
+                        results.record(operation, done - intended, done - sent, ok);
+                    });
+        }
+        inFlight.acquireUninterruptibly(maxInFlight);
+        inFlight.release(maxInFlight);
+        results.elapsedNanos = System.nanoTime() - start;
+        return results;
+    }
+
+    private Operation nextOperation() {
+        int pick = ThreadLocalRandom.current().nextInt(scheduleTotal);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return schedule[i];
+            }
+        }
+        return schedule[schedule.length - 1];
+    }
+
+    /**
+     * Histograms (in nanoseconds) per operation and overall.
+     */
+    static final class Results {
+
+        final Map<Operation, Stats> byOperation = new EnumMap<>(Operation.class);
+        final Stats all = new Stats();
+        long elapsedNanos;
+
+        Results() {
+            for (Operation operation : Operation.values()) {
+                byOperation.put(operation, new Stats());
+            }
+        }
+
+        void record(Operation operation, long correctedNanos, long serviceNanos, boolean ok) {
+            byOperation.get(operation).record(correctedNanos, serviceNanos, ok);
+            all.record(correctedNanos, serviceNanos, ok);
+        }
+    }
+
+    static final class Stats {
+
+        // Auto-resizing, three significant digits
+        final Histogram corrected = new ConcurrentHistogram(3);
+        final Histogram service = new ConcurrentHistogram(3);
+        final AtomicLong errors = new AtomicLong();
+
+        void record(long correctedNanos, long serviceNanos, boolean ok) {
+            corrected.recordValue(correctedNanos);
+            service.recordValue(serviceNanos);
+            if (!ok) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+}
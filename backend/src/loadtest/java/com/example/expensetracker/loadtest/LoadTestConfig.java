@@ -0,0 +1,103 @@
+package com.example.expensetracker.loadtest;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Load test settings, given as {@code key=value} program arguments:
+ * <ul>
+ *   <li>{@code rows} - expenses seeded before the test (default 1000000)</li>
+ *   <li>{@code rate} - requests per second, started on a fixed schedule regardless of responses (default 500)</li>
+ *   <li>{@code warmup} / {@code duration} - seconds of unrecorded warm-up and of measurement (default 30 / 60)</li>
+ *   <li>{@code mix} - relative weights per operation, e.g. {@code list:30,filter:25,get:25,create:10,update:5,delete:5}</li>
+ *   <li>{@code maxInFlight} - cap on outstanding requests (default 2000)</li>
+ *   <li>{@code threads} - expense.threads.mode values to run one after another and compare,
+ *   e.g. {@code platform,virtual} (default platform)</li>
+ *   <li>{@code ingest} - expense.ingest.mode values to compare, e.g. {@code direct,group-commit} (default direct);
+ *   every thread mode is run with every ingest mode</li>
+ *   <li>{@code output} - path of the JSON report</li>
+ * </ul>
+ */
+final class LoadTestConfig {
+
+    static final String DEFAULT_MIX = "list:30,filter:25,get:25,create:10,update:5,delete:5";
+
+    final int rows;
+    final double rate;
+    final int warmupSeconds;
+    final int durationSeconds;
+    final Map<Operation, Integer> mix;
+    final int maxInFlight;
+    final List<String> threadModes;
+    final List<String> ingestModes;
+    final String output;
+
+    private LoadTestConfig(Map<String, String> values) {
+        this.rows = Integer.parseInt(values.getOrDefault("rows", "1000000"));
+        this.rate = Double.parseDouble(values.getOrDefault("rate", "500"));
+        this.warmupSeconds = Integer.parseInt(values.getOrDefault("warmup", "30"));
+        this.durationSeconds = Integer.parseInt(values.getOrDefault("duration", "60"));
+        this.mix = parseMix(values.getOrDefault("mix", DEFAULT_MIX));
+        this.maxInFlight = Integer.parseInt(values.getOrDefault("maxInFlight", "2000"));
+        this.threadModes = parseList(values.getOrDefault("threads", "platform"));
+        this.ingestModes = parseList(values.getOrDefault("ingest", "direct"));
+        this.output = values.get("output");
+        if (rate <= 0 || durationSeconds <= 0 || maxInFlight <= 0) {
+            throw new IllegalArgumentException("rate, duration and maxInFlight must be positive");
+        }
+        if (threadModes.isEmpty()) {
+            throw new IllegalArgumentException("threads needs at least one mode (platform or virtual)");
+        }
+        if (ingestModes.isEmpty()) {
+            throw new IllegalArgumentException("ingest needs at least one mode (direct or group-commit)");
+        }
+    }
+
+    static LoadTestConfig parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator).trim(), arg.substring(separator + 1).trim());
+        }
+        return new LoadTestConfig(values);
+    }
+
+    private static List<String> parseList(String value) {
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(mode -> !mode.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Mix entries must look like operation:weight, got: " + entry);
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                weights.put(Operation.fromName(parts[0].trim()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one operation with a positive weight");
+        }
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "rows=" + rows + ", rate=" + rate + "/s, warmup=" + warmupSeconds + "s, duration=" + durationSeconds
+                + "s, maxInFlight=" + maxInFlight + ", threads=" + threadModes
+                + ", ingest=" + ingestModes + ", mix=" + mix;
+    }
+}
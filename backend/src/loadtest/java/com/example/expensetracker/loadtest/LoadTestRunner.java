@@ -0,0 +1,213 @@
+package com.example.expensetracker.loadtest;
+
+import com.example.expensetracker.ExpenseTrackerApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Boots the whole application (Tomcat, Spring Security, controllers, JPA, H2) on a random port, seeds it
+ * through DataInitializer and runs a fixed-rate request mix against it over HTTP.
+ * Everything runs in this JVM against localhost, so the test needs no network access or external services.
+ * <p>
+ * The report gives the throughput and the p50/p95/p99/p99.9/max latency per operation. Latency is
+ * corrected for coordinated omission (see {@link LoadGenerator}); the uncorrected service time is
+ * reported next to it.
+ */
+public final class LoadTestRunner {
+
+    private static final double[] PERCENTILES = { 50, 95, 99, 99.9 };
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        System.out.println("Load test: " + config);
+
+        int exitCode = 0;
+        Map<String, Map<String, Object>> reports = new LinkedHashMap<>();
+        try {
+            for (String threadMode : config.threadModes) {
+                for (String ingestMode : config.ingestModes) {
+                    String label = config.ingestModes.size() > 1 ? threadMode + "/" + ingestMode : threadMode;
+                    Map<String, Object> report = runMode(config, threadMode, ingestMode);
+                    print(label, report);
+                    reports.put(label, report);
+                }
+            }
+            if (reports.size() > 1) {
+                printComparison(reports);
+            }
+            if (config.output != null) {
+                File output = new File(config.output);
+                if (output.getParentFile() != null) {
+                    output.getParentFile().mkdirs();
+                }
+                new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output, reports);
+                System.out.println("Report written to " + output.getAbsolutePath());
+            }
+        } catch (IOException | RuntimeException ex) {
+            ex.printStackTrace();
+            exitCode = 1;
+        }
+        System.exit(exitCode);
+    }
+
+    // Boots a fresh application (and database) in the given expense.threads.mode and expense.ingest.mode and measures it
+    private static Map<String, Object> runMode(LoadTestConfig config, String threadMode, String ingestMode) {
+        System.out.printf("%n=== expense.threads.mode=%s, expense.ingest.mode=%s ===%n", threadMode, ingestMode);
+        long seedStart = System.nanoTime();
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(ExpenseTrackerApplication.class)
+                .properties(
+                        "server.port=0",
+                        "spring.datasource.url=jdbc:h2:mem:loadtest-" + threadMode + "-" + ingestMode + ";DB_CLOSE_DELAY=-1",
+                        "expense.seed.rows=" + config.rows,
+                        "expense.threads.mode=" + threadMode,
+                        "expense.ingest.mode=" + ingestMode,
+                        "expense.archiving.cron=-",
+                        "expense.auth.token-secret=loadtest",
+                        "spring.main.banner-mode=off",
+                        "logging.level.root=WARN")
+                .run();
+        ExecutorService responseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            System.out.printf("Started and seeded %d rows in %.1f s%n", config.rows, (System.nanoTime() - seedStart) / 1e9);
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            Environment environment = context.getEnvironment();
+            String credentials = environment.getProperty("spring.security.user.name") + ":"
+                    + environment.getProperty("spring.security.user.password");
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+            Long minId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM expense", Long.class);
+            Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM expense", Long.class);
+            if (minId == null || maxId == null) {
+                throw new IllegalStateException("Nothing was seeded; use rows > 0");
+            }
+
+            Operation.Target target = new Operation.Target(URI.create("http://localhost:" + port),
+                    "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)),
+                    minId, maxId);
+            // Keep the session cookie like a browser would, instead of opening an HTTP session per request
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .cookieHandler(new CookieManager())
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .executor(responseExecutor)
+                    .build();
+            LoadGenerator generator = new LoadGenerator(client, target, config);
+
+            if (config.warmupSeconds > 0) {
+                System.out.printf("Warming up for %d s%n", config.warmupSeconds);
+                generator.run(config.warmupSeconds);
+            }
+            System.out.printf("Measuring for %d s at %.0f requests/s%n", config.durationSeconds, config.rate);
+            LoadGenerator.Results results = generator.run(config.durationSeconds);
+
+            Map<String, Object> report = report(config, results);
+            report.put("threadMode", threadMode);
+            report.put("ingestMode", ingestMode);
+            return report;
+        } finally {
+            context.close();
+            responseExecutor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Object> report(LoadTestConfig config, LoadGenerator.Results results) {
+        double seconds = results.elapsedNanos / 1e9;
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("rows", config.rows);
+        report.put("targetRate", config.rate);
+        report.put("durationSeconds", seconds);
+        report.put("mix", config.mix);
+        report.put("all", stats(results.all, seconds));
+        Map<String, Object> operations = new LinkedHashMap<>();
+        results.byOperation.forEach((operation, stats) -> {
+            if (stats.corrected.getTotalCount() > 0) {
+                operations.put(operation.name().toLowerCase(), stats(stats, seconds));
+            }
+        });
+        report.put("operations", operations);
+        return report;
+    }
+
+    private static Map<String, Object> stats(LoadGenerator.Stats stats, double seconds) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("requests", stats.corrected.getTotalCount());
+        row.put("errors", stats.errors.get());
+        row.put("throughput", round(stats.corrected.getTotalCount() / seconds));
+        row.put("latencyMs", percentiles(stats.corrected));
+        row.put("serviceTimeMs", percentiles(stats.service));
+        return row;
+    }
+
+    private static Map<String, Object> percentiles(Histogram histogram) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (double percentile : PERCENTILES) {
+            values.put("p" + (percentile == Math.rint(percentile) ? String.valueOf((int) percentile) : String.valueOf(percentile)),
+                    millis(histogram.getValueAtPercentile(percentile)));
+        }
+        values.put("max", millis(histogram.getMaxValue()));
+        return values;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(String label, Map<String, Object> report) {
+        System.out.printf("%n[%s]%n%-8s %10s %8s %10s %10s %10s %10s %10s %10s %12s%n",
+                label, "op", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms", "svc p99 ms");
+        List<Map.Entry<String, Object>> rows = new ArrayList<>(((Map<String, Object>) report.get("operations")).entrySet());
+        rows.add(Map.entry("all", report.get("all")));
+        for (Map.Entry<String, Object> entry : rows) {
+            Map<String, Object> row = (Map<String, Object>) entry.getValue();
+            Map<String, Object> latency = (Map<String, Object>) row.get("latencyMs");
+            Map<String, Object> service = (Map<String, Object>) row.get("serviceTimeMs");
+            System.out.printf("%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f %12.2f%n",
+                    entry.getKey(), row.get("requests"), row.get("errors"), row.get("throughput"),
+                    latency.get("p50"), latency.get("p95"), latency.get("p99"), latency.get("p99.9"), latency.get("max"),
+                    service.get("p99"));
+        }
+    }
+
+    // Overall row of every mode side by side
+    @SuppressWarnings("unchecked")
+    private static void printComparison(Map<String, Map<String, Object>> reports) {
+        System.out.printf("%n%-24s %10s %8s %10s %10s %10s %10s %10s%n",
+                "mode", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        reports.forEach((label, report) -> {
+            Map<String, Object> all = (Map<String, Object>) report.get("all");
+            Map<String, Object> latency = (Map<String, Object>) all.get("latencyMs");
+            System.out.printf("%-24s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    label, all.get("requests"), all.get("errors"), all.get("throughput"),
+                    latency.get("p50"), latency.get("p99"), latency.get("p99.9"), latency.get("max"));
+        });
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
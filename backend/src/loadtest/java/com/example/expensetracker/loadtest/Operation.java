@@ -0,0 +1,117 @@
+package com.example.expensetracker.loadtest;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request types of the load mix. Ids are drawn uniformly from the seeded id range, so update and
+ * delete also hit rows that earlier deletes already archived, the same as stale clients would.
+ */
+enum Operation {
+
+    LIST {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            return target.get("/api/expenses?page=" + random.nextInt(100) + "&size=10");
+        }
+    },
+    FILTER {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            LocalDate end = LocalDate.now().minusDays(random.nextInt(1500));
+            return target.get("/api/expenses?category=" + target.randomCategory(random)
+                    + "&startDate=" + end.minusDays(90) + "&endDate=" + end
+                    + "&minAmount=" + random.nextInt(500) + "&size=10");
+        }
+    },
+    GET {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            return target.get("/api/expenses/" + target.randomId(random));
+        }
+    },
+    CREATE {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            return target.send("POST", "/api/expenses", target.randomExpenseJson(random));
+        }
+    },
+    UPDATE {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            return target.send("PUT", "/api/expenses/" + target.randomId(random), target.randomExpenseJson(random));
+        }
+    },
+    DELETE {
+        @Override
+        HttpRequest request(Target target, ThreadLocalRandom random) {
+            return target.send("DELETE", "/api/expenses/" + target.randomId(random), null);
+        }
+    };
+
+    abstract HttpRequest request(Target target, ThreadLocalRandom random);
+
+    static Operation fromName(String name) {
+        try {
+            return valueOf(name.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Unknown operation '" + name + "', expected one of list, filter, get, "
+                    + "create, update, delete");
+        }
+    }
+
+    /**
+     * The application under test: base URI, credentials and the seeded id range.
+     */
+    static final class Target {
+
+        private static final String[] CATEGORIES = { "Food", "Transportation", "Utilities", "Entertainment", "Health", "Other" };
+
+        private final URI baseUri;
+        private final String authorization;
+        private final long minId;
+        private final long maxId;
+
+        Target(URI baseUri, String authorization, long minId, long maxId) {
+            this.baseUri = baseUri;
+            this.authorization = authorization;
+            this.minId = minId;
+            this.maxId = maxId;
+        }
+
+        HttpRequest get(String path) {
+            return send("GET", path, null);
+        }
+
+        HttpRequest send(String method, String path, String json) {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(baseUri.resolve(path))
+                    .header("Authorization", authorization)
+                    .header("Accept", "application/json");
+            if (json == null) {
+                builder.method(method, HttpRequest.BodyPublishers.noBody());
+            } else {
+                builder.header("Content-Type", "application/json")
+                        .method(method, HttpRequest.BodyPublishers.ofString(json));
+            }
+            return builder.build();
+        }
+
+        long randomId(ThreadLocalRandom random) {
+            return random.nextLong(minId, maxId + 1);
+        }
+
+        String randomCategory(ThreadLocalRandom random) {
+            return CATEGORIES[random.nextInt(CATEGORIES.length)];
+        }
+
+        String randomExpenseJson(ThreadLocalRandom random) {
+            return "{\"description\":\"Load test " + random.nextInt(1_000_000) + "\","
+                    + "\"amount\":" + (1 + random.nextInt(99_900) / 100.0) + ","
+                    + "\"date\":\"" + LocalDate.now().minusDays(random.nextInt(1500)) + "\","
+                    + "\"category\":\"" + randomCategory(random) + "\"}";
+        }
+    }
+}
@@ -2,6 +2,13 @@ package com.example.expensetracker.config;
 
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.CategoryRegistry;
+import com.example.expensetracker.service.ExpenseDistributionService;
+import com.example.expensetracker.service.ExpenseRollupService;
+import com.example.expensetracker.service.ExpenseWatermarkService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -13,10 +20,28 @@ import java.util.concurrent.ThreadLocalRandom;
 @Component
 public class DataInitializer implements CommandLineRunner {
 
+    private static final Logger log = LoggerFactory.getLogger(DataInitializer.class);
+
+    // Rows per saveAll call (and transaction) when seeding large tables
+    private static final int SEED_CHUNK_SIZE = 10_000;
+
     private final ExpenseRepository expenseRepository;
+    private final ExpenseRollupService expenseRollupService;
+    private final CategoryRegistry categoryRegistry;
+    private final ExpenseWatermarkService watermarkService;
+    private final ExpenseDistributionService distributionService;
+    private final int seedRows;
 
-    public DataInitializer(ExpenseRepository expenseRepository) {
+    public DataInitializer(ExpenseRepository expenseRepository, ExpenseRollupService expenseRollupService,
+                           CategoryRegistry categoryRegistry, ExpenseWatermarkService watermarkService,
+                           ExpenseDistributionService distributionService,
+                           @Value("${expense.seed.rows:100}") int seedRows) {
         this.expenseRepository = expenseRepository;
+        this.expenseRollupService = expenseRollupService;
+        this.categoryRegistry = categoryRegistry;
+        this.watermarkService = watermarkService;
+        this.distributionService = distributionService;
+        this.seedRows = seedRows;
     }
 
     @Override
@@ -27,8 +52,12 @@ public class DataInitializer implements CommandLineRunner {
 
             // Predefined categories list
             String[] categories = { "Food", "Transportation", "Utilities", "Entertainment", "Health", "Other" };
+            // Register them up front so they get ids 1..n in this order
+            for (String category : categories) {
+                categoryRegistry.register(category);
+            }
 
-            for (int i = 0; i < 100; i++) {
+            for (int i = 0; i < seedRows; i++) {
                 Expense expense = new Expense();
 
                 // Set description
@@ -52,11 +81,19 @@ public class DataInitializer implements CommandLineRunner {
                 expense.setDate(randomDate);
 
                 expenses.add(expense);
+
+                // Save the expenses into the database chunk by chunk, so large seeds (load tests) stay in bounded memory
+                if (expenses.size() == SEED_CHUNK_SIZE || i == seedRows - 1) {
+                    expenseRepository.saveAll(expenses);
+                    expenses.clear();
+                }
             }
 
-            // Save all expenses into the database
-            expenseRepository.saveAll(expenses);
-            System.out.println("Initialized " + expenses.size() + " random expenses for testing.");
+            // Seed rows bypass ExpenseService, so derive the rollups and amount sketches from the table
+            expenseRollupService.rebuild();
+            distributionService.rebuild();
+            watermarkService.bump();
+            log.info("Initialized {} random expenses for testing.", seedRows);
         }
     }
 }
@@ -0,0 +1,93 @@
+package com.example.expensetracker.config;
+
+import org.hibernate.BaseSessionEventListener;
+import org.hibernate.boot.Metadata;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostLoadEvent;
+import org.hibernate.event.spi.PostLoadEventListener;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+/**
+ * Counts the Hibernate work done on behalf of the current request: JDBC statements prepared, flushes
+ * and entities loaded. Hibernate's own statistics are global counters; these are kept per thread
+ * between {@link #begin()} and {@link #finish()} so they can be attributed to one HTTP request.
+ * <p>
+ * Hibernate creates one instance per session (hibernate.session.events.auto) for the statement and flush
+ * callbacks, and {@link Registration} adds one as a post-load listener for entity loads.
+ */
+public class HibernateRequestStatistics extends BaseSessionEventListener implements PostLoadEventListener {
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    public static void begin() {
+        CURRENT.set(new Counts());
+    }
+
+    // Counts since begin() on this thread, or null if nothing was begun; clears the thread either way
+    public static Counts finish() {
+        Counts counts = CURRENT.get();
+        CURRENT.remove();
+        return counts;
+    }
+
+    @Override
+    public void jdbcPrepareStatementStart() {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.statements++;
+        }
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.flushes++;
+        }
+    }
+
+    @Override
+    public void onPostLoad(PostLoadEvent event) {
+        Counts counts = CURRENT.get();
+        if (counts != null) {
+            counts.entitiesLoaded++;
+        }
+    }
+
+    public static final class Counts {
+
+        private long statements;
+        private long flushes;
+        private long entitiesLoaded;
+
+        public long getStatements() {
+            return statements;
+        }
+
+        public long getFlushes() {
+            return flushes;
+        }
+
+        public long getEntitiesLoaded() {
+            return entitiesLoaded;
+        }
+    }
+
+    // Registers the post-load listener with the session factory (hibernate.integrator_provider)
+    public static final class Registration implements Integrator {
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            serviceRegistry.getService(EventListenerRegistry.class)
+                    .appendListeners(EventType.POST_LOAD, new HibernateRequestStatistics());
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+    }
+}
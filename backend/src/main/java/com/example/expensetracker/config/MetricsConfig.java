@@ -0,0 +1,101 @@
+package com.example.expensetracker.config;
+
+import com.example.expensetracker.service.ExpenseReadCache;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Collections;
+
+/**
+ * Application metrics on top of what Actuator binds by itself (HTTP server requests, HikariCP pool,
+ * Hibernate statistics, JVM):
+ * <ul>
+ *   <li>{@code hibernate.request.statements} / {@code .flushes} / {@code .entities.loaded} - per-request
+ *   distributions of the Hibernate work behind each API call, tagged with method and uri.</li>
+ *   <li>{@code cache.*} for the two read caches.</li>
+ * </ul>
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    // Looked up on first use: the registry applies the binders below, and JPA needs the customizer, both
+    // while this configuration is still being created
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+
+    public MetricsConfig(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer requestStatisticsCustomizer() {
+        return properties -> {
+            properties.put("hibernate.session.events.auto", HibernateRequestStatistics.class.getName());
+            properties.put("hibernate.integrator_provider",
+                    (IntegratorProvider) () -> Collections.singletonList(new HibernateRequestStatistics.Registration()));
+        };
+    }
+
+    @Bean
+    public MeterBinder readCacheMetrics(ExpenseReadCache readCache) {
+        return registry -> {
+            if (readCache.byIdCache() != null) {
+                CaffeineCacheMetrics.monitor(registry, readCache.byIdCache(), "expense.byId");
+            }
+            if (readCache.pagesCache() != null) {
+                CaffeineCacheMetrics.monitor(registry, readCache.pagesCache(), "expense.pages");
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AsyncHandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                HibernateRequestStatistics.begin();
+                return true;
+            }
+
+            // Async and SSE requests leave this thread here and never reach afterCompletion on it
+            @Override
+            public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                                       Object handler) {
+                HibernateRequestStatistics.finish();
+            }
+
+            @Override
+            public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                        Exception ex) {
+                HibernateRequestStatistics.Counts counts = HibernateRequestStatistics.finish();
+                if (counts == null) {
+                    return;
+                }
+                Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+                String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+                record("hibernate.request.statements", request.getMethod(), uri, counts.getStatements());
+                record("hibernate.request.flushes", request.getMethod(), uri, counts.getFlushes());
+                record("hibernate.request.entities.loaded", request.getMethod(), uri, counts.getEntitiesLoaded());
+            }
+        }).addPathPatterns("/api/**");
+    }
+
+    private void record(String name, String method, String uri, long value) {
+        DistributionSummary.builder(name)
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry.getObject())
+                .record(value);
+    }
+}
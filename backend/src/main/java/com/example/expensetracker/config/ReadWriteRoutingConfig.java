@@ -0,0 +1,133 @@
+package com.example.expensetracker.config;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.service.ExpenseReadCache;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * expense.datasource.routing.enabled=true: read-only transactions read from the replicas in
+ * expense.datasource.replica-urls, everything else uses the primary (spring.datasource.*).
+ * <ul>
+ *   <li>The DataSource is a LazyConnectionDataSourceProxy over a {@link ReadWriteRoutingDataSource}, which
+ *   owns one Hikari pool per database (metrics as hikaricp.* tagged with pool "primary", "replica-0", ...).
+ *   The primary pool takes the usual spring.datasource.hikari.* settings.</li>
+ *   <li>{@link ReadYourWritesFilter} keeps a client on the primary for read-your-writes after its changes.</li>
+ *   <li>The read caches are invalidated on commit, which a lagging replica may not have applied yet, so a
+ *   read may cache the old row again; every invalidation is repeated after the read-your-writes window.</li>
+ * </ul>
+ * The replicas are expected to be replicated copies of the primary, schema included.
+ */
+@Configuration
+@ConditionalOnProperty(name = "expense.datasource.routing.enabled", havingValue = "true")
+public class ReadWriteRoutingConfig implements DisposableBean {
+
+    private final ExpenseReadCache readCache;
+    private final Duration readYourWrites;
+    private final ScheduledExecutorService invalidations = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "replica-lag-invalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ReadWriteRoutingConfig(ExpenseReadCache readCache,
+                                  @Value("${expense.datasource.read-your-writes:PT5S}") Duration readYourWrites) {
+        this.readCache = readCache;
+        this.readYourWrites = readYourWrites;
+    }
+
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            DataSourceProperties properties,
+            Environment environment,
+            @Value("${expense.datasource.replica-urls:}") String[] replicaUrls,
+            @Value("${expense.datasource.replica-username:${spring.datasource.username:}}") String replicaUsername,
+            @Value("${expense.datasource.replica-password:${spring.datasource.password:}}") String replicaPassword,
+            @Value("${expense.datasource.replica-connection-timeout:PT2S}") Duration replicaConnectionTimeout) {
+        HikariDataSource primary = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        // What @ConfigurationProperties("spring.datasource.hikari") does for Spring Boot's own pool
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        primary.setPoolName("primary");
+
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            if (url.trim().isEmpty()) {
+                continue;
+            }
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(url.trim())
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build();
+            replica.setPoolName("replica-" + replicas.size());
+            // A replica that is down must not hold up reads that can fall back to the primary
+            replica.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReadWriteRoutingDataSource(primary, replicas);
+    }
+
+    // The pools are not beans, so Spring Boot's Hikari metrics do not find them. A binder rather than a
+    // MeterRegistry parameter above: the registry's own binders need the DataSource.
+    @Bean
+    public MeterBinder routingDataSourceMetrics(ReadWriteRoutingDataSource routingDataSource) {
+        return registry -> {
+            MicrometerMetricsTrackerFactory metrics = new MicrometerMetricsTrackerFactory(registry);
+            for (DataSource pool : routingDataSource.getDataSources()) {
+                if (pool instanceof HikariDataSource) {
+                    ((HikariDataSource) pool).setMetricsTrackerFactory(metrics);
+                }
+            }
+        };
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            @Value("${expense.datasource.read-your-writes-clients:100000}") long maximumClients) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(readYourWrites, maximumClients));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        invalidations.schedule(() -> readCache.onExpenseChange(event), readYourWrites.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        invalidations.shutdownNow();
+    }
+}
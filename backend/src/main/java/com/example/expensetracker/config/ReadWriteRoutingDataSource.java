@@ -0,0 +1,189 @@
+package com.example.expensetracker.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the connections of read-only transactions ({@code @Transactional(readOnly = true)}) to a read
+ * replica and every other connection to the primary (expense.datasource.routing.enabled=true).
+ * <p>
+ * The transaction's read-only flag is only known once it has begun, so this must sit behind a
+ * LazyConnectionDataSourceProxy, which fetches the real connection at the first statement. Replicas are
+ * taken in turn; within a request (see {@link ReadYourWritesFilter}) every read goes to the same replica,
+ * so the watermark behind the list ETag and the page it describes come from the same copy of the data.
+ * A request can also be pinned to the primary, which is how a client reads its own recent writes.
+ * <p>
+ * A replica that fails to hand out a connection is marked down and the read falls back to another
+ * replica or the primary; the health check marks it up again once it accepts connections.
+ */
+public class ReadWriteRoutingDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private static final ThreadLocal<RequestRouting> REQUEST = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+    }
+
+    // Scopes routing decisions to one request on this thread; primaryOnly keeps all its reads on the primary
+    public static void beginRequest(boolean primaryOnly) {
+        REQUEST.set(new RequestRouting(primaryOnly));
+    }
+
+    public static void endRequest() {
+        REQUEST.remove();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    @Scheduled(fixedDelayString = "${expense.datasource.health-check-interval:PT5S}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown(null);
+                }
+            } catch (SQLException | RuntimeException ex) {
+                replica.markDown(ex);
+            }
+        }
+    }
+
+    public int getHealthyReplicaCount() {
+        int healthy = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy++;
+            }
+        }
+        return healthy;
+    }
+
+    // The primary followed by the replicas
+    public List<DataSource> getDataSources() {
+        List<DataSource> dataSources = new ArrayList<>();
+        dataSources.add(primary);
+        replicas.forEach(replica -> dataSources.add(replica.dataSource));
+        return dataSources;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof Closeable) {
+                ((Closeable) replica.dataSource).close();
+            }
+        }
+        if (primary instanceof Closeable) {
+            ((Closeable) primary).close();
+        }
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        RequestRouting request = REQUEST.get();
+        boolean replicaRead = TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                && (request == null || !request.primaryOnly);
+        if (replicaRead) {
+            Replica replica;
+            while ((replica = replica(request)) != null) {
+                try {
+                    return source.connect(replica.dataSource);
+                } catch (SQLException | RuntimeException ex) {
+                    replica.markDown(ex);
+                }
+            }
+        }
+        return source.connect(primary);
+    }
+
+    // The request's replica while it is healthy, otherwise the next healthy one in turn; null if none is
+    private Replica replica(RequestRouting request) {
+        if (request != null && request.replica != null && request.replica.healthy) {
+            return request.replica;
+        }
+        Replica chosen = null;
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size() && chosen == null; i++) {
+            Replica candidate = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (candidate.healthy) {
+                chosen = candidate;
+            }
+        }
+        if (request != null) {
+            request.replica = chosen;
+        }
+        return chosen;
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+
+    private static final class RequestRouting {
+
+        final boolean primaryOnly;
+        Replica replica;
+
+        RequestRouting(boolean primaryOnly) {
+            this.primaryOnly = primaryOnly;
+        }
+    }
+
+    private static final class Replica {
+
+        final String name;
+        final DataSource dataSource;
+        volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void markDown(Exception cause) {
+            if (healthy) {
+                log.warn("Read replica {} is down, reading from the primary or other replicas", name, cause);
+            }
+            healthy = false;
+        }
+
+        void markUp() {
+            if (!healthy) {
+                log.info("Read replica {} is back up", name);
+            }
+            healthy = true;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.expensetracker.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Read-your-writes on top of {@link ReadWriteRoutingDataSource}: a request that changes data, and every
+ * request of the same client for {@code window} after it, reads from the primary, so clients see their own
+ * changes however far the replicas lag. The window should be longer than the replication lag.
+ * <p>
+ * A client is an authenticated user name. Recent writers are remembered by the node that served the write,
+ * so without sticky sessions a client's next read may still reach a lagging replica through another node.
+ * Runs after Spring Security, which has established the user by then.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    private static final Set<String> READ_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+
+    private final Cache<String, Boolean> recentWriters;
+
+    public ReadYourWritesFilter(Duration window, long maximumClients) {
+        this.recentWriters = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(maximumClients)
+                .build();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String client = client();
+        boolean write = !READ_METHODS.contains(request.getMethod());
+        if (client != null && write) {
+            // Pinned from the start, so a read racing with the response already goes to the primary
+            recentWriters.put(client, Boolean.TRUE);
+        }
+        boolean primaryOnly = write || (client != null && recentWriters.getIfPresent(client) != null);
+        ReadWriteRoutingDataSource.beginRequest(primaryOnly);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ReadWriteRoutingDataSource.endRequest();
+            if (client != null && write) {
+                // The window runs from the end of the write
+                recentWriters.put(client, Boolean.TRUE);
+            }
+        }
+    }
+
+    private static String client() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
@@ -1,11 +1,23 @@
 package com.example.expensetracker.config;
 
+import com.example.expensetracker.security.TokenAuthenticationFilter;
+import com.example.expensetracker.security.TokenService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod; // <-- Import HttpMethod
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -16,6 +28,12 @@ import java.util.Arrays;
 @EnableWebSecurity
 public class SecurityConfig extends WebSecurityConfigurerAdapter {
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @Override
     protected void configure(HttpSecurity http) throws Exception {
         http.cors().and()
@@ -23,13 +41,41 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
             .headers().frameOptions().sameOrigin() // Allow frames for H2 console
             .and()
             .authorizeRequests()
+            .antMatchers(HttpMethod.POST, "/api/auth/login").permitAll() // Exchanges credentials for a token
             .antMatchers("/h2-console/**").permitAll()
+            .antMatchers("/actuator/health").permitAll() // Liveness checks; metrics and Prometheus need credentials
             .antMatchers(HttpMethod.OPTIONS, "/api/**").permitAll() // Allow CORS preflight requests
+            // Full rebuilds rewrite shared tables or reload whole in-memory indexes and are expensive:
+            // administrators only
+            .antMatchers(HttpMethod.POST, "/api/expenses/summary/rebuild", "/api/expenses/summary/distribution/rebuild",
+                    "/api/expenses/search/rebuild", "/api/analytics/reload")
+                .hasRole("ADMIN")
             .antMatchers("/api/expenses/**").authenticated()
             .anyRequest().authenticated()
             .and()
+            // Bearer tokens from /api/auth/login are checked first; HTTP Basic remains for scripts and tools
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService, objectMapper), BasicAuthenticationFilter.class)
+            .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
+            .and()
             .httpBasic();
     }
+
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${expense.auth.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    // The spring.security.user account, stored as a BCrypt hash instead of Spring Boot's {noop} default
+    @Bean
+    public UserDetailsService userDetailsService(@Value("${spring.security.user.name}") String username,
+                                                 @Value("${spring.security.user.password}") String password,
+                                                 @Value("${spring.security.user.roles:USER}") String[] roles,
+                                                 PasswordEncoder passwordEncoder) {
+        return new InMemoryUserDetailsManager(User.withUsername(username)
+                .password(passwordEncoder.encode(password))
+                .roles(roles)
+                .build());
+    }
     @Bean
     public CorsConfigurationSource corsConfigurationSource() {
         CorsConfiguration configuration = new CorsConfiguration();
@@ -37,7 +83,7 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
         // 配置具体域名, 不能用 "*" 同时配合 credentials=true
         configuration.setAllowedOrigins(Arrays.asList("http://localhost:8084"));
 
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "DELETE", "OPTIONS"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
         configuration.setAllowedHeaders(Arrays.asList("*"));
         // 若需要携带 Cookie
         configuration.setAllowCredentials(true);
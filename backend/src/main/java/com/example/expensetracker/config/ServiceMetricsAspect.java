@@ -0,0 +1,52 @@
+package com.example.expensetracker.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public method of ExpenseService and ExpenseArchivingService.
+ * <ul>
+ *   <li>{@code expense.service} - timer tagged with class, method, outcome (success/error) and exception;
+ *   its count is the number of calls.</li>
+ *   <li>{@code expense.service.errors} - counter of calls that threw, with the same tags.</li>
+ * </ul>
+ * Percentile histograms are switched on per meter in application.properties.
+ */
+@Aspect
+@Component
+public class ServiceMetricsAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    public ServiceMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.example.expensetracker.service.ExpenseService.*(..))"
+            + " || execution(public * com.example.expensetracker.service.ExpenseArchivingService.*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String exception = "none";
+        try {
+            return joinPoint.proceed();
+        } catch (Throwable ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            String type = joinPoint.getSignature().getDeclaringType().getSimpleName();
+            String method = joinPoint.getSignature().getName();
+            String outcome = "none".equals(exception) ? "success" : "error";
+            sample.stop(Timer.builder("expense.service")
+                    .tags("class", type, "method", method, "outcome", outcome, "exception", exception)
+                    .register(meterRegistry));
+            if (!"none".equals(exception)) {
+                meterRegistry.counter("expense.service.errors",
+                        "class", type, "method", method, "exception", exception).increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.expensetracker.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.Executors;
+
+/**
+ * expense.threads.mode=virtual: request handling, the scheduled jobs and async work run on virtual threads.
+ * <ul>
+ *   <li>Tomcat hands every request to a new virtual thread instead of its bounded worker pool, so a request
+ *   waiting on JDBC no longer holds one of 200 platform threads. The Hikari pool still bounds how many
+ *   requests talk to the database at once; the others wait in the pool (without pinning their carrier).</li>
+ *   <li>{@code @Scheduled} jobs (archiving) run on a scheduler whose workers are virtual threads, as many as
+ *   {@code spring.task.scheduling.pool.size} like the platform scheduler.</li>
+ *   <li>The application task executor (MVC async requests, {@code @Async}) starts a virtual thread per task.</li>
+ * </ul>
+ * The default (platform) mode keeps Spring Boot's own thread pools.
+ */
+@Configuration
+@ConditionalOnProperty(name = "expense.threads.mode", havingValue = "virtual")
+public class VirtualThreadConfig {
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> protocolHandler.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${spring.task.scheduling.pool.size:5}") int poolSize) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setThreadFactory(Thread.ofVirtual().name("scheduling-", 1).factory());
+        scheduler.setPoolSize(poolSize);
+        return scheduler;
+    }
+
+    @Bean(name = { TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME })
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(Executors.newVirtualThreadPerTaskExecutor());
+    }
+}
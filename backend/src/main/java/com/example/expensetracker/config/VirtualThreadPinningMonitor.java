@@ -0,0 +1,79 @@
+package com.example.expensetracker.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Guards against carrier-thread pinning in virtual-thread mode. The JDK emits a
+ * {@code jdk.VirtualThreadPinned} JFR event whenever a virtual thread blocks while it cannot unmount
+ * (inside a {@code synchronized} block or a native frame), for example in a JDBC driver or security
+ * filter that still uses monitors. Every such event longer than expense.threads.pinned-threshold is
+ * counted in {@code jvm.threads.virtual.pinned} and logged with the top of its stack, so the offending
+ * frame can be found and replaced by a java.util.concurrent lock.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.threads.mode", havingValue = "virtual")
+public class VirtualThreadPinningMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadPinningMonitor.class);
+
+    private static final int LOGGED_FRAMES = 8;
+
+    private final Counter pinned;
+    private final Duration threshold;
+    private RecordingStream stream;
+
+    public VirtualThreadPinningMonitor(MeterRegistry meterRegistry,
+                                       @Value("${expense.threads.pinned-threshold:PT0.02S}") Duration threshold) {
+        this.pinned = Counter.builder("jvm.threads.virtual.pinned")
+                .description("Virtual threads that blocked while pinned to their carrier thread")
+                .register(meterRegistry);
+        this.threshold = threshold;
+    }
+
+    @PostConstruct
+    public void start() {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::onPinned);
+        stream.startAsync();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinned.increment();
+        if (log.isWarnEnabled()) {
+            String frames = "unknown";
+            if (event.getStackTrace() != null) {
+                List<RecordedFrame> top = event.getStackTrace().getFrames().stream()
+                        .limit(LOGGED_FRAMES)
+                        .collect(Collectors.toList());
+                frames = top.stream()
+                        .map(frame -> frame.getMethod().getType().getName() + "." + frame.getMethod().getName()
+                                + ":" + frame.getLineNumber())
+                        .collect(Collectors.joining("\n    at "));
+            }
+            log.warn("Virtual thread pinned for {} ms\n    at {}", event.getDuration().toMillis(), frames);
+        }
+    }
+}
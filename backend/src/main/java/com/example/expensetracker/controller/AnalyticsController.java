@@ -0,0 +1,60 @@
+package com.example.expensetracker.controller;
+
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.service.ExpenseAnalyticsEngine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ad-hoc aggregates over arbitrary date/amount windows, answered by the in-memory
+ * {@link ExpenseAnalyticsEngine} instead of the database. Only present when expense.analytics.enabled=true.
+ */
+@RestController
+@RequestMapping("/api/analytics")
+@Validated
+@ConditionalOnProperty(name = "expense.analytics.enabled", havingValue = "true")
+public class AnalyticsController {
+
+    @Autowired
+    private ExpenseAnalyticsEngine analyticsEngine;
+
+    // Count, total, average, min and max of the active expenses matching the filters
+    @GetMapping("/aggregate")
+    public Map<String, Object> aggregate(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount) {
+        return analyticsEngine.aggregate(new ExpenseFilter(category, startDate, endDate, minAmount, maxAmount));
+    }
+
+    // Top-N categories by total amount within the filters
+    @GetMapping("/top-categories")
+    public List<Map<String, Object>> topCategories(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(1000) int limit) {
+        return analyticsEngine.topCategories(new ExpenseFilter(null, startDate, endDate, minAmount, maxAmount), limit);
+    }
+
+    // Reload the columns from the expense table (recovery, or after writes that bypass the services)
+    @PostMapping("/reload")
+    public Map<String, Object> reload() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rows", analyticsEngine.reload());
+        return response;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.expensetracker.controller;
+
+import com.example.expensetracker.model.LoginRequest;
+import com.example.expensetracker.security.TokenService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.validation.Valid;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/auth")
+public class AuthController {
+
+    @Autowired
+    private UserDetailsService userDetailsService;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenService tokenService;
+
+    // Check the password once and return a signed token to send as "Authorization: Bearer <token>"
+    @PostMapping("/login")
+    public Map<String, Object> login(@Valid @RequestBody LoginRequest request) {
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(request.getUsername());
+        } catch (UsernameNotFoundException ex) {
+            throw new BadCredentialsException("Invalid username or password");
+        }
+        if (!user.isEnabled() || !passwordEncoder.matches(request.getPassword(), user.getPassword())) {
+            throw new BadCredentialsException("Invalid username or password");
+        }
+
+        TokenService.Token token = tokenService.issue(user.getUsername(), user.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList()));
+        Map<String, Object> response = new HashMap<>();
+        response.put("token", token.getValue());
+        response.put("tokenType", "Bearer");
+        response.put("expiresAt", token.getExpiresAt().toString());
+        response.put("expiresIn", tokenService.getTtl().getSeconds());
+        return response;
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.expensetracker.controller;
+
+import com.example.expensetracker.model.Category;
+import com.example.expensetracker.service.CategoryRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/categories")
+public class CategoryController {
+
+    @Autowired
+    private CategoryRegistry categoryRegistry;
+
+    // All known categories with their ids, ordered by name (served from the in-memory dictionary)
+    @GetMapping
+    public List<Category> getCategories() {
+        return categoryRegistry.findAll();
+    }
+}
@@ -1,31 +1,108 @@
 package com.example.expensetracker.controller;
 
+import com.example.expensetracker.exception.InvalidRequestException;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseBatchRequest;
+import com.example.expensetracker.model.ExpenseColumns;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.example.expensetracker.service.ArchiveExportService;
+import com.example.expensetracker.service.CursorPage;
+import com.example.expensetracker.service.ExpenseChangeFeed;
+import com.example.expensetracker.service.ExpenseDistributionService;
+import com.example.expensetracker.service.ExpenseImportService;
+import com.example.expensetracker.service.ExpenseIngestService;
+import com.example.expensetracker.service.ExpenseMutationService;
+import com.example.expensetracker.service.ExpenseReadCache;
+import com.example.expensetracker.service.ExpenseRollupService;
 import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.service.ExpenseWatermarkService;
+import com.example.expensetracker.service.ImportResult;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/expenses")
 @Validated
 public class ExpenseController {
 
+    // Largest page the list endpoints return
+    private static final int MAX_PAGE_SIZE = 1000;
+
     @Autowired
     private ExpenseService expenseService;
 
+    @Autowired
+    private ArchiveExportService archiveExportService;
+
+    @Autowired
+    private ExpenseImportService expenseImportService;
+
+    @Autowired
+    private ExpenseRollupService expenseRollupService;
+
+    @Autowired
+    private ExpenseDistributionService distributionService;
+
+    @Autowired
+    private ExpenseReadCache expenseReadCache;
+
+    @Autowired
+    private ExpenseWatermarkService watermarkService;
+
+    @Autowired
+    private ExpenseMutationService expenseMutationService;
+
+    @Autowired
+    private ExpenseChangeFeed changeFeed;
+
+    // Only present with expense.ingest.mode=group-commit
+    @Autowired(required = false)
+    private ExpenseIngestService expenseIngestService;
+
+    @Autowired
+    private Validator validator;
+
     // Modified GET /api/expenses interface to support filtering and paging.
+    // pagination=cursor (or any cursor value) switches from OFFSET paging to keyset paging.
+    // shape=columnar returns the page as one array per field ("columns") instead of row objects ("data").
     @GetMapping
     public ResponseEntity<?> getExpenses(
             @RequestParam(required = false) String category,
@@ -34,51 +111,350 @@ public class ExpenseController {
             @RequestParam(required = false) Double minAmount,
             @RequestParam(required = false) Double maxAmount,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") @Min(1) int size,
+            @RequestParam(defaultValue = "offset") String pagination,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+            @RequestParam(defaultValue = "rows") String shape,
+            WebRequest webRequest,
+            HttpServletResponse servletResponse) {
+
+        boolean columnar = isColumnar(shape);
+        // Larger pages are cut to MAX_PAGE_SIZE rather than rejected, in both paging modes
+        int pageSize = Math.min(size, MAX_PAGE_SIZE);
+
+        // Any page is unchanged as long as the table watermark is: answer 304 before running the query.
+        // The watermark is read before the data, so a write in between can only make the ETag older, never newer.
+        ExpenseWatermarkService.Watermark watermark = watermarkService.current();
+        if (notModified(webRequest, servletResponse, watermark.etag("expenses"), watermark.getModifiedAt())) {
+            return null;
+        }
+
+        if (cursor != null || "cursor".equalsIgnoreCase(pagination)) {
+            return getExpensesByCursor(category, startDate, endDate, minAmount, maxAmount, cursor, pageSize,
+                    includeTotal, columnar);
+        }
 
         // Create a PageRequest object using the page and size parameters.
-        PageRequest pageable = PageRequest.of(page, size);
+        PageRequest pageable = PageRequest.of(page, pageSize);
 
         // Get the filtered and paginated list of expenses
-        Page<Expense> expensePage = expenseService.getExpenses(category, startDate, endDate, minAmount, maxAmount, pageable);
+        Page<ExpenseSnapshot> expensePage = expenseService.getExpenses(category, startDate, endDate, minAmount, maxAmount, pageable);
 
         // Prepare a response map with the paginated data and related information.
         Map<String, Object> response = new HashMap<>();
-        response.put("data", expensePage.getContent());
+        putRows(response, expensePage.getContent(), columnar);
         response.put("totalPages", expensePage.getTotalPages());
         response.put("totalExpenses", expensePage.getTotalElements());
 
         return new ResponseEntity<>(response, HttpStatus.OK);
     }
 
-    // Return a single expense by its id
+    private ResponseEntity<?> getExpensesByCursor(String category, LocalDate startDate, LocalDate endDate,
+                                                  Double minAmount, Double maxAmount,
+                                                  String cursor, int size, boolean includeTotal, boolean columnar) {
+        CursorPage<ExpenseSnapshot> expensePage = expenseService.getExpensesByCursor(
+                category, startDate, endDate, minAmount, maxAmount, cursor, size, includeTotal);
+
+        Map<String, Object> response = new HashMap<>();
+        putRows(response, expensePage.getContent(), columnar);
+        response.put("nextCursor", expensePage.getNextCursor());
+        response.put("prevCursor", expensePage.getPrevCursor());
+        response.put("hasNext", expensePage.hasNext());
+        response.put("hasPrevious", expensePage.hasPrevious());
+        if (expensePage.getTotalElements() != null) {
+            response.put("totalExpenses", expensePage.getTotalElements());
+        }
+
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    // Totals per category and/or month, served from the rollup table, e.g. ?groupBy=category,month
+    @GetMapping("/summary")
+    public List<Map<String, Object>> getSummary(
+            @RequestParam(defaultValue = "category,month") String groupBy,
+            @RequestParam(required = false) String startMonth,
+            @RequestParam(required = false) String endMonth,
+            @RequestParam(required = false) String category) {
+        return expenseRollupService.summarize(parseDimensions(groupBy), parseMonth(startMonth), parseMonth(endMonth),
+                category);
+    }
+
+    // Recompute the rollup table from the expense table (recovery)
+    @PostMapping("/summary/rebuild")
+    public Map<String, Object> rebuildSummary() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("groups", expenseRollupService.rebuild());
+        return response;
+    }
+
+    // Approximate amount quantiles (and a histogram with bins > 0) per category and/or month, merged from
+    // the amount sketches, e.g. ?groupBy=month&quantiles=0.5,0.99&bins=20
+    @GetMapping("/summary/distribution")
+    public List<Map<String, Object>> getDistribution(
+            @RequestParam(defaultValue = "category") String groupBy,
+            @RequestParam(required = false) String startMonth,
+            @RequestParam(required = false) String endMonth,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "0.5,0.9,0.99") String quantiles,
+            @RequestParam(defaultValue = "0") @Min(0) @Max(100) int bins) {
+        double[] values;
+        try {
+            values = Arrays.stream(quantiles.split(","))
+                    .map(String::trim)
+                    .filter(value -> !value.isEmpty())
+                    .mapToDouble(Double::parseDouble)
+                    .toArray();
+        } catch (NumberFormatException ex) {
+            throw new InvalidRequestException("Quantiles must be numbers between 0 and 1: " + quantiles);
+        }
+        return distributionService.distribution(parseDimensions(groupBy), parseMonth(startMonth), parseMonth(endMonth),
+                category, values, bins);
+    }
+
+    // Recompute the amount sketches from the expense table (recovery, or after changing their accuracy)
+    @PostMapping("/summary/distribution/rebuild")
+    public Map<String, Object> rebuildDistribution() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("sketches", distributionService.rebuild());
+        return response;
+    }
+
+    // Hit/miss/eviction statistics of the read cache
+    @GetMapping("/cache/stats")
+    public Map<String, Object> getCacheStats() {
+        return expenseReadCache.stats();
+    }
+
+    // Server-sent events stream of changes to the expenses matching the filters (created, updated, deleted,
+    // archived, restored). EventSource resends the id of the last event it saw as Last-Event-ID when it
+    // reconnects; lastEventId does the same for clients that cannot set headers.
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount,
+            @RequestParam(required = false) String lastEventId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader) {
+        return changeFeed.subscribe(new ExpenseFilter(category, startDate, endDate, minAmount, maxAmount),
+                lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
+    }
+
+    // Return a single expense by its id; the ETag is its version, so polling an unchanged expense gets a 304
     @GetMapping("/{id}")
-    public Expense getExpenseById(@PathVariable @Min(1) Long id) {
-        return expenseService.getExpenseById(id);
+    public Expense getExpenseById(@PathVariable @Min(1) Long id, WebRequest webRequest,
+                                  HttpServletResponse servletResponse) {
+        Expense expense = expenseService.getExpenseById(id);
+        if (expense != null && notModified(webRequest, servletResponse, etag(expense), expense.getLastModified())) {
+            return null;
+        }
+        return expense;
     }
 
     // Create a new expense record
+    // With expense.ingest.mode=group-commit the write shares a transaction with other concurrent creates;
+    // the response still comes after the commit
     @PostMapping
     public Expense createExpense(@RequestBody Expense expense) {
+        validate(expense);
+        if (expenseIngestService != null) {
+            return expenseIngestService.create(expense);
+        }
         return expenseService.createExpense(expense);
     }
 
     // Update an existing expense record identified by id.
+    // If-Match (the ETag of a previous GET) or a version in the body makes the update conditional: 409 if it changed since.
     @PutMapping("/{id}")
-    public Expense updateExpense(@PathVariable Long id, @RequestBody Expense expense) {
+    public Expense updateExpense(@PathVariable Long id, @RequestBody Expense expense,
+                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        validate(expense);
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            expense.setVersion(versionOf(ifMatch));
+        }
         return expenseService.updateExpense(id, expense);
     }
 
+    // Partial update: only the fields present in the body change, in a single UPDATE statement.
+    // If-Match or a version in the body makes it conditional, as for PUT.
+    @PatchMapping("/{id}")
+    public Expense patchExpense(@PathVariable @Min(1) Long id, @RequestBody ExpensePatch patch,
+                                @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+            patch.setVersion(versionOf(ifMatch));
+        }
+        return expenseMutationService.patch(id, patch);
+    }
+
+    // Many updates and deletes (archives) in one request and one transaction, e.g. a mass recategorization
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Map<String, Object> applyBatch(@RequestBody ExpenseBatchRequest request) {
+        return expenseMutationService.applyBatch(request.getOperations());
+    }
+
+    // Bulk import: a JSON array of expenses, streamed and validated row by row
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ImportResult importExpensesJson(InputStream body) throws IOException {
+        return expenseImportService.importJson(body);
+    }
+
+    // Bulk import: CSV with a description,amount,date,category header
+    @PostMapping(value = "/bulk", consumes = "text/csv")
+    public ImportResult importExpensesCsv(InputStream body) throws IOException {
+        return expenseImportService.importCsv(body);
+    }
+
+    // Bulk import: uploaded .csv or .json file
+    @PostMapping(value = "/bulk", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ImportResult importExpensesFile(@RequestParam("file") MultipartFile file) throws IOException {
+        String name = file.getOriginalFilename() == null ? "" : file.getOriginalFilename().toLowerCase();
+        boolean csv = name.endsWith(".csv") || "text/csv".equalsIgnoreCase(file.getContentType());
+        try (InputStream in = file.getInputStream()) {
+            return csv ? expenseImportService.importCsv(in) : expenseImportService.importJson(in);
+        }
+    }
+
     // Soft delete (archive) an expense by setting the deleted flag.
     @DeleteMapping("/{id}")
     public void deleteExpense(@PathVariable @Min(1) Long id) {
         expenseService.deleteExpense(id);
     }
 
-    // New endpoint to return archived (soft-deleted) expenses
+    // New endpoint to return archived (soft-deleted) expenses, one page at a time.
+    // The body stays a plain array; paging information travels in the X-Total-* headers.
     @GetMapping("/archived")
-    public ResponseEntity<?> getArchivedExpenses() {
-        List<Expense> archivedExpenses = expenseService.getArchivedExpenses();
-        return new ResponseEntity<>(archivedExpenses, HttpStatus.OK);
+    public ResponseEntity<?> getArchivedExpenses(
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "100") @Min(1) @Max(MAX_PAGE_SIZE) int size) {
+        PageRequest pageable = PageRequest.of(page, size, Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id")));
+        Page<Expense> archivedPage = expenseService.getArchivedExpenses(pageable);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-Total-Count", String.valueOf(archivedPage.getTotalElements()));
+        headers.add("X-Total-Pages", String.valueOf(archivedPage.getTotalPages()));
+        return new ResponseEntity<>(archivedPage.getContent(), headers, HttpStatus.OK);
+    }
+
+    // Stream the whole archive as NDJSON or CSV straight from a JDBC cursor, optionally gzip-compressed
+    @GetMapping("/archived/export")
+    public void exportArchivedExpenses(
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletResponse response) throws IOException {
+        ArchiveExportService.Format exportFormat = parseExportFormat(format);
+        String extension = exportFormat == ArchiveExportService.Format.CSV ? "csv" : "ndjson";
+
+        response.setContentType(exportFormat == ArchiveExportService.Format.CSV
+                ? "text/csv;charset=UTF-8"
+                : "application/x-ndjson;charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"archived-expenses." + extension + (gzip ? ".gz" : "") + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            GZIPOutputStream gzipOut = new GZIPOutputStream(out, 8192);
+            archiveExportService.export(gzipOut, exportFormat);
+            gzipOut.finish();
+        } else {
+            archiveExportService.export(out, exportFormat);
+        }
+        out.flush();
+    }
+
+    // Move an archived expense back into the active list
+    @PostMapping("/archived/{id}/restore")
+    public Expense restoreExpense(@PathVariable @Min(1) Long id) {
+        return expenseService.restoreExpense(id);
+    }
+
+    private static ArchiveExportService.Format parseExportFormat(String format) {
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return ArchiveExportService.Format.NDJSON;
+        }
+        if ("csv".equalsIgnoreCase(format)) {
+            return ArchiveExportService.Format.CSV;
+        }
+        throw new InvalidRequestException("format must be 'ndjson' or 'csv', was: " + format);
+    }
+
+    private static boolean isColumnar(String shape) {
+        if ("columnar".equalsIgnoreCase(shape)) {
+            return true;
+        }
+        if (!"rows".equalsIgnoreCase(shape)) {
+            throw new InvalidRequestException("shape must be 'rows' or 'columnar', was: " + shape);
+        }
+        return false;
+    }
+
+    private static void putRows(Map<String, Object> response, List<ExpenseSnapshot> rows, boolean columnar) {
+        if (columnar) {
+            response.put("columns", ExpenseColumns.of(rows));
+        } else {
+            response.put("data", rows);
+        }
+    }
+
+    // Sets the validators and, when the client's copy is current, the 304 status (the caller then returns no body).
+    // no-cache lets browsers keep the response but makes them revalidate it every time; without it Spring
+    // Security would mark the response no-store and nothing could be revalidated.
+    private static boolean notModified(WebRequest webRequest, HttpServletResponse response,
+                                       String etag, Instant lastModified) {
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        return webRequest.checkNotModified(etag, lastModified == null ? -1 : lastModified.toEpochMilli());
+    }
+
+    // "<version>-<last modified millis>": the timestamp keeps ETags unique when the in-memory database is recreated
+    private static String etag(Expense expense) {
+        long lastModified = expense.getLastModified() == null ? 0 : expense.getLastModified().toEpochMilli();
+        return "\"" + expense.getVersion() + "-" + lastModified + "\"";
+    }
+
+    private static Long versionOf(String etag) {
+        String value = etag.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        value = value.replace("\"", "");
+        int dash = value.indexOf('-');
+        try {
+            return Long.valueOf(dash < 0 ? value : value.substring(0, dash));
+        } catch (NumberFormatException ex) {
+            throw new InvalidRequestException("If-Match must be an ETag returned by GET /api/expenses/{id}: " + etag);
+        }
+    }
+
+    private static Set<String> parseDimensions(String groupBy) {
+        return Arrays.stream(groupBy.split(","))
+                .map(String::trim)
+                .filter(dimension -> !dimension.isEmpty())
+                .map(dimension -> dimension.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    private static YearMonth parseMonth(String month) {
+        if (month == null || month.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(month.trim());
+        } catch (DateTimeParseException ex) {
+            throw new InvalidRequestException("Month must be formatted as yyyy-MM: " + month);
+        }
+    }
+
+    // Bean validation before the entity reaches the service. With sequence ids the INSERT (and
+    // Hibernate's own validation) is deferred to commit, where violations would surface as a
+    // generic transaction failure instead of a 400.
+    private void validate(Expense expense) {
+        Set<ConstraintViolation<Expense>> violations = validator.validate(expense);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
     }
 }
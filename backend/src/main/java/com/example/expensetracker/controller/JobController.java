@@ -0,0 +1,31 @@
+package com.example.expensetracker.controller;
+
+import com.example.expensetracker.service.JobRunHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Run history of the scheduled jobs shared by all nodes (see {@link JobRunHistory}).
+ */
+@RestController
+@RequestMapping("/api/jobs")
+@Validated
+public class JobController {
+
+    @Autowired
+    private JobRunHistory jobRunHistory;
+
+    // Most recent runs first: node, shard, start, duration, rows and outcome, e.g. ?job=expense-archiving
+    @GetMapping("/runs")
+    public List<Map<String, Object>> getRuns(
+            @RequestParam(required = false) String job,
+            @RequestParam(defaultValue = "50") @Min(1) @Max(1000) int limit) {
+        return jobRunHistory.recent(job == null || job.trim().isEmpty() ? null : job.trim(), limit);
+    }
+}
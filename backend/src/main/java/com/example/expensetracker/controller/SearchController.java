@@ -0,0 +1,76 @@
+package com.example.expensetracker.controller;
+
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.service.ExpenseSearchIndex;
+import com.example.expensetracker.service.ExpenseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotBlank;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ranked full-text search over expense descriptions, answered by the in-memory {@link ExpenseSearchIndex};
+ * only the page of hits is read from the database. Only present when expense.search.enabled=true.
+ */
+@RestController
+@RequestMapping("/api/expenses/search")
+@Validated
+@ConditionalOnProperty(name = "expense.search.enabled", havingValue = "true")
+public class SearchController {
+
+    @Autowired
+    private ExpenseSearchIndex searchIndex;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Value("${expense.search.max-window:10000}")
+    private int maxWindow;
+
+    // Expenses whose description contains every term of q (a trailing * makes a term a prefix),
+    // best match first, restricted by the same filters as GET /api/expenses
+    @GetMapping
+    public Map<String, Object> search(
+            @RequestParam @NotBlank String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Double minAmount,
+            @RequestParam(required = false) Double maxAmount,
+            @RequestParam(defaultValue = "0") @Min(0) int page,
+            @RequestParam(defaultValue = "10") @Min(1) @Max(1000) int size) {
+        // Ranking keeps the best page * size + size hits in a heap, so deep pages are bounded
+        long window = (long) page * size + size;
+        if (window > maxWindow) {
+            throw new InvalidRequestException("Search results are limited to the first " + maxWindow + " hits");
+        }
+
+        ExpenseSearchIndex.Hits hits = searchIndex.search(q,
+                new ExpenseFilter(category, startDate, endDate, minAmount, maxAmount), page * size, size);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("data", expenseService.getExpenseSnapshots(hits.getIds()));
+        response.put("totalPages", (hits.getTotal() + size - 1) / size);
+        response.put("totalExpenses", hits.getTotal());
+        return response;
+    }
+
+    // Rebuild this instance's index from the expense table (recovery, writes that bypass the services or
+    // went through other instances); administrators only, see SecurityConfig
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("rows", searchIndex.rebuild());
+        return response;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.expensetracker.event;
+
+import com.example.expensetracker.model.ExpenseSnapshot;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Published by the services whenever the set of active expenses changes.
+ * <p>
+ * Every change is described as rows leaving the active set ({@link #getRemoved()}) and rows
+ * entering it ({@link #getAdded()}); an update removes the old image and adds the new one. Derived
+ * data (rollups, caches, indexes) can therefore apply any event with the same two steps.
+ * The event is published inside the writing transaction: plain {@code @EventListener}s take part
+ * in it, while {@code @TransactionalEventListener}s see it only once it has committed.
+ */
+public class ExpenseChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, ARCHIVED, RESTORED
+    }
+
+    private final Type type;
+    private final List<ExpenseSnapshot> removed;
+    private final List<ExpenseSnapshot> added;
+
+    private ExpenseChangeEvent(Type type, List<ExpenseSnapshot> removed, List<ExpenseSnapshot> added) {
+        this.type = type;
+        this.removed = Collections.unmodifiableList(removed);
+        this.added = Collections.unmodifiableList(added);
+    }
+
+    public static ExpenseChangeEvent created(List<ExpenseSnapshot> expenses) {
+        return new ExpenseChangeEvent(Type.CREATED, Collections.emptyList(), expenses);
+    }
+
+    public static ExpenseChangeEvent updated(ExpenseSnapshot before, ExpenseSnapshot after) {
+        return new ExpenseChangeEvent(Type.UPDATED, Collections.singletonList(before), Collections.singletonList(after));
+    }
+
+    // Several updates at once; before.get(i) and after.get(i) are the two images of the same expense
+    public static ExpenseChangeEvent updated(List<ExpenseSnapshot> before, List<ExpenseSnapshot> after) {
+        return new ExpenseChangeEvent(Type.UPDATED, before, after);
+    }
+
+    public static ExpenseChangeEvent deleted(ExpenseSnapshot expense) {
+        return new ExpenseChangeEvent(Type.DELETED, Collections.singletonList(expense), Collections.emptyList());
+    }
+
+    public static ExpenseChangeEvent archived(List<ExpenseSnapshot> expenses) {
+        return new ExpenseChangeEvent(Type.ARCHIVED, expenses, Collections.emptyList());
+    }
+
+    public static ExpenseChangeEvent restored(ExpenseSnapshot expense) {
+        return new ExpenseChangeEvent(Type.RESTORED, Collections.emptyList(), Collections.singletonList(expense));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    // Rows that are no longer active (or the pre-update image of an updated row)
+    public List<ExpenseSnapshot> getRemoved() {
+        return removed;
+    }
+
+    // Rows that became active (or the post-update image of an updated row)
+    public List<ExpenseSnapshot> getAdded() {
+        return added;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.expensetracker.exception;
+
+// Thrown when an operation targets an expense id that does not exist (or is not in the expected state)
+public class ExpenseNotFoundException extends RuntimeException {
+
+    public ExpenseNotFoundException(Long id) {
+        super("Expense not found with id: " + id);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.expensetracker.exception;
+
+// Thrown when the ingest queue cannot take or acknowledge a write in time; mapped to 503 with Retry-After
+public class IngestUnavailableException extends RuntimeException {
+
+    public IngestUnavailableException(String message) {
+        super(message);
+    }
+}
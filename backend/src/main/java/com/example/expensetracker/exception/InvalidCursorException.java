@@ -0,0 +1,13 @@
+package com.example.expensetracker.exception;
+
+// Thrown when a client sends a pagination cursor that was not produced by this server
+public class InvalidCursorException extends InvalidRequestException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+
+    public InvalidCursorException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.expensetracker.exception;
+
+// Thrown when a bulk import payload is structurally unreadable (as opposed to individual invalid rows)
+public class InvalidImportException extends InvalidRequestException {
+
+    public InvalidImportException(String message) {
+        super(message);
+    }
+
+    public InvalidImportException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
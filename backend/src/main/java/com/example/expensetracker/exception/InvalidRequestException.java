@@ -0,0 +1,13 @@
+package com.example.expensetracker.exception;
+
+// Base class for client errors in request parameters or payloads; mapped to 400 Bad Request
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+    public InvalidRequestException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.expensetracker.model;
+
+import com.example.expensetracker.service.CategoryRegistry;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/**
+ * Maps the category name exposed by the entities to the category_id column through the
+ * in-memory {@link CategoryRegistry}. It only looks ids up: the name has been registered by
+ * {@link CategoryListener} before the row is written. Hibernate obtains the converter from the
+ * Spring context, so the registry is injected.
+ */
+@Converter
+public class CategoryConverter implements AttributeConverter<String, Integer> {
+
+    private final CategoryRegistry categoryRegistry;
+
+    public CategoryConverter(CategoryRegistry categoryRegistry) {
+        this.categoryRegistry = categoryRegistry;
+    }
+
+    @Override
+    public Integer convertToDatabaseColumn(String category) {
+        return category == null ? null : categoryRegistry.idOf(category);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer categoryId) {
+        return categoryId == null ? null : categoryRegistry.nameOf(categoryId);
+    }
+}
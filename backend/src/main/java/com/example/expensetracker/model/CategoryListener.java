@@ -0,0 +1,28 @@
+package com.example.expensetracker.model;
+
+import com.example.expensetracker.service.CategoryRegistry;
+
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+
+/**
+ * Registers the category of an expense before it is written, so that {@link CategoryConverter} only
+ * has to look ids up. Runs in the writing transaction, on its connection (see {@link CategoryRegistry}).
+ * Hibernate obtains the listener from the Spring context, so the registry is injected.
+ */
+public class CategoryListener {
+
+    private final CategoryRegistry categoryRegistry;
+
+    public CategoryListener(CategoryRegistry categoryRegistry) {
+        this.categoryRegistry = categoryRegistry;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void register(Expense expense) {
+        if (expense.getCategory() != null) {
+            categoryRegistry.register(expense.getCategory());
+        }
+    }
+}
@@ -5,15 +5,36 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.EntityListeners;
+import javax.persistence.Index;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import javax.validation.constraints.PastOrPresent;
 import javax.validation.constraints.Positive;
+import java.time.Instant;
 import java.time.LocalDate;
 
+// Every list query filters on the soft delete flag first, so each index leads with it.
+// (deleted, date, id) serves date ranges, archiving and the keyset ordering; the other two
+// serve category and amount filters. Categories are stored as a small integer key (category_id).
 @Entity
+@EntityListeners(CategoryListener.class)
+@Table(indexes = {
+        @Index(name = "idx_expense_deleted_date_id", columnList = "deleted, date, id"),
+        @Index(name = "idx_expense_deleted_category_date", columnList = "deleted, category_id, date"),
+        @Index(name = "idx_expense_deleted_amount", columnList = "deleted, amount")
+})
 public class Expense {
 
+    // Pooled sequence ids: Hibernate reserves allocationSize ids per sequence call and, unlike
+    // IDENTITY, does not need to execute each INSERT immediately, so inserts can be JDBC-batched.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "expense_seq")
+    @SequenceGenerator(name = "expense_seq", sequenceName = "expense_seq", allocationSize = 50)
     private Long id;
 
     private String description;
@@ -27,12 +48,25 @@ public class Expense {
     private LocalDate date;
 
     // Category for filtering and display; fill this field for data testing and demo purposes.
+    // The name is exposed as before, but the row only stores the id of the category dimension.
+    @Convert(converter = CategoryConverter.class)
+    @Column(name = "category_id")
     private String category;
 
     // Soft delete flag; if true, the expense is archived (soft-deleted)
     @Column(nullable = false)
     private boolean deleted = false;
 
+    // Optimistic-locking version, also the basis of the expense's ETag. Incremented by Hibernate on every
+    // update and by the set-based archive/restore statements, so it changes whenever the row does.
+    // Null in a request body means "no expectation" rather than version 0.
+    @Version
+    private Long version;
+
+    // Time of the last change, sent as Last-Modified
+    @Column(name = "last_modified")
+    private Instant lastModified;
+
     // Constructors
 
     public Expense() {
@@ -96,4 +130,26 @@ public class Expense {
     public void setDeleted(boolean deleted) {
         this.deleted = deleted;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = Instant.now();
+    }
 }
@@ -0,0 +1,115 @@
+package com.example.expensetracker.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * One non-empty bucket of the amount sketch of a category and calendar month: the number of active
+ * expenses whose amount falls into the bucket. Maintained incrementally by ExpenseDistributionService;
+ * like the rollups, expenses without a date are left out and those without a category use category id 0.
+ */
+@Entity
+@Table(name = "expense_amount_sketch")
+@IdClass(ExpenseAmountSketch.Key.class)
+public class ExpenseAmountSketch {
+
+    @Id
+    @Column(name = "category_id")
+    private int categoryId;
+
+    @Id
+    @Column(name = "period_year")
+    private int periodYear;
+
+    @Id
+    @Column(name = "period_month")
+    private int periodMonth;
+
+    // Logarithmic bucket index, see AmountSketch
+    @Id
+    @Column(name = "bucket")
+    private int bucket;
+
+    @Column(name = "bucket_count", nullable = false)
+    private long bucketCount;
+
+    public ExpenseAmountSketch() {
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public int getPeriodYear() {
+        return periodYear;
+    }
+
+    public int getPeriodMonth() {
+        return periodMonth;
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public long getBucketCount() {
+        return bucketCount;
+    }
+
+    public static class Key implements Serializable {
+
+        private int categoryId;
+        private int periodYear;
+        private int periodMonth;
+        private int bucket;
+
+        public Key() {
+        }
+
+        public Key(int categoryId, int periodYear, int periodMonth, int bucket) {
+            this.categoryId = categoryId;
+            this.periodYear = periodYear;
+            this.periodMonth = periodMonth;
+            this.bucket = bucket;
+        }
+
+        public int getCategoryId() {
+            return categoryId;
+        }
+
+        public int getPeriodYear() {
+            return periodYear;
+        }
+
+        public int getPeriodMonth() {
+            return periodMonth;
+        }
+
+        public int getBucket() {
+            return bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return categoryId == key.categoryId && periodYear == key.periodYear && periodMonth == key.periodMonth
+                    && bucket == key.bucket;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(categoryId, periodYear, periodMonth, bucket);
+        }
+    }
+}
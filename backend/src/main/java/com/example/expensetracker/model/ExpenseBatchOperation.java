@@ -0,0 +1,40 @@
+package com.example.expensetracker.model;
+
+/**
+ * One entry of POST /api/expenses/batch: {@code op} is "update" (the patch fields of the superclass are
+ * applied) or "delete"/"archive" (the expense is archived, as DELETE /api/expenses/{id} does).
+ */
+public class ExpenseBatchOperation extends ExpensePatch {
+
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String ARCHIVE = "archive";
+
+    private String op;
+
+    private Long id;
+
+    public String getOp() {
+        return op;
+    }
+
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public boolean isUpdate() {
+        return UPDATE.equalsIgnoreCase(op);
+    }
+
+    public boolean isArchive() {
+        return DELETE.equalsIgnoreCase(op) || ARCHIVE.equalsIgnoreCase(op);
+    }
+}
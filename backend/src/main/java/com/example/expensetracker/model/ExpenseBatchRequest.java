@@ -0,0 +1,18 @@
+package com.example.expensetracker.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Body of POST /api/expenses/batch; the operations are applied in one transaction, all or nothing
+public class ExpenseBatchRequest {
+
+    private List<ExpenseBatchOperation> operations = new ArrayList<>();
+
+    public List<ExpenseBatchOperation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<ExpenseBatchOperation> operations) {
+        this.operations = operations;
+    }
+}
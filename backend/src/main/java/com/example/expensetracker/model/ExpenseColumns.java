@@ -0,0 +1,63 @@
+package com.example.expensetracker.model;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Column-oriented form of a page of expenses ({@code shape=columnar} on GET /api/expenses): one array per
+ * field instead of one object per row. Field names are written once per page instead of once per row, and
+ * runs of similar values (dates, categories) sit next to each other, which also helps response compression.
+ * Row i is made of element i of every array.
+ */
+@JsonPropertyOrder({"id", "description", "amount", "date", "category"})
+public final class ExpenseColumns {
+
+    private final long[] id;
+    private final String[] description;
+    private final Double[] amount;
+    private final LocalDate[] date;
+    private final String[] category;
+
+    private ExpenseColumns(int size) {
+        id = new long[size];
+        description = new String[size];
+        amount = new Double[size];
+        date = new LocalDate[size];
+        category = new String[size];
+    }
+
+    public static ExpenseColumns of(List<ExpenseSnapshot> rows) {
+        ExpenseColumns columns = new ExpenseColumns(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            ExpenseSnapshot row = rows.get(i);
+            columns.id[i] = row.getId();
+            columns.description[i] = row.getDescription();
+            columns.amount[i] = row.getAmount();
+            columns.date[i] = row.getDate();
+            columns.category[i] = row.getCategory();
+        }
+        return columns;
+    }
+
+    public long[] getId() {
+        return id;
+    }
+
+    public String[] getDescription() {
+        return description;
+    }
+
+    public Double[] getAmount() {
+        return amount;
+    }
+
+    public LocalDate[] getDate() {
+        return date;
+    }
+
+    public String[] getCategory() {
+        return category;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.expensetracker.model;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.criteria.Predicate;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Immutable set of the list filters accepted by GET /api/expenses.
+ * Every filter is optional; a null (or blank category) value means "no restriction".
+ */
+public class ExpenseFilter {
+
+    private final String category;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final Double minAmount;
+    private final Double maxAmount;
+
+    public ExpenseFilter(String category, LocalDate startDate, LocalDate endDate, Double minAmount, Double maxAmount) {
+        this.category = category != null && !category.trim().isEmpty() ? category : null;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+    }
+
+    // Specification matching active (non-deleted) expenses that satisfy every filter that is set
+    public Specification<Expense> toSpecification() {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            // Only include non-deleted expenses (i.e., soft delete flag is false)
+            predicates.add(cb.equal(root.get("deleted"), false));
+
+            if (category != null) {
+                predicates.add(cb.equal(root.get("category"), category));
+            }
+            if (startDate != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("date"), startDate));
+            }
+            if (endDate != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("date"), endDate));
+            }
+            if (minAmount != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("amount"), minAmount));
+            }
+            if (maxAmount != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("amount"), maxAmount));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // In-memory equivalent of toSpecification() for an active expense
+    public boolean matches(ExpenseSnapshot expense) {
+        if (category != null && !category.equals(expense.getCategory())) {
+            return false;
+        }
+        if (startDate != null && (expense.getDate() == null || expense.getDate().isBefore(startDate))) {
+            return false;
+        }
+        if (endDate != null && (expense.getDate() == null || expense.getDate().isAfter(endDate))) {
+            return false;
+        }
+        if (minAmount != null && (expense.getAmount() == null || expense.getAmount() < minAmount)) {
+            return false;
+        }
+        return maxAmount == null || (expense.getAmount() != null && expense.getAmount() <= maxAmount);
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public Double getMinAmount() {
+        return minAmount;
+    }
+
+    public Double getMaxAmount() {
+        return maxAmount;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExpenseFilter)) {
+            return false;
+        }
+        ExpenseFilter that = (ExpenseFilter) o;
+        return Objects.equals(category, that.category)
+                && Objects.equals(startDate, that.startDate)
+                && Objects.equals(endDate, that.endDate)
+                && Objects.equals(minAmount, that.minAmount)
+                && Objects.equals(maxAmount, that.maxAmount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(category, startDate, endDate, minAmount, maxAmount);
+    }
+}
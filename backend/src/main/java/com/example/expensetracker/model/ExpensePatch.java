@@ -0,0 +1,79 @@
+package com.example.expensetracker.model;
+
+import javax.validation.constraints.PastOrPresent;
+import javax.validation.constraints.Positive;
+import java.time.LocalDate;
+
+/**
+ * Body of PATCH /api/expenses/{id} (and of update operations in a batch): only the fields that are
+ * present change. A field sent as null counts as not sent. {@code version}, when present, makes the
+ * change conditional on the expense still having that version.
+ */
+public class ExpensePatch {
+
+    private String description;
+
+    @Positive(message = "Amount must be greater than 0")
+    private Double amount;
+
+    @PastOrPresent(message = "Date must not be in the future")
+    private LocalDate date;
+
+    private String category;
+
+    private Long version;
+
+    // True when no field would change
+    public boolean isEmpty() {
+        return description == null && amount == null && date == null && category == null;
+    }
+
+    // The expense as it is after this patch
+    public ExpenseSnapshot applyTo(ExpenseSnapshot expense) {
+        return new ExpenseSnapshot(expense.getId(),
+                description != null ? description : expense.getDescription(),
+                amount != null ? amount : expense.getAmount(),
+                date != null ? date : expense.getDate(),
+                category != null ? category : expense.getCategory());
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(Double amount) {
+        this.amount = amount;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public void setDate(LocalDate date) {
+        this.date = date;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.expensetracker.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Pre-aggregated count and total of active expenses per category and calendar month.
+ * Maintained incrementally by ExpenseRollupService; expenses without a date are not rolled up,
+ * and expenses without a category are counted under category id 0.
+ */
+@Entity
+@Table(name = "expense_rollup")
+@IdClass(ExpenseRollup.Key.class)
+public class ExpenseRollup {
+
+    @Id
+    @Column(name = "category_id")
+    private int categoryId;
+
+    @Id
+    @Column(name = "period_year")
+    private int periodYear;
+
+    @Id
+    @Column(name = "period_month")
+    private int periodMonth;
+
+    @Column(name = "expense_count", nullable = false)
+    private long expenseCount;
+
+    // Kept in cents so incremental additions and subtractions never drift
+    @Column(name = "total_cents", nullable = false)
+    private long totalCents;
+
+    public ExpenseRollup() {
+    }
+
+    public int getCategoryId() {
+        return categoryId;
+    }
+
+    public int getPeriodYear() {
+        return periodYear;
+    }
+
+    public int getPeriodMonth() {
+        return periodMonth;
+    }
+
+    public long getExpenseCount() {
+        return expenseCount;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    public static class Key implements Serializable {
+
+        private int categoryId;
+        private int periodYear;
+        private int periodMonth;
+
+        public Key() {
+        }
+
+        public Key(int categoryId, int periodYear, int periodMonth) {
+            this.categoryId = categoryId;
+            this.periodYear = periodYear;
+            this.periodMonth = periodMonth;
+        }
+
+        public int getCategoryId() {
+            return categoryId;
+        }
+
+        public int getPeriodYear() {
+            return periodYear;
+        }
+
+        public int getPeriodMonth() {
+            return periodMonth;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return categoryId == key.categoryId && periodYear == key.periodYear && periodMonth == key.periodMonth;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(categoryId, periodYear, periodMonth);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.expensetracker.model;
+
+import java.time.LocalDate;
+
+/**
+ * Immutable copy of the business fields of an expense, detached from any persistence context.
+ * Used as the payload of change events and as a constructor-expression target for JPQL queries.
+ */
+public final class ExpenseSnapshot {
+
+    private final Long id;
+    private final String description;
+    private final Double amount;
+    private final LocalDate date;
+    private final String category;
+
+    public ExpenseSnapshot(Long id, String description, Double amount, LocalDate date, String category) {
+        this.id = id;
+        this.description = description;
+        this.amount = amount;
+        this.date = date;
+        this.category = category;
+    }
+
+    public static ExpenseSnapshot of(Expense expense) {
+        return new ExpenseSnapshot(expense.getId(), expense.getDescription(), expense.getAmount(),
+                expense.getDate(), expense.getCategory());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public Double getAmount() {
+        return amount;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+}
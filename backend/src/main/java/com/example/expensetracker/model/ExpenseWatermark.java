@@ -0,0 +1,42 @@
+package com.example.expensetracker.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Single-row change counter of the active expense set, maintained by ExpenseWatermarkService.
+ * Mapped only so the schema is generated with the rest; it is read and written with plain SQL.
+ */
+@Entity
+@Table(name = "expense_watermark")
+public class ExpenseWatermark {
+
+    public static final int ROW_ID = 1;
+
+    @Id
+    private int id;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "modified_at", nullable = false)
+    private Instant modifiedAt;
+
+    public ExpenseWatermark() {
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getModifiedAt() {
+        return modifiedAt;
+    }
+}
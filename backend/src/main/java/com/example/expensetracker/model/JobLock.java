@@ -0,0 +1,56 @@
+package com.example.expensetracker.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * Lock of a scheduled job shared by every node, held by {@code owner} until {@code lockedUntil}.
+ * Mapped only so the schema is generated with the rest; JobLockService reads and writes it with plain SQL.
+ */
+@Entity
+@Table(name = "job_lock")
+public class JobLock {
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Column(length = 128)
+    private String owner;
+
+    // Written by each claim; renewals and releases must present it
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "locked_at")
+    private Instant lockedAt;
+
+    @Column(name = "locked_until", nullable = false)
+    private Instant lockedUntil;
+
+    public JobLock() {
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public Instant getLockedAt() {
+        return lockedAt;
+    }
+
+    public Instant getLockedUntil() {
+        return lockedUntil;
+    }
+}
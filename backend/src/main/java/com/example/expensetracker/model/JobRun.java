@@ -0,0 +1,95 @@
+package com.example.expensetracker.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * History of scheduled job executions: one row per run of a locked job, or per shard of a sharded run
+ * (plus one for planning the shards). Written by JobRunHistory with plain SQL.
+ */
+@Entity
+@Table(name = "job_run", indexes = @Index(name = "idx_job_run_job_started", columnList = "job_name, started_at"))
+public class JobRun {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "job_name", nullable = false, length = 64)
+    private String jobName;
+
+    @Column(name = "node_id", nullable = false, length = 128)
+    private String nodeId;
+
+    // Null for unsharded runs and for planning
+    @Column(name = "shard_index")
+    private Integer shardIndex;
+
+    @Column(name = "started_at", nullable = false)
+    private Instant startedAt;
+
+    @Column(name = "finished_at", nullable = false)
+    private Instant finishedAt;
+
+    @Column(name = "duration_ms", nullable = false)
+    private long durationMs;
+
+    @Column(name = "row_count", nullable = false)
+    private long rowCount;
+
+    // SUCCEEDED, FAILED or LEASE_LOST
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(length = 1000)
+    private String message;
+
+    public JobRun() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public Integer getShardIndex() {
+        return shardIndex;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
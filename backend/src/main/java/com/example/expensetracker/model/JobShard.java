@@ -0,0 +1,154 @@
+package com.example.expensetracker.model;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * One id range of a sharded job run. Nodes claim PENDING shards (or RUNNING ones whose lease has expired),
+ * renew the lease while they work and mark the shard DONE, or FAILED once max-attempts claims have failed.
+ * Mapped only so the schema is generated with the rest; JobLockService reads and writes it with plain SQL.
+ */
+@Entity
+@Table(name = "job_shard")
+@IdClass(JobShard.Key.class)
+public class JobShard {
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    // Identifies the run; for archiving, the threshold date
+    @Id
+    @Column(name = "run_key", length = 64)
+    private String runKey;
+
+    @Id
+    @Column(name = "shard_index")
+    private int shardIndex;
+
+    @Column(name = "from_id", nullable = false)
+    private long fromId;
+
+    @Column(name = "to_id", nullable = false)
+    private long toId;
+
+    @Column(nullable = false, length = 16)
+    private String status;
+
+    @Column(length = 128)
+    private String owner;
+
+    // Written by each claim; renewals and releases must present it
+    @Column(name = "claim_token", length = 36)
+    private String claimToken;
+
+    @Column(name = "lease_until")
+    private Instant leaseUntil;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    @Column(name = "row_count", nullable = false)
+    private long rowCount;
+
+    @Column(name = "started_at")
+    private Instant startedAt;
+
+    @Column(name = "finished_at")
+    private Instant finishedAt;
+
+    public JobShard() {
+    }
+
+    public String getJobName() {
+        return jobName;
+    }
+
+    public String getRunKey() {
+        return runKey;
+    }
+
+    public int getShardIndex() {
+        return shardIndex;
+    }
+
+    public long getFromId() {
+        return fromId;
+    }
+
+    public long getToId() {
+        return toId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public Instant getLeaseUntil() {
+        return leaseUntil;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public Instant getStartedAt() {
+        return startedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public static class Key implements Serializable {
+
+        private String jobName;
+        private String runKey;
+        private int shardIndex;
+
+        public Key() {
+        }
+
+        public Key(String jobName, String runKey, int shardIndex) {
+            this.jobName = jobName;
+            this.runKey = runKey;
+            this.shardIndex = shardIndex;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return shardIndex == key.shardIndex && Objects.equals(jobName, key.jobName)
+                    && Objects.equals(runKey, key.runKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jobName, runKey, shardIndex);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.expensetracker.model;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * One stripe of the lock that serializes summary rebuilds against the writers of summary deltas.
+ * Mapped only so the schema is generated with the rest; SummaryLock reads and writes it with plain SQL.
+ */
+@Entity
+@Table(name = "summary_lock")
+public class SummaryLockStripe {
+
+    @Id
+    private int stripe;
+
+    public SummaryLockStripe() {
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.ArchivedExpense;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+
+public interface ArchivedExpenseRepository extends JpaRepository<ArchivedExpense, Long> {
+
+    // Copy hot rows into the archive table in one statement; the year of the expense date is the partition key.
+    // The version moves on with the row (and is bumped by each move), so ETags never repeat for an id.
+    @Modifying
+    @Query(value = "INSERT INTO expense_archive (id, description, amount, date, category_id, archive_year, archived_on, "
+            + "version, last_modified) "
+            + "SELECT id, description, amount, date, category_id, YEAR(date), CURRENT_DATE, "
+            + "COALESCE(version, 0) + 1, CURRENT_TIMESTAMP "
+            + "FROM expense WHERE id IN (:ids)", nativeQuery = true)
+    int copyFromExpenses(@Param("ids") Collection<Long> ids);
+
+    // Copy an archived row back into the hot table under its original id
+    @Modifying
+    @Query(value = "INSERT INTO expense (id, description, amount, date, category_id, deleted, version, last_modified) "
+            + "SELECT id, description, amount, date, category_id, FALSE, COALESCE(version, 0) + 1, CURRENT_TIMESTAMP "
+            + "FROM expense_archive WHERE id = :id", nativeQuery = true)
+    int copyToExpenses(@Param("id") Long id);
+}
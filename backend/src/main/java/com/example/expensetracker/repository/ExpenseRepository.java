@@ -1,12 +1,23 @@
 package com.example.expensetracker.repository;
 
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
-public interface ExpenseRepository extends JpaRepository<Expense, Long>, JpaSpecificationExecutor<Expense> {
+public interface ExpenseRepository extends JpaRepository<Expense, Long>, JpaSpecificationExecutor<Expense>,
+        ExpenseRepositoryCustom {
 
     // Retrieve only active (non-deleted) expenses
     List<Expense> findByDeletedFalse();
@@ -14,6 +25,54 @@ public interface ExpenseRepository extends JpaRepository<Expense, Long>, JpaSpec
     // Retrieve archived (soft deleted) expenses
     List<Expense> findByDeletedTrue();
 
+    Page<Expense> findByDeletedTrue(Pageable pageable);
+
     // Retrieve active expenses that are older than the given date (for automatic archiving, etc.)
     List<Expense> findByDeletedFalseAndDateBefore(LocalDate date);
+
+    // Next chunk of active expenses older than the threshold, in (date, id) index order. The rows are locked
+    // until the archiving transaction ends, so the snapshots are exactly the rows it archives: a row deleted
+    // or updated meanwhile is read again once that change commits (and skipped if no longer active).
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.example.expensetracker.model.ExpenseSnapshot(e.id, e.description, e.amount, e.date, e.category) "
+            + "from Expense e where e.deleted = false and e.date < :threshold order by e.date, e.id")
+    List<ExpenseSnapshot> findArchivable(@Param("threshold") LocalDate threshold, Pageable pageable);
+
+    // Same, restricted to one id range (a shard of a sharded archiving run)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select new com.example.expensetracker.model.ExpenseSnapshot(e.id, e.description, e.amount, e.date, e.category) "
+            + "from Expense e where e.deleted = false and e.date < :threshold and e.id between :fromId and :toId "
+            + "order by e.date, e.id")
+    List<ExpenseSnapshot> findArchivableInRange(@Param("threshold") LocalDate threshold, @Param("fromId") long fromId,
+                                                @Param("toId") long toId, Pageable pageable);
+
+    // Bounds of the ids to archive, split into shards by a sharded archiving run
+    @Query("select min(e.id) from Expense e where e.deleted = false and e.date < :threshold")
+    Long findMinArchivableId(@Param("threshold") LocalDate threshold);
+
+    @Query("select max(e.id) from Expense e where e.deleted = false and e.date < :threshold")
+    Long findMaxArchivableId(@Param("threshold") LocalDate threshold);
+
+    // Archive a chunk of expenses with one set-based UPDATE instead of loading and saving each entity
+    @Modifying
+    @Query("update Expense e set e.deleted = true, e.version = e.version + 1, e.lastModified = current_timestamp "
+            + "where e.id in :ids and e.deleted = false")
+    int markDeleted(@Param("ids") Collection<Long> ids);
+
+    // Ids of the next chunk of soft-deleted rows still held in the hot table (cold-storage migration), locked
+    // so that a concurrent restore cannot make one of them active again before it is moved
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e.id from Expense e where e.deleted = true order by e.id")
+    List<Long> findSoftDeletedIds(Pageable pageable);
+
+    // Bring a soft-deleted expense back into the active set
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Expense e set e.deleted = false, e.version = e.version + 1, e.lastModified = current_timestamp "
+            + "where e.id = :id and e.deleted = true")
+    int markRestored(@Param("id") Long id);
+
+    // Remove rows that have been copied into cold storage
+    @Modifying
+    @Query("delete from Expense e where e.id in :ids")
+    int deleteByIds(@Param("ids") Collection<Long> ids);
 }
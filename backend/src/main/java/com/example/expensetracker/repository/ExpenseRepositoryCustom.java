@@ -0,0 +1,21 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+// Query fragments that Spring Data derived queries cannot express, implemented in ExpenseRepositoryImpl
+public interface ExpenseRepositoryCustom {
+
+    // Page of matching expenses selected straight into snapshots: only the listed columns are read and no
+    // entity is hydrated, registered in the persistence context or dirty-checked
+    Page<ExpenseSnapshot> findSnapshots(Specification<Expense> spec, Pageable pageable);
+
+    // At most `limit` matching expenses in the given order, projected the same way, without issuing a COUNT query
+    List<ExpenseSnapshot> findSnapshotsLimited(Specification<Expense> spec, Sort sort, int limit);
+}
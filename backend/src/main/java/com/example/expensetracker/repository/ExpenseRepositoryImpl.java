@@ -0,0 +1,75 @@
+package com.example.expensetracker.repository;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.List;
+
+public class ExpenseRepositoryImpl implements ExpenseRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<ExpenseSnapshot> findSnapshots(Specification<Expense> spec, Pageable pageable) {
+        TypedQuery<ExpenseSnapshot> query = snapshotQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        // The COUNT query is skipped when the page itself shows the total (first page not full, or last page)
+        return PageableExecutionUtils.getPage(query.getResultList(), pageable, () -> countMatching(spec));
+    }
+
+    @Override
+    public List<ExpenseSnapshot> findSnapshotsLimited(Specification<Expense> spec, Sort sort, int limit) {
+        return snapshotQuery(spec, sort)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private TypedQuery<ExpenseSnapshot> snapshotQuery(Specification<Expense> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ExpenseSnapshot> query = cb.createQuery(ExpenseSnapshot.class);
+        Root<Expense> root = query.from(Expense.class);
+        query.select(cb.construct(ExpenseSnapshot.class,
+                root.get("id"), root.get("description"), root.get("amount"), root.get("date"), root.get("category")));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        }
+        return entityManager.createQuery(query);
+    }
+
+    // Not count(Specification): Spring Data would route JpaSpecificationExecutor.count to a fragment method
+    // with that signature
+    private long countMatching(Specification<Expense> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Expense> root = query.from(Expense.class);
+        query.select(cb.count(root));
+
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
@@ -0,0 +1,190 @@
+package com.example.expensetracker.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Issues and verifies the short-lived bearer tokens handed out by /api/auth/login.
+ * <p>
+ * A token is {@code base64url(username|expiry-epoch-seconds|authority,...)} followed by a dot and the
+ * base64url HMAC-SHA256 of that payload. Verifying one is a single HMAC over a few dozen bytes: no password
+ * hash and no user lookup, which is what makes it cheap compared with HTTP Basic against a BCrypt hash.
+ * The flip side is that a token stays valid until it expires, so the lifetime (expense.auth.token-ttl) is short.
+ * <p>
+ * expense.auth.token-secret is required, so that tokens survive restarts and are accepted by every node.
+ * Only under the "dev" profile may it be left empty; a random key is then generated at startup.
+ */
+@Component
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final char SEPARATOR = '|';
+    private static final String DEV_PROFILE = "dev";
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Autowired
+    public TokenService(@Value("${expense.auth.token-secret:}") String secret,
+                        @Value("${expense.auth.token-ttl:PT15M}") Duration ttl,
+                        Environment environment) {
+        this(configuredKey(secret, environment), ttl, Clock.systemUTC());
+    }
+
+    public TokenService(String secret, Duration ttl) {
+        this(secret, ttl, Clock.systemUTC());
+    }
+
+    public TokenService(String secret, Duration ttl, Clock clock) {
+        this(requireSecret(secret), ttl, clock);
+    }
+
+    private TokenService(byte[] keyBytes, Duration ttl, Clock clock) {
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    private static byte[] configuredKey(String secret, Environment environment) {
+        if (secret != null && !secret.isEmpty()) {
+            return secret.getBytes(StandardCharsets.UTF_8);
+        }
+        if (!environment.acceptsProfiles(Profiles.of(DEV_PROFILE))) {
+            throw new IllegalStateException("expense.auth.token-secret must be set: without it tokens would not "
+                    + "survive a restart or be accepted by other nodes (only the dev profile may leave it empty)");
+        }
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        log.warn("No expense.auth.token-secret configured; tokens are signed with a random per-process key");
+        return keyBytes;
+    }
+
+    private static byte[] requireSecret(String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("Token secret must not be empty");
+        }
+        return secret.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public Token issue(String username, Collection<String> authorities) {
+        if (username.indexOf(SEPARATOR) >= 0) {
+            throw new IllegalArgumentException("Username must not contain '" + SEPARATOR + "'");
+        }
+        Instant expiresAt = clock.instant().plus(ttl).truncatedTo(ChronoUnit.SECONDS);
+        StringBuilder payload = new StringBuilder(username).append(SEPARATOR).append(expiresAt.getEpochSecond());
+        for (String authority : authorities) {
+            payload.append(SEPARATOR).append(authority);
+        }
+        byte[] payloadBytes = payload.toString().getBytes(StandardCharsets.UTF_8);
+        Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+        String value = encoder.encodeToString(payloadBytes) + '.' + encoder.encodeToString(sign(payloadBytes));
+        return new Token(value, username, new ArrayList<>(authorities), expiresAt);
+    }
+
+    // The token's claims, or null if it is malformed, forged or expired
+    public Token verify(String value) {
+        int dot = value.indexOf('.');
+        if (dot <= 0 || dot == value.length() - 1) {
+            return null;
+        }
+        byte[] payloadBytes;
+        byte[] signature;
+        try {
+            Base64.Decoder decoder = Base64.getUrlDecoder();
+            payloadBytes = decoder.decode(value.substring(0, dot));
+            signature = decoder.decode(value.substring(dot + 1));
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+        // Constant-time comparison, so response timing does not reveal how much of a forged signature matched
+        if (!MessageDigest.isEqual(sign(payloadBytes), signature)) {
+            return null;
+        }
+        String[] fields = new String(payloadBytes, StandardCharsets.UTF_8).split("\\|", -1);
+        if (fields.length < 2) {
+            return null;
+        }
+        Instant expiresAt;
+        try {
+            expiresAt = Instant.ofEpochSecond(Long.parseLong(fields[1]));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        if (!clock.instant().isBefore(expiresAt)) {
+            return null;
+        }
+        List<String> authorities = new ArrayList<>(fields.length - 2);
+        for (int i = 2; i < fields.length; i++) {
+            authorities.add(fields[i]);
+        }
+        return new Token(value, fields[0], authorities, expiresAt);
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    private byte[] sign(byte[] payload) {
+        try {
+            // Mac instances are not thread-safe; creating one is far cheaper than the password check it replaces
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException("Could not sign token", ex);
+        }
+    }
+
+    public static final class Token {
+        private final String value;
+        private final String username;
+        private final List<String> authorities;
+        private final Instant expiresAt;
+
+        Token(String value, String username, List<String> authorities, Instant expiresAt) {
+            this.value = value;
+            this.username = username;
+            this.authorities = Collections.unmodifiableList(authorities);
+            this.expiresAt = expiresAt;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public List<String> getAuthorities() {
+            return authorities;
+        }
+
+        public Instant getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
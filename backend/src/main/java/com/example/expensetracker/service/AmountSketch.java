@@ -0,0 +1,159 @@
+package com.example.expensetracker.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mergeable quantile sketch of amounts with a relative error bound (the DDSketch bucketing).
+ * <p>
+ * Amounts are counted in logarithmic buckets: bucket {@code i} holds amounts in
+ * {@code (gamma^(i-1), gamma^i]} cents, with {@code gamma = (1 + a) / (1 - a)} for relative accuracy
+ * {@code a}. Any quantile is answered with the representative value of the bucket holding that rank, which
+ * is within {@code a} of the true amount (plus half a cent of rounding). A sketch is just bucket counts, so
+ * sketches with the same accuracy merge by adding counts, and removing an expense is a decrement: unlike
+ * sampling sketches, updates and archiving are exact. With a = 1% any amount up to a billion needs at most
+ * about 1,300 buckets, however many expenses were counted.
+ * <p>
+ * Not thread-safe; callers synchronize.
+ */
+public final class AmountSketch {
+
+    private final double relativeAccuracy;
+    private final double gamma;
+    private final double logGamma;
+    // counts[i] is the count of bucket offset + i
+    private long[] counts = new long[0];
+    private int offset;
+    private long count;
+
+    public AmountSketch(double relativeAccuracy) {
+        if (!(relativeAccuracy > 0 && relativeAccuracy < 1)) {
+            throw new IllegalArgumentException("Relative accuracy must be between 0 and 1: " + relativeAccuracy);
+        }
+        this.relativeAccuracy = relativeAccuracy;
+        this.gamma = (1 + relativeAccuracy) / (1 - relativeAccuracy);
+        this.logGamma = Math.log(gamma);
+    }
+
+    // Bucket of an amount in cents; a cent or less goes to bucket 0
+    public int bucketOf(long cents) {
+        return cents <= 1 ? 0 : (int) Math.ceil(Math.log(cents) / logGamma);
+    }
+
+    public void add(long cents) {
+        addToBucket(bucketOf(cents), 1);
+    }
+
+    // Adds (or, with a negative delta, removes) expenses in a bucket
+    public void addToBucket(int bucket, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        if (counts.length == 0) {
+            counts = new long[8];
+            offset = bucket;
+        } else if (bucket < offset || bucket >= offset + counts.length) {
+            int low = Math.min(offset, bucket);
+            int high = Math.max(offset + counts.length, bucket + 1);
+            long[] grown = new long[Math.max(high - low, counts.length + counts.length / 2)];
+            System.arraycopy(counts, 0, grown, offset - low, counts.length);
+            counts = grown;
+            offset = low;
+        }
+        counts[bucket - offset] += delta;
+        count += delta;
+    }
+
+    public void merge(AmountSketch other) {
+        if (other.relativeAccuracy != relativeAccuracy) {
+            throw new IllegalArgumentException("Only sketches with the same relative accuracy can be merged");
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            addToBucket(other.offset + i, other.counts[i]);
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count <= 0;
+    }
+
+    // Amount at quantile q (0..1), or null for an empty sketch
+    public BigDecimal quantile(double q) {
+        if (isEmpty()) {
+            return null;
+        }
+        long rank = (long) Math.floor(q * (count - 1));
+        long seen = 0;
+        int last = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] <= 0) {
+                continue;
+            }
+            seen += counts[i];
+            last = i;
+            if (seen > rank) {
+                break;
+            }
+        }
+        return amount(representative(offset + last));
+    }
+
+    /**
+     * Up to {@code bins} histogram bins ("from", "to", "count") covering the non-empty buckets. Each bin joins
+     * the same number of adjacent buckets, so bins are equally wide on a logarithmic scale.
+     */
+    public List<Map<String, Object>> histogram(int bins) {
+        List<Map<String, Object>> histogram = new ArrayList<>();
+        int first = -1;
+        int last = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                first = first < 0 ? i : first;
+                last = i;
+            }
+        }
+        if (first < 0 || bins < 1) {
+            return histogram;
+        }
+        int width = (last - first + bins) / bins;
+        for (int from = first; from <= last; from += width) {
+            int to = Math.min(from + width - 1, last);
+            long binCount = 0;
+            for (int i = from; i <= to; i++) {
+                binCount += Math.max(counts[i], 0);
+            }
+            Map<String, Object> bin = new LinkedHashMap<>();
+            bin.put("from", amount(offset + from == 0 ? 0 : Math.pow(gamma, offset + from - 1)));
+            bin.put("to", amount(Math.pow(gamma, offset + to)));
+            bin.put("count", binCount);
+            histogram.add(bin);
+        }
+        return histogram;
+    }
+
+    public AmountSketch copy() {
+        AmountSketch copy = new AmountSketch(relativeAccuracy);
+        copy.counts = Arrays.copyOf(counts, counts.length);
+        copy.offset = offset;
+        copy.count = count;
+        return copy;
+    }
+
+    // Value with the same relative distance to both ends of the bucket
+    private double representative(int bucket) {
+        return bucket == 0 ? 1 : 2 * Math.pow(gamma, bucket) / (gamma + 1);
+    }
+
+    private static BigDecimal amount(double cents) {
+        return BigDecimal.valueOf(cents / 100).setScale(2, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.expensetracker.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Streams the archive row by row from a JDBC cursor, so heap use does not depend on archive size.
+ * <p>
+ * H2 normally materializes a whole result set before returning the first row; the export switches
+ * the session to lazy query execution for the duration of the query so rows are produced as the
+ * cursor advances, and the fetch size bounds how many rows are in flight at once.
+ */
+@Service
+public class ArchiveExportService {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExpenseArchiveStore archiveStore;
+    private final CategoryRegistry categoryRegistry;
+    private final ObjectMapper objectMapper;
+    private final int fetchSize;
+
+    public ArchiveExportService(JdbcTemplate jdbcTemplate,
+                                ExpenseArchiveStore archiveStore,
+                                CategoryRegistry categoryRegistry,
+                                ObjectMapper objectMapper,
+                                @Value("${expense.export.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.archiveStore = archiveStore;
+        this.categoryRegistry = categoryRegistry;
+        this.objectMapper = objectMapper;
+        this.fetchSize = fetchSize;
+    }
+
+    // Write every archived expense to the stream in the requested format; the caller owns (and closes) the stream
+    public void export(OutputStream out, Format format) {
+        String sql = "SELECT id, description, amount, date, category_id FROM " + archiveStore.archiveTableName()
+                + (archiveStore.isColdStorage() ? "" : " WHERE deleted = TRUE") + " ORDER BY id";
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement session = connection.createStatement()) {
+                session.execute("SET LAZY_QUERY_EXECUTION 1");
+            }
+            try (PreparedStatement statement = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                statement.setFetchSize(fetchSize);
+                try (ResultSet rs = statement.executeQuery()) {
+                    if (format == Format.CSV) {
+                        writeCsv(rs, out);
+                    } else {
+                        writeNdjson(rs, out);
+                    }
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            } finally {
+                try (Statement session = connection.createStatement()) {
+                    session.execute("SET LAZY_QUERY_EXECUTION 0");
+                }
+            }
+            return null;
+        });
+    }
+
+    private void writeNdjson(ResultSet rs, OutputStream out) throws SQLException, IOException {
+        // The generator must not close the response stream; it only buffers and flushes
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        while (rs.next()) {
+            generator.writeStartObject();
+            generator.writeNumberField("id", rs.getLong("id"));
+            generator.writeStringField("description", rs.getString("description"));
+            double amount = rs.getDouble("amount");
+            if (rs.wasNull()) {
+                generator.writeNullField("amount");
+            } else {
+                generator.writeNumberField("amount", amount);
+            }
+            Date date = rs.getDate("date");
+            generator.writeStringField("date", date == null ? null : date.toLocalDate().toString());
+            generator.writeStringField("category", category(rs));
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+        generator.flush();
+    }
+
+    private void writeCsv(ResultSet rs, OutputStream out) throws SQLException, IOException {
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("id,description,amount,date,category\n");
+        while (rs.next()) {
+            writer.write(Long.toString(rs.getLong("id")));
+            writer.write(',');
+            writer.write(csvField(rs.getString("description")));
+            writer.write(',');
+            double amount = rs.getDouble("amount");
+            if (!rs.wasNull()) {
+                writer.write(Double.toString(amount));
+            }
+            writer.write(',');
+            Date date = rs.getDate("date");
+            if (date != null) {
+                writer.write(date.toLocalDate().toString());
+            }
+            writer.write(',');
+            writer.write(csvField(category(rs)));
+            writer.write('\n');
+        }
+        writer.flush();
+    }
+
+    // Category names are decoded from the in-memory dictionary instead of joining the category table
+    private String category(ResultSet rs) throws SQLException {
+        int categoryId = rs.getInt("category_id");
+        return rs.wasNull() ? null : categoryRegistry.nameOf(categoryId);
+    }
+
+    // RFC 4180 quoting: wrap fields containing separators, quotes or line breaks and double embedded quotes
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.expensetracker.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs the archiving job once per cluster rather than once per node.
+ * <p>
+ * By default (expense.archiving.shards=0) every node fires the cron, but only the node that gets the
+ * job lock archives; the others skip that execution. With shards=n the node that gets the lock plans the
+ * run instead: it splits the ids to archive into n ranges, and every node, on the cron and then every
+ * shard-poll, claims and archives one range at a time until none are left. A node that dies mid-shard
+ * stops renewing its lease and the shard is claimed again elsewhere; archiving is resumable, so the next
+ * owner continues with whatever is still active. Every run and every shard is recorded in the job history.
+ */
+@Service
+public class ArchivingScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(ArchivingScheduler.class);
+
+    public static final String JOB = "expense-archiving";
+
+    private final ExpenseArchivingService archivingService;
+    private final ExpenseArchiveStore archiveStore;
+    private final JobLockService lockService;
+    private final JobRunHistory history;
+    private final int shards;
+    private final Duration leaseTime;
+    private final Duration lockAtLeast;
+    private final int maxAttempts;
+
+    public ArchivingScheduler(ExpenseArchivingService archivingService,
+                              ExpenseArchiveStore archiveStore,
+                              JobLockService lockService,
+                              JobRunHistory history,
+                              @Value("${expense.archiving.shards:0}") int shards,
+                              @Value("${expense.scheduler.lease:PT5M}") Duration leaseTime,
+                              @Value("${expense.scheduler.lock-at-least:PT1M}") Duration lockAtLeast,
+                              @Value("${expense.archiving.shard-max-attempts:3}") int maxAttempts) {
+        if (shards < 0 || maxAttempts < 1) {
+            throw new IllegalArgumentException(
+                    "expense.archiving.shards must not be negative and shard-max-attempts must be positive");
+        }
+        this.archivingService = archivingService;
+        this.archiveStore = archiveStore;
+        this.lockService = lockService;
+        this.history = history;
+        this.shards = shards;
+        this.leaseTime = leaseTime;
+        this.lockAtLeast = lockAtLeast;
+        this.maxAttempts = maxAttempts;
+    }
+
+    // This scheduled method will run every day at midnight unless expense.archiving.cron overrides it.
+    @Scheduled(cron = "${expense.archiving.cron:0 0 0 * * ?}")
+    public void run() {
+        if (shards > 1) {
+            planShards();
+            processShards();
+        } else {
+            runLocked();
+        }
+    }
+
+    // Joins sharded runs planned by another node, and picks up shards whose owner died
+    @Scheduled(fixedDelayString = "${expense.archiving.shard-poll:PT1M}",
+            initialDelayString = "${expense.archiving.shard-poll:PT1M}")
+    public void pollShards() {
+        if (shards > 1) {
+            processShards();
+        }
+    }
+
+    /**
+     * Archives everything past retention if this node gets the job lock.
+     *
+     * @return the number of expenses archived, or -1 when another node holds the lock
+     */
+    public long runLocked() {
+        Optional<JobLockService.Lease> acquired = lockService.tryLock(JOB, leaseTime);
+        if (!acquired.isPresent()) {
+            log.info("Skipping {}: another node holds the lock", JOB);
+            return -1;
+        }
+        JobLockService.Lease lease = acquired.get();
+        Instant startedAt = Instant.now();
+        long rows = 0;
+        String status = JobRunHistory.FAILED;
+        String message = null;
+        try {
+            rows = archivingService.archiveOldExpenses(lease::checkpoint);
+            status = lease.isHeld() ? JobRunHistory.SUCCEEDED : JobRunHistory.LEASE_LOST;
+            return rows;
+        } catch (RuntimeException ex) {
+            message = ex.toString();
+            throw ex;
+        } finally {
+            history.record(JOB, lockService.getNodeId(), null, startedAt, rows, status, message);
+            lease.release(lockAtLeast);
+        }
+    }
+
+    /**
+     * Splits today's run into shards if this node gets the job lock and the run has not been planned yet.
+     * Soft-deleted rows left in the hot table are moved to cold storage first, under the lock.
+     *
+     * @return whether this node planned the run
+     */
+    public boolean planShards() {
+        Optional<JobLockService.Lease> acquired = lockService.tryLock(JOB, leaseTime);
+        if (!acquired.isPresent()) {
+            return false;
+        }
+        JobLockService.Lease lease = acquired.get();
+        LocalDate threshold = archivingService.thresholdDate();
+        String runKey = threshold.toString();
+        Instant startedAt = Instant.now();
+        long moved = 0;
+        String status = JobRunHistory.FAILED;
+        String message = null;
+        try {
+            if (lockService.hasShards(JOB, runKey)) {
+                // Planned earlier today, by this node or another
+                status = null;
+                return false;
+            }
+            if (archiveStore.isColdStorage()) {
+                moved = archivingService.migrateSoftDeletedExpenses(lease::checkpoint);
+            }
+            List<long[]> ranges = archivingService.shardRanges(threshold, shards);
+            lockService.createShards(JOB, runKey, ranges);
+            status = JobRunHistory.SUCCEEDED;
+            message = "Planned " + ranges.size() + " shards of expenses dated before " + threshold;
+            log.info("{}: {}", JOB, message);
+            return true;
+        } catch (RuntimeException ex) {
+            message = ex.toString();
+            throw ex;
+        } finally {
+            if (status != null) {
+                history.record(JOB, lockService.getNodeId(), null, startedAt, moved, status, message);
+            }
+            // The plan itself is the guard against a second run today, so the lock need not outlive it
+            lease.release(Duration.ZERO);
+        }
+    }
+
+    /**
+     * Claims and archives shards one at a time until none are left to claim.
+     *
+     * @return the number of expenses this node archived
+     */
+    public long processShards() {
+        long total = 0;
+        Optional<JobLockService.ShardLease> claimed;
+        while ((claimed = lockService.claimShard(JOB, leaseTime, maxAttempts)).isPresent()) {
+            JobLockService.ShardLease shard = claimed.get();
+            Instant startedAt = Instant.now();
+            long rows = 0;
+            String status = JobRunHistory.FAILED;
+            String message = null;
+            try {
+                rows = archivingService.archiveExpensesBefore(LocalDate.parse(shard.getRunKey()),
+                        shard.getFromId(), shard.getToId(), shard::checkpoint);
+                status = shard.complete(rows) ? JobRunHistory.SUCCEEDED : JobRunHistory.LEASE_LOST;
+            } catch (RuntimeException ex) {
+                // Give the shard back for another attempt and carry on with the next one
+                log.error("{}: shard {} of run {} failed", JOB, shard.getShardIndex(), shard.getRunKey(), ex);
+                shard.abandon(rows, maxAttempts);
+                message = ex.toString();
+            } finally {
+                history.record(JOB, lockService.getNodeId(), shard.getShardIndex(), startedAt, rows, status, message);
+            }
+            total += rows;
+        }
+        return total;
+    }
+}
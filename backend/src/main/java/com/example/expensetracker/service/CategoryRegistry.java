@@ -0,0 +1,198 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory dictionary of the category table (name to integer id and back).
+ * <p>
+ * Lookups are lock-free map reads. A name or id that is not cached (registered by another node) is looked
+ * up with one indexed query. All SQL goes through a JdbcTemplate. Inside a transaction it runs on that
+ * transaction's connection, so the registry never holds a second pooled connection while a flush waits.
+ * <p>
+ * {@link #register} inserts unseen names; the id comes from the identity column, and the unique name
+ * constraint settles concurrent registrations of one name. A name inserted inside a transaction is
+ * visible to that transaction at once but cached only once it commits, so the cache never refers to a
+ * rolled-back row. Ids start at 1 (0 stands for "no category" in the rollup table) and are never reused.
+ * At most expense.categories.max names can be registered; a new name beyond that is rejected.
+ */
+@Component
+public class CategoryRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(CategoryRegistry.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxCategories;
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private final Map<Integer, String> namesById = new ConcurrentHashMap<>();
+    private volatile boolean loaded;
+
+    // Its own JdbcTemplate: the converter needs the registry while the EntityManagerFactory, which the
+    // shared JdbcTemplate bean depends on, is being built
+    public CategoryRegistry(DataSource dataSource,
+                            @Value("${expense.categories.max:1000}") int maxCategories) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.maxCategories = maxCategories;
+    }
+
+    // Id of an already registered category; never writes
+    public Optional<Integer> findId(String name) {
+        ensureLoaded();
+        Integer id = idsByName.get(name);
+        if (id == null) {
+            id = pending().get(name);
+        }
+        if (id == null) {
+            List<Integer> ids = jdbcTemplate.queryForList("SELECT id FROM category WHERE name = ?", Integer.class, name);
+            if (!ids.isEmpty()) {
+                id = ids.get(0);
+                put(id, name);
+            }
+        }
+        return Optional.ofNullable(id);
+    }
+
+    // Id of a category that must already be registered
+    public int idOf(String name) {
+        return findId(name).orElseThrow(() -> new IllegalStateException("Category not registered: " + name));
+    }
+
+    // Id of the category, registering the name first if needed
+    public int register(String name) {
+        Optional<Integer> existing = findId(name);
+        return existing.isPresent() ? existing.get() : insert(name);
+    }
+
+    public String nameOf(int id) {
+        ensureLoaded();
+        String name = namesById.get(id);
+        if (name == null) {
+            name = pendingName(id);
+        }
+        if (name == null) {
+            List<String> names = jdbcTemplate.queryForList("SELECT name FROM category WHERE id = ?", String.class, id);
+            if (names.isEmpty()) {
+                throw new IllegalStateException("Unknown category id: " + id);
+            }
+            name = names.get(0);
+            put(id, name);
+        }
+        return name;
+    }
+
+    public List<Category> findAll() {
+        ensureLoaded();
+        List<Category> categories = new ArrayList<>();
+        namesById.forEach((id, name) -> categories.add(new Category(id, name)));
+        categories.sort(Comparator.comparing(Category::getName));
+        return categories;
+    }
+
+    public void reload() {
+        Map<String, Integer> pending = pending();
+        jdbcTemplate.query("SELECT id, name FROM category", rs -> {
+            String name = rs.getString("name");
+            // Rows this transaction inserted are cached when it commits
+            if (!pending.containsKey(name)) {
+                put(rs.getInt("id"), name);
+            }
+        });
+        loaded = true;
+    }
+
+    private void ensureLoaded() {
+        if (!loaded) {
+            reload();
+        }
+    }
+
+    private int insert(String name) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM category", Integer.class);
+        if (count != null && count >= maxCategories) {
+            throw new InvalidRequestException("Too many categories (at most " + maxCategories + "); use an existing one");
+        }
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        try {
+            jdbcTemplate.update(connection -> {
+                PreparedStatement statement = connection.prepareStatement(
+                        "INSERT INTO category (name) VALUES (?)", new String[]{"id"});
+                statement.setString(1, name);
+                return statement;
+            }, keyHolder);
+        } catch (DuplicateKeyException ex) {
+            // Registered concurrently by another transaction, which has committed it since
+            return idOf(name);
+        }
+        int id = keyHolder.getKey().intValue();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pendingForUpdate().put(name, id);
+        } else {
+            put(id, name);
+        }
+        log.info("Registered category '{}' with id {}", name, id);
+        return id;
+    }
+
+    // Names this thread's transaction inserted and has not committed yet
+    @SuppressWarnings("unchecked")
+    private Map<String, Integer> pending() {
+        Object pending = TransactionSynchronizationManager.isSynchronizationActive()
+                ? TransactionSynchronizationManager.getResource(this) : null;
+        return pending == null ? Map.of() : (Map<String, Integer>) pending;
+    }
+
+    private Map<String, Integer> pendingForUpdate() {
+        Map<String, Integer> pending = pending();
+        if (!pending.isEmpty()) {
+            return pending;
+        }
+        Map<String, Integer> created = new HashMap<>();
+        TransactionSynchronizationManager.bindResource(this, created);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                created.forEach((name, id) -> put(id, name));
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CategoryRegistry.this);
+            }
+        });
+        return created;
+    }
+
+    private String pendingName(int id) {
+        for (Map.Entry<String, Integer> entry : pending().entrySet()) {
+            if (entry.getValue() == id) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    private void put(int id, String name) {
+        idsByName.put(name, id);
+        namesById.put(id, name);
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.expensetracker.service;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated listing. Unlike {@link org.springframework.data.domain.Page} it
+ * carries no total unless the caller explicitly asked for one, so no COUNT query is needed.
+ */
+public class CursorPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final String prevCursor;
+    private final Long totalElements;
+
+    public CursorPage(List<T> content, String nextCursor, String prevCursor, Long totalElements) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.prevCursor = prevCursor;
+        this.totalElements = totalElements;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    // Token for the following page, or null when this is the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    // Token for the preceding page, or null when this is the first page
+    public String getPrevCursor() {
+        return prevCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    public boolean hasPrevious() {
+        return prevCursor != null;
+    }
+
+    // Total number of matching rows, or null when the total was not requested
+    public Long getTotalElements() {
+        return totalElements;
+    }
+}
@@ -0,0 +1,484 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory, column-oriented copy of the active expenses for ad-hoc aggregation.
+ * <p>
+ * Every active expense occupies one slot across parallel primitive arrays: {@code days} (epoch day),
+ * {@code cents} (amount in cents) and {@code categories} (id into a category dictionary). Filters are
+ * compiled into primitive bounds once per query, so the scan itself is a tight loop over the arrays
+ * without boxing or per-row allocation. Scans of at least {@code parallel-threshold} rows are split
+ * across the common fork/join pool.
+ * <p>
+ * The columns are loaded from the expense table once the application is ready (and on
+ * {@link #reload()}), and then follow committed {@link ExpenseChangeEvent}s. Applying an event is
+ * idempotent (remove by id, then upsert by id), so events racing with a reload are harmless.
+ * Deleting a row moves the last slot into the hole, keeping the columns dense. Slots are found by id in
+ * an open-addressing table of primitive keys, so the index allocates no object per row. Expenses without
+ * an amount hold no slot and are left out of every aggregate.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.analytics.enabled", havingValue = "true")
+public class ExpenseAnalyticsEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseAnalyticsEngine.class);
+
+    // Epoch day stored for expenses without a date; never inside a date window
+    static final int NO_DATE = Integer.MIN_VALUE;
+    // Rows handled by one fork/join leaf task
+    private static final int LEAF_SIZE = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean parallel;
+    private final int parallelThreshold;
+    private final StampedLock lock = new StampedLock();
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private long[] cents = new long[INITIAL_CAPACITY];
+    private int[] categories = new int[INITIAL_CAPACITY];
+    private int size;
+    private final SlotIndex slotById = new SlotIndex();
+
+    // Category dictionary; a null category is an ordinary entry
+    private final List<String> categoryNames = new ArrayList<>();
+    private final Map<String, Integer> categoryIds = new HashMap<>();
+
+    public ExpenseAnalyticsEngine(JdbcTemplate jdbcTemplate,
+                                  @Value("${expense.analytics.parallel:true}") boolean parallel,
+                                  @Value("${expense.analytics.parallel-threshold:200000}") int parallelThreshold) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.parallel = parallel;
+        this.parallelThreshold = Math.max(parallelThreshold, 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Replaces the columns with the active rows of the expense table. The write lock is held for the
+     * whole load so that no committed change can be applied and then overwritten by older data.
+     */
+    public int reload() {
+        long stamp = lock.writeLock();
+        try {
+            clear();
+            jdbcTemplate.query("SELECT e.id, e.date, e.amount, c.name AS category FROM expense e "
+                    + "LEFT JOIN category c ON c.id = e.category_id WHERE e.deleted = FALSE", rs -> {
+                Date date = rs.getDate("date");
+                double amount = rs.getDouble("amount");
+                upsert(rs.getLong("id"),
+                        date == null ? null : date.toLocalDate(),
+                        rs.wasNull() ? null : amount,
+                        rs.getString("category"));
+            });
+            log.info("Loaded {} active expenses into the analytics columns", size);
+            return size;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            for (ExpenseSnapshot expense : event.getRemoved()) {
+                remove(expense.getId());
+            }
+            for (ExpenseSnapshot expense : event.getAdded()) {
+                upsert(expense.getId(), expense.getDate(), expense.getAmount(), expense.getCategory());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Count, total, average, minimum and maximum amount of the expenses matching the filter.
+     */
+    public Map<String, Object> aggregate(ExpenseFilter filter) {
+        Aggregate result = scan(filter, false);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("count", result.count);
+        response.put("total", ExpenseRollupService.fromCents(result.sum));
+        response.put("average", result.count == 0 ? null : average(result.sum, result.count));
+        response.put("min", result.count == 0 ? null : ExpenseRollupService.fromCents(result.min));
+        response.put("max", result.count == 0 ? null : ExpenseRollupService.fromCents(result.max));
+        return response;
+    }
+
+    /**
+     * Categories of the matching expenses ordered by total amount (descending), at most {@code limit}.
+     */
+    public List<Map<String, Object>> topCategories(ExpenseFilter filter, int limit) {
+        List<String> names;
+        Aggregate result;
+        long stamp = lock.readLock();
+        try {
+            names = new ArrayList<>(categoryNames);
+            result = scanLocked(filter, true);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        Integer[] order = new Integer[result.categoryCounts.length];
+        int groups = 0;
+        for (int category = 0; category < order.length; category++) {
+            if (result.categoryCounts[category] > 0) {
+                order[groups++] = category;
+            }
+        }
+        long[] sums = result.categorySums;
+        Arrays.sort(order, 0, groups, (a, b) -> Long.compare(sums[b], sums[a]));
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < Math.min(groups, limit); i++) {
+            int category = order[i];
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("category", names.get(category));
+            row.put("count", result.categoryCounts[category]);
+            row.put("total", ExpenseRollupService.fromCents(sums[category]));
+            row.put("average", average(sums[category], result.categoryCounts[category]));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Aggregate scan(ExpenseFilter filter, boolean byCategory) {
+        long stamp = lock.readLock();
+        try {
+            return scanLocked(filter, byCategory);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Caller holds the read lock for the duration of the scan (including any forked subtasks)
+    private Aggregate scanLocked(ExpenseFilter filter, boolean byCategory) {
+        int categoryCount = categoryNames.size();
+        int category = -1;
+        if (filter.getCategory() != null) {
+            Integer id = categoryIds.get(filter.getCategory());
+            if (id == null) {
+                return new Aggregate(byCategory ? categoryCount : 0);
+            }
+            category = id;
+        }
+        // A date bound excludes undated rows, like the SQL comparison does
+        boolean dateBounded = filter.getStartDate() != null || filter.getEndDate() != null;
+        int fromDay = filter.getStartDate() != null ? (int) filter.getStartDate().toEpochDay()
+                : dateBounded ? NO_DATE + 1 : NO_DATE;
+        int toDay = filter.getEndDate() != null ? (int) filter.getEndDate().toEpochDay() : Integer.MAX_VALUE;
+        long minCents = filter.getMinAmount() != null ? ExpenseRollupService.toCents(filter.getMinAmount()) : Long.MIN_VALUE;
+        long maxCents = filter.getMaxAmount() != null ? ExpenseRollupService.toCents(filter.getMaxAmount()) : Long.MAX_VALUE;
+
+        ScanTask task = new ScanTask(days, cents, categories, 0, size,
+                fromDay, toDay, minCents, maxCents, category, byCategory ? categoryCount : 0);
+        if (parallel && size >= parallelThreshold) {
+            return ForkJoinPool.commonPool().invoke(task);
+        }
+        return task.compute();
+    }
+
+    private void upsert(long id, LocalDate date, Double amount, String category) {
+        if (amount == null) {
+            remove(id);
+            return;
+        }
+        int slot = slotById.get(id);
+        if (slot < 0) {
+            ensureCapacity(size + 1);
+            slot = size++;
+            slotById.put(id, slot);
+        }
+        ids[slot] = id;
+        days[slot] = date == null ? NO_DATE : (int) date.toEpochDay();
+        cents[slot] = ExpenseRollupService.toCents(amount);
+        categories[slot] = categoryId(category);
+    }
+
+    private void remove(long id) {
+        int slot = slotById.remove(id);
+        if (slot < 0) {
+            return;
+        }
+        int last = --size;
+        if (slot != last) {
+            ids[slot] = ids[last];
+            days[slot] = days[last];
+            cents[slot] = cents[last];
+            categories[slot] = categories[last];
+            slotById.put(ids[slot], slot);
+        }
+    }
+
+    private int categoryId(String category) {
+        Integer id = categoryIds.get(category);
+        if (id == null) {
+            id = categoryNames.size();
+            categoryNames.add(category);
+            categoryIds.put(category, id);
+        }
+        return id;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > ids.length) {
+            int grown = Math.max(capacity, ids.length * 2);
+            ids = Arrays.copyOf(ids, grown);
+            days = Arrays.copyOf(days, grown);
+            cents = Arrays.copyOf(cents, grown);
+            categories = Arrays.copyOf(categories, grown);
+        }
+    }
+
+    private void clear() {
+        ids = new long[INITIAL_CAPACITY];
+        days = new int[INITIAL_CAPACITY];
+        cents = new long[INITIAL_CAPACITY];
+        categories = new int[INITIAL_CAPACITY];
+        size = 0;
+        slotById.clear();
+        categoryNames.clear();
+        categoryIds.clear();
+    }
+
+    private static BigDecimal average(long sumCents, long count) {
+        return ExpenseRollupService.fromCents(Math.round((double) sumCents / count));
+    }
+
+    // Expense id to slot: linear probing over parallel arrays, at most half full; 0 in slots marks a free
+    // entry, so slot + 1 is stored
+    static final class SlotIndex {
+
+        private long[] keys = new long[INITIAL_CAPACITY * 2];
+        private int[] slots = new int[INITIAL_CAPACITY * 2];
+        private int size;
+
+        // The slot of the id, or -1
+        int get(long id) {
+            int mask = keys.length - 1;
+            for (int i = index(id, mask); slots[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == id) {
+                    return slots[i] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long id, int slot) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int mask = keys.length - 1;
+            int i = index(id, mask);
+            while (slots[i] != 0 && keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                size++;
+            }
+            keys[i] = id;
+            slots[i] = slot + 1;
+        }
+
+        // Removes the id and returns its slot, or -1 if it was absent
+        int remove(long id) {
+            int mask = keys.length - 1;
+            int i = index(id, mask);
+            while (slots[i] != 0 && keys[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (slots[i] == 0) {
+                return -1;
+            }
+            int slot = slots[i] - 1;
+            size--;
+            // Shift later entries of the probe run back so that lookups need no tombstones
+            int hole = i;
+            for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+                int home = index(keys[j], mask);
+                boolean reachable = hole <= j ? hole < home && home <= j : hole < home || home <= j;
+                if (!reachable) {
+                    keys[hole] = keys[j];
+                    slots[hole] = slots[j];
+                    hole = j;
+                }
+            }
+            slots[hole] = 0;
+            return slot;
+        }
+
+        void clear() {
+            keys = new long[INITIAL_CAPACITY * 2];
+            slots = new int[INITIAL_CAPACITY * 2];
+            size = 0;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldSlots = slots;
+            keys = new long[oldKeys.length * 2];
+            slots = new int[oldSlots.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldSlots[i] != 0) {
+                    put(oldKeys[i], oldSlots[i] - 1);
+                }
+            }
+        }
+
+        private static int index(long id, int mask) {
+            long hash = id * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+    }
+
+    // Partial result of a scan; subtasks are combined with merge()
+    static final class Aggregate {
+        long count;
+        long sum;
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        final long[] categoryCounts;
+        final long[] categorySums;
+
+        Aggregate(int categoryCount) {
+            this.categoryCounts = new long[categoryCount];
+            this.categorySums = new long[categoryCount];
+        }
+
+        Aggregate merge(Aggregate other) {
+            count += other.count;
+            sum += other.sum;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+            for (int i = 0; i < categoryCounts.length; i++) {
+                categoryCounts[i] += other.categoryCounts[i];
+                categorySums[i] += other.categorySums[i];
+            }
+            return this;
+        }
+    }
+
+    private static final class ScanTask extends RecursiveTask<Aggregate> {
+
+        private final int[] days;
+        private final long[] cents;
+        private final int[] categories;
+        private final int from;
+        private final int to;
+        private final int fromDay;
+        private final int toDay;
+        private final long minCents;
+        private final long maxCents;
+        private final int category;
+        private final int categoryCount;
+
+        ScanTask(int[] days, long[] cents, int[] categories, int from, int to,
+                 int fromDay, int toDay, long minCents, long maxCents, int category, int categoryCount) {
+            this.days = days;
+            this.cents = cents;
+            this.categories = categories;
+            this.from = from;
+            this.to = to;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.category = category;
+            this.categoryCount = categoryCount;
+        }
+
+        @Override
+        protected Aggregate compute() {
+            if (to - from > LEAF_SIZE && getPool() != null) {
+                int middle = (from + to) >>> 1;
+                ScanTask left = slice(from, middle);
+                ScanTask right = slice(middle, to);
+                left.fork();
+                Aggregate result = right.compute();
+                return result.merge(left.join());
+            }
+            return scanRange();
+        }
+
+        private ScanTask slice(int sliceFrom, int sliceTo) {
+            return new ScanTask(days, cents, categories, sliceFrom, sliceTo,
+                    fromDay, toDay, minCents, maxCents, category, categoryCount);
+        }
+
+        private Aggregate scanRange() {
+            Aggregate result = new Aggregate(categoryCount);
+            long[] categoryCounts = result.categoryCounts;
+            long[] categorySums = result.categorySums;
+            boolean byCategory = categoryCount > 0;
+            long count = 0;
+            long sum = 0;
+            long min = Long.MAX_VALUE;
+            long max = Long.MIN_VALUE;
+            for (int i = from; i < to; i++) {
+                int day = days[i];
+                long amount = cents[i];
+                if (day < fromDay || day > toDay || amount < minCents || amount > maxCents) {
+                    continue;
+                }
+                int rowCategory = categories[i];
+                if (category >= 0 && rowCategory != category) {
+                    continue;
+                }
+                count++;
+                sum += amount;
+                min = Math.min(min, amount);
+                max = Math.max(max, amount);
+                if (byCategory) {
+                    categoryCounts[rowCategory]++;
+                    categorySums[rowCategory] += amount;
+                }
+            }
+            result.count = count;
+            result.sum = sum;
+            result.min = min;
+            result.max = max;
+            return result;
+        }
+    }
+}
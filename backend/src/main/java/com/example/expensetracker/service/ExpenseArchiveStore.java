@@ -0,0 +1,77 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.model.ArchivedExpense;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.repository.ArchivedExpenseRepository;
+import com.example.expensetracker.repository.ExpenseRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+
+/**
+ * Where archived expenses live, selected by expense.archive.storage:
+ * <ul>
+ *   <li>{@code flag} (default) - archived rows stay in the Expense table with deleted = true.</li>
+ *   <li>{@code table} - archived rows are moved into the expense_archive table, so the hot table
+ *   and its indexes only hold live data.</li>
+ * </ul>
+ * Callers are expected to run inside a transaction; moving a row is a copy plus a delete.
+ */
+@Component
+public class ExpenseArchiveStore {
+
+    private final ExpenseRepository expenseRepository;
+    private final ArchivedExpenseRepository archivedExpenseRepository;
+    private final boolean coldStorage;
+
+    public ExpenseArchiveStore(ExpenseRepository expenseRepository,
+                               ArchivedExpenseRepository archivedExpenseRepository,
+                               @Value("${expense.archive.storage:flag}") String storage) {
+        if (!"flag".equalsIgnoreCase(storage) && !"table".equalsIgnoreCase(storage)) {
+            throw new IllegalArgumentException("expense.archive.storage must be 'flag' or 'table', was: " + storage);
+        }
+        this.expenseRepository = expenseRepository;
+        this.archivedExpenseRepository = archivedExpenseRepository;
+        this.coldStorage = "table".equalsIgnoreCase(storage);
+    }
+
+    public boolean isColdStorage() {
+        return coldStorage;
+    }
+
+    // Archive the given expenses; returns the number of rows archived
+    public int archive(Collection<Long> ids) {
+        if (!coldStorage) {
+            return expenseRepository.markDeleted(ids);
+        }
+        int copied = archivedExpenseRepository.copyFromExpenses(ids);
+        expenseRepository.deleteByIds(ids);
+        return copied;
+    }
+
+    public Page<Expense> findArchived(Pageable pageable) {
+        if (!coldStorage) {
+            return expenseRepository.findByDeletedTrue(pageable);
+        }
+        return archivedExpenseRepository.findAll(pageable).map(ArchivedExpense::toExpense);
+    }
+
+    // Table the streaming export reads archived rows from
+    public String archiveTableName() {
+        return coldStorage ? "expense_archive" : "expense";
+    }
+
+    // Move an archived expense back into the active set; returns false if no such archived expense exists
+    public boolean restore(Long id) {
+        if (!coldStorage) {
+            return expenseRepository.markRestored(id) > 0;
+        }
+        if (archivedExpenseRepository.copyToExpenses(id) == 0) {
+            return false;
+        }
+        archivedExpenseRepository.deleteById(id);
+        return true;
+    }
+}
@@ -1,29 +1,195 @@
 package com.example.expensetracker.service;
 
-import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.ExpenseSnapshot;
 import com.example.expensetracker.repository.ExpenseRepository;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class ExpenseArchivingService {
 
+    private static final Logger log = LoggerFactory.getLogger(ExpenseArchivingService.class);
+
     private final ExpenseRepository expenseRepository;
+    private final ExpenseArchiveStore archiveStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int retentionDays;
 
-    public ExpenseArchivingService(ExpenseRepository expenseRepository) {
+    public ExpenseArchivingService(ExpenseRepository expenseRepository,
+                                   ExpenseArchiveStore archiveStore,
+                                   ApplicationEventPublisher eventPublisher,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${expense.archiving.chunk-size:1000}") int chunkSize,
+                                   @Value("${expense.archiving.retention-days:30}") int retentionDays) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("expense.archiving.chunk-size must be positive");
+        }
         this.expenseRepository = expenseRepository;
+        this.archiveStore = archiveStore;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.retentionDays = retentionDays;
+    }
+
+    // Scheduled (once per cluster) by ArchivingScheduler
+    public long archiveOldExpenses() {
+        return archiveOldExpenses(() -> true);
+    }
+
+    /**
+     * Archive everything past retention, checking {@code proceed} before every chunk and stopping as soon
+     * as it returns false (the job's lease was lost to another node).
+     *
+     * @return the number of expenses archived or moved to cold storage
+     */
+    public long archiveOldExpenses(BooleanSupplier proceed) {
+        long moved = archiveStore.isColdStorage() ? migrateSoftDeletedExpenses(proceed) : 0;
+        return moved + archiveExpensesBefore(thresholdDate(), proceed);
+    }
+
+    // Expenses dated before this day are past retention
+    public LocalDate thresholdDate() {
+        return LocalDate.now().minusDays(retentionDays);
+    }
+
+    /**
+     * Split the ids of the expenses to archive before the threshold into at most {@code shards} contiguous
+     * ranges ({from, to}, inclusive) of equal width; none when there is nothing to archive.
+     */
+    public List<long[]> shardRanges(LocalDate thresholdDate, int shards) {
+        List<long[]> ranges = new ArrayList<>();
+        Long min = expenseRepository.findMinArchivableId(thresholdDate);
+        Long max = expenseRepository.findMaxArchivableId(thresholdDate);
+        if (min == null || max == null) {
+            return ranges;
+        }
+        long width = (max - min) / shards + 1;
+        for (long from = min; from <= max; from += width) {
+            ranges.add(new long[]{from, Math.min(from + width - 1, max)});
+        }
+        return ranges;
+    }
+
+    /**
+     * Archive every active expense dated before the threshold, one chunk per transaction.
+     * <p>
+     * Each chunk selects and locks at most chunkSize rows from the front of the (deleted, date, id) index and
+     * archives them with set-based statements (see {@link ExpenseArchiveStore}), so memory use does not grow with the number of expired rows.
+     * Archived rows drop out of the selection predicate, which makes the job resumable: after a
+     * crash the next run simply continues with whatever is still active and expired.
+     *
+     * @return the number of expenses archived by this run
+     */
+    public long archiveExpensesBefore(LocalDate thresholdDate) {
+        return archiveExpensesBefore(thresholdDate, () -> true);
+    }
+
+    public long archiveExpensesBefore(LocalDate thresholdDate, BooleanSupplier proceed) {
+        return archive(thresholdDate, pageable -> expenseRepository.findArchivable(thresholdDate, pageable), proceed);
     }
 
-    // This scheduled method will run every day at midnight.
-    @Scheduled(cron = "0 0 0 * * ?")
-    public void archiveOldExpenses() {
-        LocalDate thresholdDate = LocalDate.now().minusDays(30);
-        // Query for expenses not already archived and with a date before the threshold.
-        List<Expense> expensesToArchive = expenseRepository.findByDeletedFalseAndDateBefore(thresholdDate);
-        expensesToArchive.forEach(expense -> expense.setDeleted(true));
-        expenseRepository.saveAll(expensesToArchive);
+    // One shard of a sharded run: only ids fromId..toId (inclusive)
+    public long archiveExpensesBefore(LocalDate thresholdDate, long fromId, long toId, BooleanSupplier proceed) {
+        return archive(thresholdDate,
+                pageable -> expenseRepository.findArchivableInRange(thresholdDate, fromId, toId, pageable), proceed);
+    }
+
+    private long archive(LocalDate thresholdDate, Function<Pageable, List<ExpenseSnapshot>> select, BooleanSupplier proceed) {
+        long archived = 0;
+        int chunks = 0;
+        while (true) {
+            if (!proceed.getAsBoolean()) {
+                log.warn("Archiving expenses before {} stopped after {} chunks: the job lease was lost", thresholdDate, chunks);
+                break;
+            }
+            ChunkResult chunk = transactionTemplate.execute(status -> archiveChunk(select));
+            if (chunk == null || chunk.selected == 0) {
+                break;
+            }
+            archived += chunk.updated;
+            chunks++;
+            log.info("Archiving expenses before {}: chunk {} archived {} rows ({} so far)",
+                    thresholdDate, chunks, chunk.updated, archived);
+            // A short chunk means the expired range is exhausted; skip the extra empty query
+            if (chunk.selected < chunkSize) {
+                break;
+            }
+        }
+        log.info("Archiving expenses before {} finished: {} rows in {} chunks", thresholdDate, archived, chunks);
+        return archived;
+    }
+
+    /**
+     * Move rows that were soft-deleted in the hot table (before cold storage was enabled, or by a
+     * node still running in flag mode) into the archive table, chunk by chunk.
+     *
+     * @return the number of expenses moved
+     */
+    public long migrateSoftDeletedExpenses() {
+        return migrateSoftDeletedExpenses(() -> true);
+    }
+
+    public long migrateSoftDeletedExpenses(BooleanSupplier proceed) {
+        long moved = 0;
+        while (proceed.getAsBoolean()) {
+            ChunkResult chunk = transactionTemplate.execute(status -> archiveChunk(
+                    expenseRepository.findSoftDeletedIds(PageRequest.of(0, chunkSize))));
+            if (chunk == null || chunk.selected == 0) {
+                break;
+            }
+            moved += chunk.updated;
+            log.info("Moved {} soft-deleted expenses to cold storage ({} so far)", chunk.updated, moved);
+            if (chunk.selected < chunkSize) {
+                break;
+            }
+        }
+        return moved;
+    }
+
+    private ChunkResult archiveChunk(Function<Pageable, List<ExpenseSnapshot>> select) {
+        List<ExpenseSnapshot> expenses = select.apply(PageRequest.of(0, chunkSize));
+        if (expenses.isEmpty()) {
+            return new ChunkResult(0, 0);
+        }
+        List<Long> ids = expenses.stream().map(ExpenseSnapshot::getId).collect(Collectors.toList());
+        ChunkResult result = archiveChunk(ids);
+        // Published inside the chunk transaction so derived data commits together with the chunk. The selection
+        // locked the rows, so these are exactly the rows archived, with their current values.
+        eventPublisher.publishEvent(ExpenseChangeEvent.archived(expenses));
+        return result;
+    }
+
+    private ChunkResult archiveChunk(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ChunkResult(0, 0);
+        }
+        return new ChunkResult(ids.size(), archiveStore.archive(ids));
+    }
+
+    private static final class ChunkResult {
+        private final int selected;
+        private final int updated;
+
+        private ChunkResult(int selected, int updated) {
+            this.selected = selected;
+            this.updated = updated;
+        }
     }
 }
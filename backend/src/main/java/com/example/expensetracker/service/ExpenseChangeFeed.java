@@ -0,0 +1,370 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Server-sent events feed of committed {@link ExpenseChangeEvent}s.
+ * <p>
+ * Subscribers are {@link SseEmitter}s on asynchronous servlet requests, so an idle subscriber holds a
+ * socket and a few objects but no thread. A single dispatcher thread queues every change, in commit order,
+ * for the subscribers whose filter it concerns, along with the periodic heartbeat comments that let the
+ * server notice clients that went away. Each subscriber's queue ({@code subscriber-queue} events) is drained
+ * by a sender thread, so a slow client only delays itself: one whose queue fills up, or whose current send
+ * takes longer than {@code send-timeout}, is disconnected and resumes with {@code Last-Event-ID} like any
+ * other reconnecting client.
+ * <p>
+ * The latest changes are kept in a ring so a client reconnecting with {@code Last-Event-ID} receives what it
+ * missed. The ring is bounded by the rows its changes carry ({@code buffer-rows}) rather than by their number,
+ * since one archiving chunk or import batch holds as many rows as a thousand single edits; the newest change
+ * is always kept. Event ids are {@code <epoch>-<sequence>}, where the epoch
+ * identifies this server's run; a client whose last id is from another run or has already left the ring
+ * gets a {@code reset} event and should reload its view.
+ */
+@Component
+public class ExpenseChangeFeed implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseChangeFeed.class);
+
+    static final String RESET = "reset";
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Deque<Entry> ring = new ArrayDeque<>();
+    private final int bufferRows;
+    private int bufferedRows;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+    private final long sendTimeoutNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "expense-change-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Not bounded: a send stuck on a dead connection holds its thread until the servlet container fails the write
+    private final ExecutorService senders = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "expense-change-feed-sender");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long sequence;
+
+    public ExpenseChangeFeed(@Value("${expense.feed.buffer-rows:10000}") int bufferRows,
+                             @Value("${expense.feed.heartbeat:PT30S}") Duration heartbeat,
+                             @Value("${expense.feed.timeout:PT30M}") Duration timeout,
+                             @Value("${expense.feed.subscriber-queue:1000}") int queueCapacity,
+                             @Value("${expense.feed.send-timeout:PT10S}") Duration sendTimeout) {
+        if (bufferRows < 1) {
+            throw new IllegalArgumentException("expense.feed.buffer-rows must be positive");
+        }
+        if (queueCapacity < 2) {
+            throw new IllegalArgumentException("expense.feed.subscriber-queue must be at least 2");
+        }
+        this.bufferRows = bufferRows;
+        this.timeoutMillis = timeout.toMillis();
+        this.queueCapacity = queueCapacity;
+        this.sendTimeoutNanos = sendTimeout.toNanos();
+        long period = heartbeat.toMillis();
+        dispatcher.scheduleAtFixedRate(this::heartbeat, period, period, TimeUnit.MILLISECONDS);
+        long check = Math.max(sendTimeout.toMillis() / 2, 1);
+        dispatcher.scheduleAtFixedRate(this::dropStuckSubscribers, check, check, TimeUnit.MILLISECONDS);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        lock.lock();
+        try {
+            Entry entry = new Entry(++sequence, event);
+            ring.addLast(entry);
+            bufferedRows += entry.rows;
+            while (bufferedRows > bufferRows && ring.size() > 1) {
+                bufferedRows -= ring.removeFirst().rows;
+            }
+            // Submitted under the lock so the dispatcher sees entries in sequence order
+            dispatcher.execute(() -> dispatch(entry));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Opens a subscription to the changes that concern expenses matching the filter, starting after
+     * {@code lastEventId} when given.
+     */
+    public SseEmitter subscribe(ExpenseFilter filter, String lastEventId) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter, filter, queueCapacity);
+        emitter.onCompletion(() -> discard(subscriber));
+        emitter.onTimeout(() -> discard(subscriber));
+        emitter.onError(ex -> discard(subscriber));
+        // Catching up runs on the dispatcher too, so it cannot interleave with live changes
+        dispatcher.execute(() -> open(subscriber, lastEventId));
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void destroy() {
+        dispatcher.shutdownNow();
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private void open(Subscriber subscriber, String lastEventId) {
+        List<Entry> missed = new ArrayList<>();
+        boolean reset = false;
+        lock.lock();
+        try {
+            subscriber.lastSent = sequence;
+            long from = resumePoint(lastEventId);
+            if (from >= 0) {
+                long oldest = ring.isEmpty() ? sequence + 1 : ring.peekFirst().sequence;
+                if (from + 1 < oldest) {
+                    reset = true;
+                } else {
+                    for (Entry entry : ring) {
+                        if (entry.sequence > from) {
+                            missed.add(entry);
+                        }
+                    }
+                }
+            } else {
+                reset = from == -2;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        List<SseEmitter.SseEventBuilder> events = new ArrayList<>();
+        // Commits the response headers, so the client knows it is connected
+        events.add(reset ? resetEvent(subscriber) : SseEmitter.event().comment("connected"));
+        for (Entry entry : missed) {
+            SseEmitter.SseEventBuilder event = event(entry, subscriber.filter);
+            if (event != null) {
+                events.add(event);
+            }
+        }
+        // More missed changes than the queue holds: reloading is cheaper for the client than the replay
+        if (events.size() > queueCapacity) {
+            events = Collections.singletonList(resetEvent(subscriber));
+        }
+        if (subscriber.closed) {
+            return;
+        }
+        subscribers.add(subscriber);
+        for (SseEmitter.SseEventBuilder event : events) {
+            enqueue(subscriber, event);
+        }
+    }
+
+    // Sequence to resume after; -1 for no Last-Event-ID, -2 for an id from another run (or unreadable)
+    private long resumePoint(String lastEventId) {
+        if (lastEventId == null || lastEventId.isEmpty()) {
+            return -1;
+        }
+        int dash = lastEventId.lastIndexOf('-');
+        if (dash < 0 || !lastEventId.substring(0, dash).equals(epoch)) {
+            return -2;
+        }
+        try {
+            long from = Long.parseLong(lastEventId.substring(dash + 1));
+            return from >= 0 && from <= sequence ? from : -2;
+        } catch (NumberFormatException ex) {
+            return -2;
+        }
+    }
+
+    private void dispatch(Entry entry) {
+        for (Subscriber subscriber : subscribers) {
+            if (entry.sequence > subscriber.lastSent) {
+                subscriber.lastSent = entry.sequence;
+                SseEmitter.SseEventBuilder event = event(entry, subscriber.filter);
+                if (event != null) {
+                    enqueue(subscriber, event);
+                }
+            }
+        }
+    }
+
+    private SseEmitter.SseEventBuilder event(Entry entry, ExpenseFilter filter) {
+        Map<String, Object> change = change(entry.event, filter);
+        if (change == null) {
+            return null;
+        }
+        return SseEmitter.event()
+                .id(id(entry.sequence))
+                .name(entry.event.getType().name().toLowerCase(Locale.ROOT))
+                .data(change, MediaType.APPLICATION_JSON);
+    }
+
+    private SseEmitter.SseEventBuilder resetEvent(Subscriber subscriber) {
+        return SseEmitter.event().id(id(subscriber.lastSent)).name(RESET).data("{}");
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            enqueue(subscriber, SseEmitter.event().comment("heartbeat"));
+        }
+    }
+
+    private void dropStuckSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers) {
+            long since = subscriber.sendingSince;
+            if (since != 0 && now - since > sendTimeoutNanos) {
+                disconnect(subscriber, null, "send timed out");
+            }
+        }
+    }
+
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (subscriber.closed) {
+            return;
+        }
+        if (!subscriber.queue.offer(event)) {
+            disconnect(subscriber, null, "fell behind");
+            return;
+        }
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    // At most one drain runs per subscriber, so its events are sent in the order they were queued
+    private void drain(Subscriber subscriber) {
+        do {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed && (event = subscriber.queue.poll()) != null) {
+                subscriber.sendingSince = System.nanoTime();
+                try {
+                    subscriber.emitter.send(event);
+                } catch (IOException | IllegalStateException ex) {
+                    disconnect(subscriber, ex, ex.getMessage());
+                } finally {
+                    subscriber.sendingSince = 0;
+                }
+            }
+            subscriber.draining.set(false);
+            // An event queued after the last poll but before the flag was cleared would otherwise wait
+        } while (!subscriber.closed && !subscriber.queue.isEmpty() && subscriber.draining.compareAndSet(false, true));
+    }
+
+    private void disconnect(Subscriber subscriber, Throwable error, String reason) {
+        if (subscriber.closed) {
+            return;
+        }
+        discard(subscriber);
+        // Completing waits for a send in progress on the same emitter, so it never runs on the dispatcher
+        senders.execute(() -> {
+            if (error != null) {
+                subscriber.emitter.completeWithError(error);
+            } else {
+                subscriber.emitter.complete();
+            }
+        });
+        log.debug("Dropped change feed subscriber: {}", reason);
+    }
+
+    private void discard(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+        subscriber.queue.clear();
+    }
+
+    private String id(long sequenceNumber) {
+        return epoch + "-" + sequenceNumber;
+    }
+
+    // The part of the change the filter sees: ids leaving the filtered view and rows entering it, or null
+    static Map<String, Object> change(ExpenseChangeEvent event, ExpenseFilter filter) {
+        List<Long> removed = new ArrayList<>();
+        for (ExpenseSnapshot expense : event.getRemoved()) {
+            if (filter.matches(expense)) {
+                removed.add(expense.getId());
+            }
+        }
+        List<ExpenseSnapshot> added = new ArrayList<>();
+        for (ExpenseSnapshot expense : event.getAdded()) {
+            if (filter.matches(expense)) {
+                added.add(expense);
+            }
+        }
+        if (removed.isEmpty() && added.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> change = new LinkedHashMap<>();
+        change.put("type", event.getType().name().toLowerCase(Locale.ROOT));
+        change.put("removed", removed);
+        change.put("added", added);
+        return change;
+    }
+
+    private static final class Entry {
+
+        final long sequence;
+        final ExpenseChangeEvent event;
+        final int rows;
+
+        Entry(long sequence, ExpenseChangeEvent event) {
+            this.sequence = sequence;
+            this.event = event;
+            this.rows = event.getRemoved().size() + event.getAdded().size();
+        }
+    }
+
+    private static final class Subscriber {
+
+        final SseEmitter emitter;
+        final ExpenseFilter filter;
+        final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        final AtomicBoolean draining = new AtomicBoolean();
+        // System.nanoTime() when the send in progress started, 0 when idle
+        volatile long sendingSince;
+        volatile boolean closed;
+        // Only touched by the dispatcher thread
+        long lastSent;
+
+        Subscriber(SseEmitter emitter, ExpenseFilter filter, int queueCapacity) {
+            this.emitter = emitter;
+            this.filter = filter;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+}
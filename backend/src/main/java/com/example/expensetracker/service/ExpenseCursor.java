@@ -0,0 +1,110 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.exception.InvalidCursorException;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Position in the (date DESC, id DESC) ordering used by cursor pagination.
+ * <p>
+ * A cursor remembers the key of a boundary row and the direction to read from it, so the next
+ * query can seek straight to that key instead of skipping OFFSET rows. Expenses without a date
+ * sort after every dated expense, matching H2's default NULL ordering for descending sorts.
+ * The token handed to clients is opaque; only this class knows its layout.
+ */
+public final class ExpenseCursor {
+
+    private static final String VERSION = "v1";
+
+    // Newest first; id breaks ties between expenses on the same date
+    static final Sort FORWARD_SORT = Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id"));
+    static final Sort BACKWARD_SORT = Sort.by(Sort.Order.asc("date"), Sort.Order.asc("id"));
+
+    private final LocalDate date;
+    private final long id;
+    private final boolean backward;
+
+    private ExpenseCursor(LocalDate date, long id, boolean backward) {
+        this.date = date;
+        this.id = id;
+        this.backward = backward;
+    }
+
+    // Cursor that reads the rows following the given expense
+    public static ExpenseCursor after(ExpenseSnapshot expense) {
+        return new ExpenseCursor(expense.getDate(), expense.getId(), false);
+    }
+
+    // Cursor that reads the rows preceding the given expense
+    public static ExpenseCursor before(ExpenseSnapshot expense) {
+        return new ExpenseCursor(expense.getDate(), expense.getId(), true);
+    }
+
+    public static ExpenseCursor decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            throw new InvalidCursorException("Malformed cursor", ex);
+        }
+        String[] parts = raw.split(":", -1);
+        if (parts.length != 4 || !VERSION.equals(parts[0])) {
+            throw new InvalidCursorException("Malformed cursor");
+        }
+        try {
+            LocalDate date = parts[1].isEmpty() ? null : LocalDate.ofEpochDay(Long.parseLong(parts[1]));
+            long id = Long.parseLong(parts[2]);
+            if (!"F".equals(parts[3]) && !"B".equals(parts[3])) {
+                throw new InvalidCursorException("Malformed cursor");
+            }
+            return new ExpenseCursor(date, id, "B".equals(parts[3]));
+        } catch (NumberFormatException | DateTimeException ex) {
+            throw new InvalidCursorException("Malformed cursor", ex);
+        }
+    }
+
+    public String encode() {
+        String raw = VERSION + ":" + (date == null ? "" : Long.toString(date.toEpochDay()))
+                + ":" + id + ":" + (backward ? "B" : "F");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isBackward() {
+        return backward;
+    }
+
+    // Sort to apply when reading from this cursor; backward reads run in ascending order and are reversed afterwards
+    Sort sort() {
+        return backward ? BACKWARD_SORT : FORWARD_SORT;
+    }
+
+    // Seek predicate selecting the rows strictly beyond this cursor in its reading direction
+    Specification<Expense> seek() {
+        return (root, query, cb) -> {
+            if (!backward) {
+                if (date == null) {
+                    return cb.and(cb.isNull(root.get("date")), cb.lessThan(root.get("id"), id));
+                }
+                return cb.or(
+                        cb.lessThan(root.get("date"), date),
+                        cb.and(cb.equal(root.get("date"), date), cb.lessThan(root.get("id"), id)),
+                        cb.isNull(root.get("date")));
+            }
+            if (date == null) {
+                return cb.or(
+                        cb.isNotNull(root.get("date")),
+                        cb.and(cb.isNull(root.get("date")), cb.greaterThan(root.get("id"), id)));
+            }
+            return cb.or(
+                    cb.greaterThan(root.get("date"), date),
+                    cb.and(cb.equal(root.get("date"), date), cb.greaterThan(root.get("id"), id)));
+        };
+    }
+}
@@ -0,0 +1,385 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.ExpenseAmountSketch;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Amount distribution (quantiles and histograms) per category and month, from one {@link AmountSketch}
+ * per (category, month).
+ * <p>
+ * The sketches are persisted as bucket counts in the expense_amount_sketch table. Like the rollups, the
+ * deltas are written from {@link ExpenseChangeEvent}s inside the writing transaction, so they commit or
+ * roll back with the change. A copy of every sketch is kept in memory, loaded from the table once the
+ * application is ready and then following the changes committed here. Changes committed by other instances
+ * sharing the database only reach the table, so the {@link ExpenseWatermarkService} reloads the copy when
+ * it sees their watermark bumps, within expense.cache.remote-check-interval. A query merges the sketches of
+ * the requested months and categories there, so its cost depends on the number of months and categories,
+ * not on the number of expenses. {@link #rebuild()} recomputes the table from the expense table. Ranges are
+ * whole months, the granularity of the sketches.
+ * <p>
+ * Loads and rebuilds hold every distribution stripe of the {@link SummaryLock}, so no delta is in flight
+ * while they read the table, and install the result before they commit. Each load starts a new generation:
+ * a delta written under an earlier generation had committed before that load read the table, so it is
+ * already included and is not applied to memory again.
+ * <p>
+ * Changing expense.distribution.relative-accuracy changes the bucket boundaries; rebuild after doing so.
+ */
+@Service
+public class ExpenseDistributionService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseDistributionService.class);
+
+    public static final Set<String> GROUP_BY_DIMENSIONS = Set.of("category", "month");
+
+    private static final String APPLY_DELTA_SQL =
+            "MERGE INTO expense_amount_sketch t USING (SELECT CAST(? AS INT) AS category_id, "
+                    + "CAST(? AS INT) AS period_year, CAST(? AS INT) AS period_month, CAST(? AS INT) AS bucket, "
+                    + "CAST(? AS BIGINT) AS bucket_count) s "
+                    + "ON t.category_id = s.category_id AND t.period_year = s.period_year "
+                    + "AND t.period_month = s.period_month AND t.bucket = s.bucket "
+                    + "WHEN MATCHED THEN UPDATE SET bucket_count = t.bucket_count + s.bucket_count "
+                    + "WHEN NOT MATCHED THEN INSERT (category_id, period_year, period_month, bucket, bucket_count) "
+                    + "VALUES (s.category_id, s.period_year, s.period_month, s.bucket, s.bucket_count)";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO expense_amount_sketch (category_id, period_year, period_month, bucket, bucket_count) "
+                    + "VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CategoryRegistry categoryRegistry;
+    private final SummaryLock summaryLock;
+    private final TransactionTemplate transactionTemplate;
+    private final double relativeAccuracy;
+    // Bucket arithmetic only; never holds counts
+    private final AmountSketch mapping;
+    private final StampedLock lock = new StampedLock();
+    private final Map<SketchKey, AmountSketch> sketches = new HashMap<>();
+    // Incremented by every load, under the write lock
+    private volatile long generation;
+
+    public ExpenseDistributionService(JdbcTemplate jdbcTemplate,
+                                      CategoryRegistry categoryRegistry,
+                                      SummaryLock summaryLock,
+                                      PlatformTransactionManager transactionManager,
+                                      @Value("${expense.distribution.relative-accuracy:0.01}") double relativeAccuracy) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryRegistry = categoryRegistry;
+        this.summaryLock = summaryLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Also runs after a failed rebuild, whose completed transaction must not be joined
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.relativeAccuracy = relativeAccuracy;
+        this.mapping = new AmountSketch(relativeAccuracy);
+    }
+
+    // Runs synchronously in the publisher's transaction; the in-memory sketches follow once it has committed
+    @EventListener
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        Map<BucketKey, Long> deltas = deltas(event);
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) ->
+                batch.add(new Object[]{key.categoryId, key.month.getYear(), key.month.getMonthValue(), key.bucket, delta}));
+        summaryLock.lockGroups(SummaryLock.Summary.DISTRIBUTION, deltas.keySet());
+        jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batch);
+
+        long seen = generation;
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(deltas, seen);
+                }
+            });
+        } else {
+            apply(deltas, seen);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    // Recompute every sketch from the active expenses, then reload the in-memory copy
+    @Transactional
+    public int rebuild() {
+        summaryLock.lockAll(SummaryLock.Summary.DISTRIBUTION);
+        // Memory is replaced before the commit; if the rebuild does not commit, restore it from the table
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    reload();
+                }
+            }
+        });
+        Map<BucketKey, long[]> counts = new HashMap<>();
+        jdbcTemplate.query("SELECT COALESCE(category_id, 0) AS category_id, date, amount FROM expense "
+                + "WHERE deleted = FALSE AND date IS NOT NULL", rs -> {
+            double amount = rs.getDouble("amount");
+            Double value = rs.wasNull() ? null : amount;
+            BucketKey key = new BucketKey(rs.getInt("category_id"),
+                    YearMonth.from(rs.getDate("date").toLocalDate()), mapping.bucketOf(ExpenseRollupService.toCents(value)));
+            counts.computeIfAbsent(key, k -> new long[1])[0]++;
+        });
+        jdbcTemplate.update("DELETE FROM expense_amount_sketch");
+        List<Object[]> batch = new ArrayList<>(counts.size());
+        counts.forEach((key, count) ->
+                batch.add(new Object[]{key.categoryId, key.month.getYear(), key.month.getMonthValue(), key.bucket, count[0]}));
+        jdbcTemplate.batchUpdate(INSERT_SQL, batch);
+        int sketchCount = load();
+        log.info("Rebuilt amount sketches: {} buckets in {} sketches", batch.size(), sketchCount);
+        return sketchCount;
+    }
+
+    /**
+     * Quantiles, and optionally a histogram of at most {@code bins} bins, of the amounts of the active
+     * expenses, grouped by "category" and/or "month" (an empty set yields one overall row), optionally
+     * restricted to a month range and a category.
+     */
+    public List<Map<String, Object>> distribution(Set<String> groupBy, YearMonth from, YearMonth to, String category,
+                                                  double[] quantiles, int bins) {
+        if (!GROUP_BY_DIMENSIONS.containsAll(groupBy)) {
+            throw new InvalidRequestException("groupBy supports only " + GROUP_BY_DIMENSIONS);
+        }
+        for (double q : quantiles) {
+            if (!(q >= 0 && q <= 1)) {
+                throw new InvalidRequestException("Quantiles must be between 0 and 1: " + q);
+            }
+        }
+        int categoryId = -1;
+        if (category != null && !category.trim().isEmpty()) {
+            Optional<Integer> id = categoryRegistry.findId(category);
+            if (!id.isPresent()) {
+                return new ArrayList<>();
+            }
+            categoryId = id.get();
+        }
+        boolean byCategory = groupBy.contains("category");
+        boolean byMonth = groupBy.contains("month");
+
+        // Merge the matching sketches per group; groups ordered by category id, then month
+        Map<SketchKey, AmountSketch> groups = new TreeMap<>();
+        long stamp = lock.readLock();
+        try {
+            for (Map.Entry<SketchKey, AmountSketch> entry : sketches.entrySet()) {
+                SketchKey key = entry.getKey();
+                if ((from != null && key.month.isBefore(from)) || (to != null && key.month.isAfter(to))
+                        || (categoryId >= 0 && key.categoryId != categoryId)) {
+                    continue;
+                }
+                SketchKey group = new SketchKey(byCategory ? key.categoryId : 0, byMonth ? key.month : null);
+                AmountSketch merged = groups.get(group);
+                if (merged == null) {
+                    groups.put(group, entry.getValue().copy());
+                } else {
+                    merged.merge(entry.getValue());
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        groups.forEach((group, sketch) -> {
+            if (sketch.isEmpty()) {
+                return;
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            if (byCategory) {
+                row.put("category", group.categoryId == 0 ? "" : categoryRegistry.nameOf(group.categoryId));
+            }
+            if (byMonth) {
+                row.put("month", group.month.toString());
+            }
+            row.put("count", sketch.getCount());
+            Map<String, BigDecimal> values = new LinkedHashMap<>();
+            for (double q : quantiles) {
+                values.put(quantileName(q), sketch.quantile(q));
+            }
+            row.put("quantiles", values);
+            if (bins > 0) {
+                row.put("histogram", sketch.histogram(bins));
+            }
+            rows.add(row);
+        });
+        if (byCategory) {
+            // Ordered by key above; present categories by name (the sort is stable)
+            rows.sort(Comparator.comparing(row -> (String) row.get("category")));
+        }
+        return rows;
+    }
+
+    public double getRelativeAccuracy() {
+        return relativeAccuracy;
+    }
+
+    // Replace the in-memory copy with the table, e.g. after other instances have changed it
+    public void reload() {
+        transactionTemplate.executeWithoutResult(status -> {
+            summaryLock.lockAll(SummaryLock.Summary.DISTRIBUTION);
+            load();
+        });
+    }
+
+    // Caller holds every stripe of the summary lock
+    private int load() {
+        Map<SketchKey, AmountSketch> loaded = new HashMap<>();
+        jdbcTemplate.query("SELECT category_id, period_year, period_month, bucket, bucket_count "
+                + "FROM expense_amount_sketch WHERE bucket_count <> 0", rs -> {
+            SketchKey key = new SketchKey(rs.getInt("category_id"),
+                    YearMonth.of(rs.getInt("period_year"), rs.getInt("period_month")));
+            loaded.computeIfAbsent(key, k -> new AmountSketch(relativeAccuracy))
+                    .addToBucket(rs.getInt("bucket"), rs.getLong("bucket_count"));
+        });
+        long stamp = lock.writeLock();
+        try {
+            sketches.clear();
+            sketches.putAll(loaded);
+            generation++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return loaded.size();
+    }
+
+    // Deltas of a committed transaction that began under generation seen
+    private void apply(Map<BucketKey, Long> deltas, long seen) {
+        long stamp = lock.writeLock();
+        try {
+            if (generation == seen) {
+                deltas.forEach((key, delta) -> sketchFor(key.categoryId, key.month).addToBucket(key.bucket, delta));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Caller holds the write lock
+    private AmountSketch sketchFor(int categoryId, YearMonth month) {
+        return sketches.computeIfAbsent(new SketchKey(categoryId, month), k -> new AmountSketch(relativeAccuracy));
+    }
+
+    private Map<BucketKey, Long> deltas(ExpenseChangeEvent event) {
+        Map<BucketKey, Long> deltas = new LinkedHashMap<>();
+        for (ExpenseSnapshot expense : event.getRemoved()) {
+            accumulate(deltas, expense, -1);
+        }
+        for (ExpenseSnapshot expense : event.getAdded()) {
+            accumulate(deltas, expense, 1);
+        }
+        return deltas;
+    }
+
+    private void accumulate(Map<BucketKey, Long> deltas, ExpenseSnapshot expense, int sign) {
+        if (expense.getDate() == null) {
+            return;
+        }
+        BucketKey key = new BucketKey(
+                expense.getCategory() == null ? 0 : categoryRegistry.register(expense.getCategory()),
+                YearMonth.from(expense.getDate()),
+                mapping.bucketOf(ExpenseRollupService.toCents(expense.getAmount())));
+        deltas.merge(key, (long) sign, Long::sum);
+    }
+
+    // "p50", "p99", "p99.9"
+    static String quantileName(double q) {
+        return "p" + BigDecimal.valueOf(q).movePointRight(2).stripTrailingZeros().toPlainString();
+    }
+
+    // One sketch: a category (0 for none) and a month (null when merged across months)
+    private static final class SketchKey implements Comparable<SketchKey> {
+
+        final int categoryId;
+        final YearMonth month;
+
+        SketchKey(int categoryId, YearMonth month) {
+            this.categoryId = categoryId;
+            this.month = month;
+        }
+
+        @Override
+        public int compareTo(SketchKey other) {
+            int byCategory = Integer.compare(categoryId, other.categoryId);
+            if (byCategory != 0 || month == null || other.month == null) {
+                return byCategory;
+            }
+            return month.compareTo(other.month);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SketchKey)) {
+                return false;
+            }
+            SketchKey key = (SketchKey) o;
+            return categoryId == key.categoryId && Objects.equals(month, key.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * categoryId + (month == null ? 0 : month.hashCode());
+        }
+    }
+
+    // One bucket of one sketch; same key as the expense_amount_sketch table
+    private static final class BucketKey {
+
+        final int categoryId;
+        final YearMonth month;
+        final int bucket;
+
+        BucketKey(int categoryId, YearMonth month, int bucket) {
+            this.categoryId = categoryId;
+            this.month = month;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            BucketKey key = (BucketKey) o;
+            return categoryId == key.categoryId && bucket == key.bucket && month.equals(key.month);
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * categoryId + month.hashCode()) * 31 + bucket;
+        }
+    }
+}
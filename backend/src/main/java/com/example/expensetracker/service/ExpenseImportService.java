@@ -0,0 +1,254 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.InvalidImportException;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.PersistenceException;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk ingest of expenses from a JSON array or a CSV upload.
+ * <p>
+ * Input is parsed and validated one row at a time; valid rows are buffered up to batch-size and
+ * written in a short transaction per batch. With pooled sequence ids and hibernate.jdbc.batch_size,
+ * each batch goes to the database as a handful of JDBC batches instead of one round trip per row.
+ * Invalid rows are skipped and reported with their row number.
+ */
+@Service
+public class ExpenseImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseImportService.class);
+
+    private static final List<String> CSV_COLUMNS = List.of("description", "amount", "date", "category");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final int maxErrors;
+
+    public ExpenseImportService(PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                @Value("${expense.import.batch-size:1000}") int batchSize,
+                                @Value("${expense.import.max-errors:1000}") int maxErrors) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.maxErrors = maxErrors;
+    }
+
+    // Import a JSON array of expense objects
+    public ImportResult importJson(InputStream in) throws IOException {
+        ImportResult result = new ImportResult(maxErrors);
+        Batch batch = new Batch(result);
+        long row = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new InvalidImportException("Expected a JSON array of expenses");
+            }
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                row++;
+                // Read one element as a tree so a malformed row cannot desynchronize the parser
+                JsonNode node = objectMapper.readTree(parser);
+                Expense expense;
+                try {
+                    expense = objectMapper.treeToValue(node, Expense.class);
+                } catch (JsonProcessingException ex) {
+                    result.reject(row, Collections.singletonList("Unreadable expense: " + ex.getOriginalMessage()));
+                    continue;
+                }
+                accept(row, expense, batch, result);
+            }
+        } catch (JsonParseException ex) {
+            // Rows before the syntax error have been imported; report where parsing stopped
+            batch.flush();
+            throw new InvalidImportException("Malformed JSON after row " + row + ": " + ex.getOriginalMessage(), ex);
+        }
+        batch.flush();
+        return result;
+    }
+
+    // Import CSV with a header row naming the description, amount, date and category columns (any order)
+    public ImportResult importCsv(InputStream in) throws IOException {
+        ImportResult result = new ImportResult(maxErrors);
+        Batch batch = new Batch(result);
+        CsvRecordReader reader = new CsvRecordReader(
+                new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+        try {
+            importCsvRecords(reader, batch, result);
+        } catch (CsvRecordReader.MalformedCsvException ex) {
+            batch.flush();
+            throw new InvalidImportException(ex.getMessage(), ex);
+        }
+        batch.flush();
+        return result;
+    }
+
+    private void importCsvRecords(CsvRecordReader reader, Batch batch, ImportResult result) throws IOException {
+        List<String> header = reader.next();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.keySet().containsAll(CSV_COLUMNS)) {
+            throw new InvalidImportException("CSV header must contain the columns " + CSV_COLUMNS);
+        }
+
+        long row = 0;
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            if (record.size() == 1 && record.get(0).isEmpty()) {
+                continue; // blank line
+            }
+            row++;
+            List<String> problems = new ArrayList<>();
+            Expense expense = new Expense();
+            expense.setDescription(emptyToNull(field(record, columns, "description")));
+            expense.setCategory(emptyToNull(field(record, columns, "category")));
+            String amount = emptyToNull(field(record, columns, "amount"));
+            if (amount != null) {
+                try {
+                    expense.setAmount(Double.valueOf(amount.trim()));
+                } catch (NumberFormatException ex) {
+                    problems.add("Amount is not a number: " + amount);
+                }
+            }
+            String date = emptyToNull(field(record, columns, "date"));
+            if (date != null) {
+                try {
+                    expense.setDate(LocalDate.parse(date.trim()));
+                } catch (DateTimeParseException ex) {
+                    problems.add("Date is not an ISO date (yyyy-MM-dd): " + date);
+                }
+            }
+            if (!problems.isEmpty()) {
+                result.reject(row, problems);
+                continue;
+            }
+            accept(row, expense, batch, result);
+        }
+    }
+
+    private void accept(long row, Expense expense, Batch batch, ImportResult result) {
+        Set<ConstraintViolation<Expense>> violations = validator.validate(expense);
+        if (!violations.isEmpty()) {
+            result.reject(row, violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.toList()));
+            return;
+        }
+        // Imported rows are always new, active expenses; version and last-modified time start over
+        expense.setId(null);
+        expense.setDeleted(false);
+        expense.setVersion(null);
+        expense.setLastModified(null);
+        batch.add(row, expense);
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        int index = columns.get(name);
+        return index < record.size() ? record.get(index) : null;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+
+    // Valid rows waiting to be written, with their input row numbers for error reporting
+    private final class Batch {
+
+        private final ImportResult result;
+        private final List<Expense> expenses = new ArrayList<>(batchSize);
+        private final List<Long> rows = new ArrayList<>(batchSize);
+
+        private Batch(ImportResult result) {
+            this.result = result;
+        }
+
+        void add(long row, Expense expense) {
+            expenses.add(expense);
+            rows.add(row);
+            if (expenses.size() >= batchSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (expenses.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    List<ExpenseSnapshot> snapshots = new ArrayList<>(expenses.size());
+                    for (Expense expense : expenses) {
+                        entityManager.persist(expense);
+                        snapshots.add(ExpenseSnapshot.of(expense));
+                    }
+                    entityManager.flush();
+                    eventPublisher.publishEvent(ExpenseChangeEvent.created(snapshots));
+                    // Detach the batch so the persistence context stays bounded by batch-size
+                    entityManager.clear();
+                });
+                result.addImported(expenses.size());
+            } catch (DataAccessException | PersistenceException | TransactionException ex) {
+                log.warn("Bulk import batch of {} rows failed", expenses.size(), ex);
+                List<String> message = Collections.singletonList("Batch rejected by the database: "
+                        + NestedExceptionUtils.getMostSpecificCause(ex).getMessage());
+                for (Long row : rows) {
+                    result.reject(row, message);
+                }
+            } finally {
+                expenses.clear();
+                rows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.IngestUnavailableException;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Group-commit write path for {@code POST /api/expenses} (expense.ingest.mode=group-commit).
+ * <p>
+ * Requests put their expense on a bounded queue and wait. A single writer thread drains the queue in
+ * groups of at most {@code max-batch} expenses, waiting up to {@code max-linger} for a group to fill,
+ * and writes each group in one transaction: with pooled sequence ids and hibernate.jdbc.batch_size the
+ * inserts go out as JDBC batches and the group shares one commit. Every request in the group is answered
+ * (with its id) only after that commit, so an acknowledgement is as durable as a direct write.
+ * <p>
+ * When the queue stays full for {@code enqueue-timeout} the request is refused with 503 and Retry-After,
+ * so overload pushes back on clients instead of growing the heap. If a group fails, its expenses are
+ * retried one transaction each, so one bad row only fails its own request.
+ */
+@Service
+@ConditionalOnProperty(name = "expense.ingest.mode", havingValue = "group-commit")
+public class ExpenseIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseIngestService.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlockingQueue<Pending> queue;
+    private final int maxBatch;
+    private final long maxLingerNanos;
+    private final Duration enqueueTimeout;
+    private final Duration ackTimeout;
+    private final DistributionSummary groupSizes;
+    private volatile boolean running;
+    private Thread writer;
+
+    public ExpenseIngestService(PlatformTransactionManager transactionManager,
+                                ApplicationEventPublisher eventPublisher,
+                                MeterRegistry meterRegistry,
+                                @Value("${expense.ingest.queue-capacity:10000}") int queueCapacity,
+                                @Value("${expense.ingest.max-batch:100}") int maxBatch,
+                                @Value("${expense.ingest.max-linger:PT0.005S}") Duration maxLinger,
+                                @Value("${expense.ingest.enqueue-timeout:PT0.1S}") Duration enqueueTimeout,
+                                @Value("${expense.ingest.ack-timeout:PT10S}") Duration ackTimeout) {
+        if (queueCapacity < 1 || maxBatch < 1) {
+            throw new IllegalArgumentException("expense.ingest.queue-capacity and max-batch must be positive");
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatch = maxBatch;
+        this.maxLingerNanos = maxLinger.toNanos();
+        this.enqueueTimeout = enqueueTimeout;
+        this.ackTimeout = ackTimeout;
+        Gauge.builder("expense.ingest.queue", queue, BlockingQueue::size)
+                .description("Expenses waiting for the group-commit writer")
+                .register(meterRegistry);
+        this.groupSizes = DistributionSummary.builder("expense.ingest.group.size")
+                .description("Expenses written per group commit")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::drain, "expense-ingest-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(ackTimeout.toMillis());
+        List<Pending> leftover = new ArrayList<>();
+        queue.drainTo(leftover);
+        for (Pending pending : leftover) {
+            pending.future.completeExceptionally(new IngestUnavailableException("Server is shutting down"));
+        }
+    }
+
+    /**
+     * Queues the expense for the next group and returns it, with its id, once that group has committed.
+     */
+    public Expense create(Expense expense) {
+        Pending pending = new Pending(expense);
+        try {
+            if (!queue.offer(pending, enqueueTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IngestUnavailableException("Write queue is full; retry later");
+            }
+            return pending.future.get(ackTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        } catch (TimeoutException ex) {
+            // The expense is still queued and may yet be written
+            throw new IngestUnavailableException("Write was not acknowledged within " + ackTimeout + "; it may still complete");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IngestUnavailableException("Interrupted while waiting for the write");
+        }
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    private void drain() {
+        List<Pending> group = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                // Take whatever is already queued, and wait up to max-linger for the group to fill
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (group.size() < maxBatch) {
+                    if (queue.drainTo(group, maxBatch - group.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                write(group);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Group-commit writer failed", ex);
+                for (Pending pending : group) {
+                    pending.future.completeExceptionally(ex);
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    private void write(List<Pending> group) {
+        groupSizes.record(group.size());
+        try {
+            commit(group);
+        } catch (RuntimeException ex) {
+            if (group.size() == 1) {
+                group.get(0).future.completeExceptionally(ex);
+                return;
+            }
+            log.warn("Group of {} expenses failed, retrying them one by one", group.size(), ex);
+            for (Pending pending : group) {
+                try {
+                    commit(Collections.singletonList(pending));
+                } catch (RuntimeException single) {
+                    pending.future.completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    // One transaction for the group; the futures complete only after it has committed
+    private void commit(List<Pending> group) {
+        List<Expense> saved = new ArrayList<>(group.size());
+        transactionTemplate.executeWithoutResult(status -> {
+            List<ExpenseSnapshot> snapshots = new ArrayList<>(group.size());
+            for (Pending pending : group) {
+                Expense expense = pending.expense;
+                expense.setId(null);
+                entityManager.persist(expense);
+                if (!expense.isDeleted()) {
+                    snapshots.add(ExpenseSnapshot.of(expense));
+                }
+                saved.add(expense);
+            }
+            entityManager.flush();
+            if (!snapshots.isEmpty()) {
+                eventPublisher.publishEvent(ExpenseChangeEvent.created(snapshots));
+            }
+            entityManager.clear();
+        });
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).future.complete(saved.get(i));
+        }
+    }
+
+    private static final class Pending {
+
+        final Expense expense;
+        final CompletableFuture<Expense> future = new CompletableFuture<>();
+
+        Pending(Expense expense) {
+            this.expense = expense;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.ExpenseNotFoundException;
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseBatchOperation;
+import com.example.expensetracker.model.ExpensePatch;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.sql.Date;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Set-based writes that skip the load-modify-save cycle of ExpenseService.
+ * <ul>
+ *   <li>{@link #patch} changes only the fields that were sent, in one UPDATE statement. The statement is wrapped
+ *   in H2's {@code OLD TABLE (...)}, so the same round trip also returns the pre-update row the change event
+ *   needs. The new version and image are derived from it rather than read back.</li>
+ *   <li>{@link #applyBatch} applies many updates and archives in one transaction: the affected rows are read and
+ *   locked with one SELECT ... FOR UPDATE, updates with the same set of fields share one JDBC batch, and archives
+ *   go through the archive store's set-based statements.</li>
+ * </ul>
+ * Both publish the usual {@link ExpenseChangeEvent}s, so rollups, caches and the watermark stay in step.
+ */
+@Service
+public class ExpenseMutationService {
+
+    private static final String COLUMNS = "id, description, amount, date, category_id, version";
+
+    // Ids per IN list when loading the rows of a batch
+    private static final int LOAD_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CategoryRegistry categoryRegistry;
+    private final ExpenseArchiveStore archiveStore;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final int maxOperations;
+
+    public ExpenseMutationService(JdbcTemplate jdbcTemplate,
+                                  CategoryRegistry categoryRegistry,
+                                  ExpenseArchiveStore archiveStore,
+                                  ApplicationEventPublisher eventPublisher,
+                                  Validator validator,
+                                  @Value("${expense.batch.max-operations:10000}") int maxOperations) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryRegistry = categoryRegistry;
+        this.archiveStore = archiveStore;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.maxOperations = maxOperations;
+    }
+
+    // Apply the fields present in the patch to an active expense; returns the expense as updated
+    @Transactional
+    public Expense patch(Long id, ExpensePatch patch) {
+        validate(patch);
+        if (patch.isEmpty()) {
+            throw new InvalidRequestException("A patch must set at least one of description, amount, date or category");
+        }
+
+        Timestamp now = Timestamp.from(Instant.now());
+        List<Object> args = new ArrayList<>();
+        StringBuilder update = new StringBuilder("UPDATE expense SET ").append(assignments(patch, args))
+                .append(", version = version + 1, last_modified = ? WHERE id = ? AND deleted = FALSE");
+        args.add(now);
+        args.add(id);
+        if (patch.getVersion() != null) {
+            update.append(" AND version = ?");
+            args.add(patch.getVersion());
+        }
+
+        List<VersionedRow> before = jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM OLD TABLE (" + update + ")", rowMapper(), args.toArray());
+        if (before.isEmpty()) {
+            throw missingOrStale(id);
+        }
+
+        VersionedRow row = before.get(0);
+        ExpenseSnapshot after = patch.applyTo(row.snapshot);
+        eventPublisher.publishEvent(ExpenseChangeEvent.updated(row.snapshot, after));
+
+        Expense expense = new Expense(after.getDescription(), after.getAmount(), after.getDate(), after.getCategory());
+        expense.setId(id);
+        expense.setVersion(row.version + 1);
+        expense.setLastModified(now.toInstant());
+        return expense;
+    }
+
+    // Apply every operation or none of them; returns the number of expenses updated and archived
+    @Transactional
+    public Map<String, Object> applyBatch(List<ExpenseBatchOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            throw new InvalidRequestException("A batch needs at least one operation");
+        }
+        if (operations.size() > maxOperations) {
+            throw new InvalidRequestException("A batch may hold at most " + maxOperations + " operations");
+        }
+        Set<Long> ids = new HashSet<>();
+        for (int i = 0; i < operations.size(); i++) {
+            ExpenseBatchOperation operation = operations.get(i);
+            if (!operation.isUpdate() && !operation.isArchive()) {
+                throw new InvalidRequestException("Operation " + i + ": op must be update, delete or archive");
+            }
+            if (operation.getId() == null) {
+                throw new InvalidRequestException("Operation " + i + ": id is required");
+            }
+            if (!ids.add(operation.getId())) {
+                throw new InvalidRequestException("Operation " + i + ": expense " + operation.getId() + " appears twice");
+            }
+            if (operation.isUpdate()) {
+                validate(operation);
+                if (operation.isEmpty()) {
+                    throw new InvalidRequestException("Operation " + i + ": an update must set at least one field");
+                }
+            }
+        }
+
+        Map<Long, VersionedRow> current = lockActive(ids);
+        Timestamp now = Timestamp.from(Instant.now());
+        // One JDBC batch per distinct SET clause; a mass recategorization is a single batch
+        Map<String, List<Object[]>> updates = new LinkedHashMap<>();
+        List<ExpenseSnapshot> updatedBefore = new ArrayList<>();
+        List<ExpenseSnapshot> updatedAfter = new ArrayList<>();
+        List<Long> archiveIds = new ArrayList<>();
+        List<ExpenseSnapshot> archived = new ArrayList<>();
+
+        for (ExpenseBatchOperation operation : operations) {
+            VersionedRow row = current.get(operation.getId());
+            if (row == null) {
+                throw new ExpenseNotFoundException(operation.getId());
+            }
+            if (operation.getVersion() != null && operation.getVersion() != row.version) {
+                throw new ObjectOptimisticLockingFailureException(Expense.class, operation.getId());
+            }
+            if (operation.isArchive()) {
+                archiveIds.add(operation.getId());
+                archived.add(row.snapshot);
+                continue;
+            }
+            List<Object> args = new ArrayList<>();
+            String sql = "UPDATE expense SET " + assignments(operation, args)
+                    + ", version = version + 1, last_modified = ? WHERE id = ?";
+            args.add(now);
+            args.add(operation.getId());
+            updates.computeIfAbsent(sql, key -> new ArrayList<>()).add(args.toArray());
+            updatedBefore.add(row.snapshot);
+            updatedAfter.add(operation.applyTo(row.snapshot));
+        }
+
+        updates.forEach((sql, batch) -> {
+            int[] counts = jdbcTemplate.batchUpdate(sql, batch);
+            for (int i = 0; i < counts.length; i++) {
+                // The rows are locked, so anything but one updated row means the data is not what was read
+                if (counts[i] != 1 && counts[i] != Statement.SUCCESS_NO_INFO) {
+                    throw new ObjectOptimisticLockingFailureException(Expense.class, batch.get(i)[batch.get(i).length - 1]);
+                }
+            }
+        });
+        if (!archiveIds.isEmpty() && archiveStore.archive(archiveIds) != archiveIds.size()) {
+            throw new IllegalStateException("Archived fewer expenses than were locked");
+        }
+
+        if (!updatedBefore.isEmpty()) {
+            eventPublisher.publishEvent(ExpenseChangeEvent.updated(updatedBefore, updatedAfter));
+        }
+        if (!archived.isEmpty()) {
+            eventPublisher.publishEvent(ExpenseChangeEvent.archived(archived));
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("updated", updatedBefore.size());
+        result.put("archived", archived.size());
+        return result;
+    }
+
+    // SET clause for the fields present in the patch; their values are appended to args
+    private String assignments(ExpensePatch patch, List<Object> args) {
+        List<String> columns = new ArrayList<>();
+        if (patch.getDescription() != null) {
+            columns.add("description = ?");
+            args.add(patch.getDescription());
+        }
+        if (patch.getAmount() != null) {
+            columns.add("amount = ?");
+            args.add(patch.getAmount());
+        }
+        if (patch.getDate() != null) {
+            columns.add("date = ?");
+            args.add(Date.valueOf(patch.getDate()));
+        }
+        if (patch.getCategory() != null) {
+            columns.add("category_id = ?");
+            args.add(categoryRegistry.register(patch.getCategory()));
+        }
+        return String.join(", ", columns);
+    }
+
+    // Current image and version of the active expenses among ids, locked until the transaction ends
+    private Map<Long, VersionedRow> lockActive(Collection<Long> ids) {
+        Map<Long, VersionedRow> rows = new HashMap<>();
+        List<Long> pending = new ArrayList<>(ids);
+        for (int from = 0; from < pending.size(); from += LOAD_CHUNK_SIZE) {
+            List<Long> chunk = pending.subList(from, Math.min(from + LOAD_CHUNK_SIZE, pending.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+            for (VersionedRow row : jdbcTemplate.query(
+                    "SELECT " + COLUMNS + " FROM expense WHERE deleted = FALSE AND id IN (" + placeholders + ") FOR UPDATE",
+                    rowMapper(), chunk.toArray())) {
+                rows.put(row.snapshot.getId(), row);
+            }
+        }
+        return rows;
+    }
+
+    // Nothing was updated: tell a missing expense from one whose version moved on
+    private RuntimeException missingOrStale(Long id) {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM expense WHERE id = ? AND deleted = FALSE", Long.class, id);
+        return versions.isEmpty()
+                ? new ExpenseNotFoundException(id)
+                : new ObjectOptimisticLockingFailureException(Expense.class, id);
+    }
+
+    private void validate(ExpensePatch patch) {
+        Set<ConstraintViolation<ExpensePatch>> violations = validator.validate(patch);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+    }
+
+    private RowMapper<VersionedRow> rowMapper() {
+        return (rs, rowNum) -> {
+            int categoryId = rs.getInt("category_id");
+            String category = rs.wasNull() ? null : categoryRegistry.nameOf(categoryId);
+            double amount = rs.getDouble("amount");
+            Double boxedAmount = rs.wasNull() ? null : amount;
+            Date date = rs.getDate("date");
+            ExpenseSnapshot snapshot = new ExpenseSnapshot(rs.getLong("id"), rs.getString("description"),
+                    boxedAmount, date == null ? null : date.toLocalDate(), category);
+            return new VersionedRow(snapshot, rs.getLong("version"));
+        };
+    }
+
+    private static final class VersionedRow {
+        private final ExpenseSnapshot snapshot;
+        private final long version;
+
+        VersionedRow(ExpenseSnapshot snapshot, long version) {
+            this.snapshot = snapshot;
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache in front of ExpenseService reads.
+ * <ul>
+ *   <li>{@code byId} - single expenses, bounded by entry count. Entries are detached copies, never the
+ *   loading request's managed entity, and every hit gets a copy of its own, so no request can change what
+ *   the others are served.</li>
+ *   <li>{@code pages} - filtered page results (offset and cursor), bounded by total number of cached rows.</li>
+ * </ul>
+ * Both have a time-to-live and can be switched off individually (expense.cache.*.enabled) or together
+ * (expense.cache.enabled). Invalidation is driven by committed {@link ExpenseChangeEvent}s: a changed
+ * expense evicts its own id and every cached page whose filter matches its old or new image.
+ * <p>
+ * Changes committed by other instances publish no event here; {@link ExpenseWatermarkService} notices them
+ * in the shared watermark and clears both caches, so they show up within
+ * expense.cache.remote-check-interval rather than after the time-to-live.
+ * <p>
+ * A load that races with a commit must not re-populate the cache with the value it read before the
+ * commit, so every invalidation bumps a generation counter and loads only store their result if the
+ * generation is unchanged since they started.
+ */
+@Component
+public class ExpenseReadCache {
+
+    private final Cache<Long, Expense> byId;
+    private final Cache<PageKey, Object> pages;
+    private final AtomicLong generation = new AtomicLong();
+
+    public ExpenseReadCache(@Value("${expense.cache.enabled:true}") boolean enabled,
+                            @Value("${expense.cache.by-id.enabled:true}") boolean byIdEnabled,
+                            @Value("${expense.cache.by-id.maximum-size:10000}") long byIdMaximumSize,
+                            @Value("${expense.cache.by-id.expire-after-write:PT10M}") Duration byIdTtl,
+                            @Value("${expense.cache.pages.enabled:true}") boolean pagesEnabled,
+                            @Value("${expense.cache.pages.maximum-weight:100000}") long pagesMaximumWeight,
+                            @Value("${expense.cache.pages.expire-after-write:PT1M}") Duration pagesTtl) {
+        this.byId = enabled && byIdEnabled
+                ? Caffeine.newBuilder()
+                        .maximumSize(byIdMaximumSize)
+                        .expireAfterWrite(byIdTtl)
+                        .recordStats()
+                        .build()
+                : null;
+        this.pages = enabled && pagesEnabled
+                ? Caffeine.newBuilder()
+                        .maximumWeight(pagesMaximumWeight)
+                        // A page weighs as much as the rows it holds (plus one so empty pages count)
+                        .weigher((PageKey key, Object page) -> 1 + rowCount(page))
+                        .expireAfterWrite(pagesTtl)
+                        .recordStats()
+                        .build()
+                : null;
+    }
+
+    public Expense getById(Long id, Supplier<Expense> loader) {
+        if (byId == null) {
+            return loader.get();
+        }
+        Expense cached = byId.getIfPresent(id);
+        if (cached != null) {
+            return copyOf(cached);
+        }
+        long startedAt = generation.get();
+        Expense loaded = loader.get();
+        if (loaded != null && generation.get() == startedAt) {
+            byId.put(id, copyOf(loaded));
+        }
+        return loaded;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getPage(ExpenseFilter filter, List<Object> position, Supplier<T> loader) {
+        if (pages == null) {
+            return loader.get();
+        }
+        PageKey key = new PageKey(filter, position);
+        Object cached = pages.getIfPresent(key);
+        if (cached != null) {
+            return (T) cached;
+        }
+        long startedAt = generation.get();
+        T loaded = loader.get();
+        if (loaded != null && generation.get() == startedAt) {
+            pages.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    // Evict exactly what a committed change can affect
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        generation.incrementAndGet();
+        List<ExpenseSnapshot> changed = new ArrayList<>(event.getRemoved());
+        changed.addAll(event.getAdded());
+        if (byId != null) {
+            for (ExpenseSnapshot expense : changed) {
+                byId.invalidate(expense.getId());
+            }
+        }
+        if (pages != null) {
+            pages.asMap().keySet().removeIf(key -> changed.stream().anyMatch(key.filter::matches));
+        }
+    }
+
+    public boolean isEnabled() {
+        return byId != null || pages != null;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        if (byId != null) {
+            byId.invalidateAll();
+        }
+        if (pages != null) {
+            pages.invalidateAll();
+        }
+    }
+
+    private static Expense copyOf(Expense expense) {
+        Expense copy = new Expense(expense.getDescription(), expense.getAmount(), expense.getDate(),
+                expense.getCategory());
+        copy.setId(expense.getId());
+        copy.setDeleted(expense.isDeleted());
+        copy.setVersion(expense.getVersion());
+        copy.setLastModified(expense.getLastModified());
+        return copy;
+    }
+
+    // Hit/miss/eviction counters per cache, for the stats endpoint
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        if (byId != null) {
+            stats.put("byId", describe(byId.stats(), byId.estimatedSize()));
+        }
+        if (pages != null) {
+            stats.put("pages", describe(pages.stats(), pages.estimatedSize()));
+        }
+        return stats;
+    }
+
+    // Underlying caches for metrics binding; null when the cache is disabled
+    public Cache<?, ?> byIdCache() {
+        return byId;
+    }
+
+    public Cache<?, ?> pagesCache() {
+        return pages;
+    }
+
+    private static Map<String, Object> describe(CacheStats stats, long size) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("size", size);
+        description.put("hits", stats.hitCount());
+        description.put("misses", stats.missCount());
+        description.put("hitRate", stats.hitRate());
+        description.put("evictions", stats.evictionCount());
+        description.put("evictionWeight", stats.evictionWeight());
+        return description;
+    }
+
+    private static int rowCount(Object page) {
+        if (page instanceof Page) {
+            return ((Page<?>) page).getNumberOfElements();
+        }
+        if (page instanceof CursorPage) {
+            return ((CursorPage<?>) page).getContent().size();
+        }
+        return 0;
+    }
+
+    // Filter plus the position within its result (page/size, or cursor/size)
+    static final class PageKey {
+
+        private final ExpenseFilter filter;
+        private final List<Object> position;
+
+        PageKey(ExpenseFilter filter, List<Object> position) {
+            this.filter = filter;
+            this.position = position;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PageKey)) {
+                return false;
+            }
+            PageKey that = (PageKey) o;
+            return filter.equals(that.filter) && position.equals(that.position);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, position);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.ExpenseRollup;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Maintains the expense_rollup table (count and total per category and month of active expenses)
+ * and answers summary queries from it, so dashboards cost O(groups) instead of O(rows).
+ * <p>
+ * Deltas are applied from {@link ExpenseChangeEvent}s inside the writing transaction, so a rollup
+ * change commits or rolls back together with the expense change that caused it. {@link #rebuild()}
+ * recomputes the table from scratch for recovery, or after rows were written around the services; the
+ * {@link SummaryLock} keeps it from running while deltas are in flight.
+ */
+@Service
+public class ExpenseRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseRollupService.class);
+
+    public static final Set<String> GROUP_BY_DIMENSIONS = Set.of("category", "year", "month");
+
+    // Upsert that adds a delta to a rollup row, creating the row on first use
+    private static final String APPLY_DELTA_SQL =
+            "MERGE INTO expense_rollup t USING (SELECT CAST(? AS INT) AS category_id, "
+                    + "CAST(? AS INT) AS period_year, CAST(? AS INT) AS period_month, "
+                    + "CAST(? AS BIGINT) AS expense_count, CAST(? AS BIGINT) AS total_cents) s "
+                    + "ON t.category_id = s.category_id AND t.period_year = s.period_year AND t.period_month = s.period_month "
+                    + "WHEN MATCHED THEN UPDATE SET expense_count = t.expense_count + s.expense_count, "
+                    + "total_cents = t.total_cents + s.total_cents "
+                    + "WHEN NOT MATCHED THEN INSERT (category_id, period_year, period_month, expense_count, total_cents) "
+                    + "VALUES (s.category_id, s.period_year, s.period_month, s.expense_count, s.total_cents)";
+
+    private static final String REBUILD_SQL =
+            "INSERT INTO expense_rollup (category_id, period_year, period_month, expense_count, total_cents) "
+                    + "SELECT COALESCE(category_id, 0), YEAR(date), MONTH(date), COUNT(*), "
+                    + "COALESCE(SUM(CAST(ROUND(amount * 100) AS BIGINT)), 0) "
+                    + "FROM expense WHERE deleted = FALSE AND date IS NOT NULL "
+                    + "GROUP BY COALESCE(category_id, 0), YEAR(date), MONTH(date)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CategoryRegistry categoryRegistry;
+    private final SummaryLock summaryLock;
+
+    public ExpenseRollupService(JdbcTemplate jdbcTemplate, CategoryRegistry categoryRegistry, SummaryLock summaryLock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.categoryRegistry = categoryRegistry;
+        this.summaryLock = summaryLock;
+    }
+
+    // Runs synchronously in the publisher's transaction
+    @EventListener
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        Map<ExpenseRollup.Key, long[]> deltas = new LinkedHashMap<>();
+        for (ExpenseSnapshot expense : event.getRemoved()) {
+            accumulate(deltas, expense, -1);
+        }
+        for (ExpenseSnapshot expense : event.getAdded()) {
+            accumulate(deltas, expense, 1);
+        }
+
+        List<Object[]> batch = new ArrayList<>(deltas.size());
+        List<ExpenseRollup.Key> groups = new ArrayList<>(deltas.size());
+        deltas.forEach((key, delta) -> {
+            // An update that did not move the expense between groups or change its amount is a no-op
+            if (delta[0] != 0 || delta[1] != 0) {
+                batch.add(new Object[]{key.getCategoryId(), key.getPeriodYear(), key.getPeriodMonth(), delta[0], delta[1]});
+                groups.add(key);
+            }
+        });
+        if (!batch.isEmpty()) {
+            summaryLock.lockGroups(SummaryLock.Summary.ROLLUPS, groups);
+            jdbcTemplate.batchUpdate(APPLY_DELTA_SQL, batch);
+        }
+    }
+
+    // Recompute every rollup row from the active expenses
+    @Transactional
+    public int rebuild() {
+        summaryLock.lockAll(SummaryLock.Summary.ROLLUPS);
+        jdbcTemplate.update("DELETE FROM expense_rollup");
+        int groups = jdbcTemplate.update(REBUILD_SQL);
+        log.info("Rebuilt expense rollups: {} groups", groups);
+        return groups;
+    }
+
+    /**
+     * Sum the rollups over the requested dimensions ("category", "year", "month"; an empty set
+     * yields a single grand total), optionally restricted to a month range and a category.
+     */
+    @Transactional(readOnly = true)
+    public List<Map<String, Object>> summarize(Set<String> groupBy, YearMonth from, YearMonth to, String category) {
+        if (!GROUP_BY_DIMENSIONS.containsAll(groupBy)) {
+            throw new InvalidRequestException("groupBy supports only " + GROUP_BY_DIMENSIONS);
+        }
+        boolean byCategory = groupBy.contains("category");
+        boolean byMonth = groupBy.contains("month");
+        boolean byYear = byMonth || groupBy.contains("year");
+
+        List<String> columns = new ArrayList<>();
+        if (byCategory) {
+            columns.add("category_id");
+        }
+        if (byYear) {
+            columns.add("period_year");
+        }
+        if (byMonth) {
+            columns.add("period_month");
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (String column : columns) {
+            sql.append(column).append(", ");
+        }
+        sql.append("SUM(expense_count) AS expense_count, SUM(total_cents) AS total_cents FROM expense_rollup WHERE 1 = 1");
+        List<Object> args = new ArrayList<>();
+        if (from != null) {
+            sql.append(" AND period_year * 100 + period_month >= ?");
+            args.add(from.getYear() * 100 + from.getMonthValue());
+        }
+        if (to != null) {
+            sql.append(" AND period_year * 100 + period_month <= ?");
+            args.add(to.getYear() * 100 + to.getMonthValue());
+        }
+        if (category != null && !category.trim().isEmpty()) {
+            Optional<Integer> categoryId = categoryRegistry.findId(category);
+            if (!categoryId.isPresent()) {
+                return new ArrayList<>();
+            }
+            sql.append(" AND category_id = ?");
+            args.add(categoryId.get());
+        }
+        if (!columns.isEmpty()) {
+            sql.append(" GROUP BY ").append(String.join(", ", columns));
+        }
+        // Groups whose expenses have all been archived keep a zero row; hide them
+        sql.append(" HAVING SUM(expense_count) <> 0");
+        if (!columns.isEmpty()) {
+            sql.append(" ORDER BY ").append(String.join(", ", columns));
+        }
+
+        List<Map<String, Object>> rows = jdbcTemplate.query(sql.toString(), (rs, rowNum) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            if (byCategory) {
+                int categoryId = rs.getInt("category_id");
+                row.put("category", categoryId == 0 ? "" : categoryRegistry.nameOf(categoryId));
+            }
+            if (byMonth) {
+                row.put("month", YearMonth.of(rs.getInt("period_year"), rs.getInt("period_month")).toString());
+            } else if (byYear) {
+                row.put("year", rs.getInt("period_year"));
+            }
+            row.put("count", rs.getLong("expense_count"));
+            row.put("total", fromCents(rs.getLong("total_cents")));
+            return row;
+        }, args.toArray());
+        if (byCategory) {
+            // Grouped and ordered by key in SQL; present categories by name (the sort is stable)
+            rows.sort(Comparator.comparing(row -> (String) row.get("category")));
+        }
+        return rows;
+    }
+
+    private void accumulate(Map<ExpenseRollup.Key, long[]> deltas, ExpenseSnapshot expense, int sign) {
+        if (expense.getDate() == null) {
+            return;
+        }
+        ExpenseRollup.Key key = new ExpenseRollup.Key(
+                expense.getCategory() == null ? 0 : categoryRegistry.register(expense.getCategory()),
+                expense.getDate().getYear(),
+                expense.getDate().getMonthValue());
+        long[] delta = deltas.computeIfAbsent(key, k -> new long[2]);
+        delta[0] += sign;
+        delta[1] += sign * toCents(expense.getAmount());
+    }
+
+    static long toCents(Double amount) {
+        return amount == null ? 0 : Math.round(amount * 100);
+    }
+
+    static BigDecimal fromCents(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+}
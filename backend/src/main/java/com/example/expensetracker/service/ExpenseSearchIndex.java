@@ -0,0 +1,597 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Date;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * In-memory inverted index over the descriptions of the active expenses, for ranked full-text search.
+ * <p>
+ * Descriptions are split into lower-case, accent-free terms. Every term maps to a posting list of
+ * document numbers (ascending) and term frequencies; a sorted term dictionary answers prefix terms
+ * ({@code coff*}) by walking the range of terms that start with the prefix. All query terms must
+ * match, and hits are ranked by BM25. Date, amount and category filters are checked against primitive
+ * columns held next to the postings (as in {@link ExpenseAnalyticsEngine}), so a search never touches
+ * the database until the page of ids has been chosen.
+ * <p>
+ * Postings are append-only: an update or delete marks the old document number dead and an update
+ * appends a new one. Dead documents are skipped at query time and dropped by the next rebuild, which
+ * reloads the index from the expense table after startup, on {@code expense.search.rebuild-cron} and
+ * on {@link #rebuild()}. The rebuild reads the table without blocking searches; changes committed in
+ * the meantime are replayed onto the new index before it replaces the old one.
+ * <p>
+ * The index belongs to one instance and follows only the changes committed through that instance. With
+ * several instances sharing the database, another instance's writes (and rows written around the services)
+ * show up here only after the next rebuild, so such deployments should shorten the rebuild cron to the
+ * staleness they can accept, or leave search disabled.
+ */
+@Component
+@ConditionalOnProperty(name = "expense.search.enabled", havingValue = "true")
+public class ExpenseSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseSearchIndex.class);
+
+    // BM25 parameters: term frequency saturation and description length normalization
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int minPrefixLength;
+    private final StampedLock lock = new StampedLock();
+    // Only one rebuild at a time
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private Segment segment = new Segment();
+    // Non-null while a rebuild is reading the table: changes to replay onto the new segment
+    private List<ExpenseChangeEvent> pending;
+
+    public ExpenseSearchIndex(JdbcTemplate jdbcTemplate,
+                              @Value("${expense.search.min-prefix-length:2}") int minPrefixLength) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.minPrefixLength = Math.max(minPrefixLength, 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(cron = "${expense.search.rebuild-cron:0 30 0 * * ?}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Builds a fresh index from the active rows of the expense table and swaps it in.
+     * Returns the number of indexed expenses.
+     */
+    public int rebuild() {
+        rebuildLock.lock();
+        try {
+            long stamp = lock.writeLock();
+            try {
+                pending = new ArrayList<>();
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+
+            Segment fresh = new Segment();
+            try {
+                jdbcTemplate.query("SELECT e.id, e.description, e.date, e.amount, c.name AS category FROM expense e "
+                        + "LEFT JOIN category c ON c.id = e.category_id WHERE e.deleted = FALSE ORDER BY e.id", rs -> {
+                    Date date = rs.getDate("date");
+                    double amount = rs.getDouble("amount");
+                    fresh.add(rs.getLong("id"), rs.getString("description"),
+                            date == null ? null : date.toLocalDate(),
+                            rs.wasNull() ? null : amount,
+                            rs.getString("category"));
+                });
+            } catch (RuntimeException ex) {
+                stamp = lock.writeLock();
+                pending = null;
+                lock.unlockWrite(stamp);
+                throw ex;
+            }
+
+            stamp = lock.writeLock();
+            try {
+                for (ExpenseChangeEvent event : pending) {
+                    fresh.apply(event);
+                }
+                pending = null;
+                segment = fresh;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+            log.info("Indexed {} active expenses ({} terms) for full-text search", fresh.liveCount, fresh.terms.size());
+            return fresh.liveCount;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        long stamp = lock.writeLock();
+        try {
+            segment.apply(event);
+            if (pending != null) {
+                pending.add(event);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Ids of the active expenses whose description contains every term of the query and that match the
+     * filter, best match first, skipping {@code offset} hits and returning at most {@code limit}.
+     * A term ending in {@code *} matches every term that starts with it.
+     */
+    public Hits search(String query, ExpenseFilter filter, int offset, int limit) {
+        List<QueryTerm> queryTerms = parse(query);
+        if (queryTerms.isEmpty()) {
+            return new Hits(Collections.emptyList(), new float[0], 0);
+        }
+        long stamp = lock.readLock();
+        try {
+            return segment.search(queryTerms, filter, offset, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return segment.liveCount;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private List<QueryTerm> parse(String query) {
+        List<QueryTerm> queryTerms = new ArrayList<>();
+        if (query == null) {
+            return queryTerms;
+        }
+        for (String word : query.trim().split("\\s+")) {
+            boolean prefix = word.endsWith("*");
+            List<String> tokens = tokenize(prefix ? word.substring(0, word.length() - 1) : word);
+            for (int i = 0; i < tokens.size(); i++) {
+                // In "e-mail*" only the last part is a prefix
+                boolean isPrefix = prefix && i == tokens.size() - 1;
+                String token = tokens.get(i);
+                if (isPrefix && token.length() < minPrefixLength) {
+                    throw new InvalidRequestException(
+                            "Prefix terms need at least " + minPrefixLength + " characters: " + word);
+                }
+                queryTerms.add(new QueryTerm(token, isPrefix));
+            }
+        }
+        return queryTerms;
+    }
+
+    // Lower-case terms of letters and digits, with accents removed so "cafe" finds "Café"
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD).toLowerCase(Locale.ROOT);
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * One page of search hits: ids and BM25 scores in rank order, and the total number of matches.
+     */
+    public static final class Hits {
+
+        private final List<Long> ids;
+        private final float[] scores;
+        private final int total;
+
+        Hits(List<Long> ids, float[] scores, int total) {
+            this.ids = ids;
+            this.scores = scores;
+            this.total = total;
+        }
+
+        public List<Long> getIds() {
+            return ids;
+        }
+
+        public float getScore(int index) {
+            return scores[index];
+        }
+
+        public int getTotal() {
+            return total;
+        }
+    }
+
+    private static final class QueryTerm {
+
+        final String text;
+        final boolean prefix;
+
+        QueryTerm(String text, boolean prefix) {
+            this.text = text;
+            this.prefix = prefix;
+        }
+    }
+
+    // Document numbers in ascending order and their term frequencies
+    private static final class Postings {
+
+        int[] docs = new int[4];
+        int[] freqs = new int[4];
+        int size;
+
+        void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+
+        // Index of doc at or after from, or size; gallops ahead before the binary search
+        int advance(int from, int doc) {
+            int bound = 1;
+            int low = from;
+            while (low + bound < size && docs[low + bound] < doc) {
+                low += bound;
+                bound <<= 1;
+            }
+            int index = Arrays.binarySearch(docs, low, Math.min(low + bound + 1, size), doc);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+
+    private static final class Segment {
+
+        private long[] ids = new long[INITIAL_CAPACITY];
+        private int[] lengths = new int[INITIAL_CAPACITY];
+        private int[] days = new int[INITIAL_CAPACITY];
+        private long[] cents = new long[INITIAL_CAPACITY];
+        private int[] categories = new int[INITIAL_CAPACITY];
+        private final BitSet dead = new BitSet();
+        private int docCount;
+        private int liveCount;
+        private long liveLength;
+        private final Map<Long, Integer> docById = new HashMap<>();
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+        private final Map<String, Integer> categoryIds = new HashMap<>();
+
+        void apply(ExpenseChangeEvent event) {
+            for (ExpenseSnapshot expense : event.getRemoved()) {
+                remove(expense.getId());
+            }
+            for (ExpenseSnapshot expense : event.getAdded()) {
+                add(expense.getId(), expense.getDescription(), expense.getDate(), expense.getAmount(),
+                        expense.getCategory());
+            }
+        }
+
+        void add(long id, String description, LocalDate date, Double amount, String category) {
+            remove(id);
+            if (docCount == ids.length) {
+                int grown = docCount * 2;
+                ids = Arrays.copyOf(ids, grown);
+                lengths = Arrays.copyOf(lengths, grown);
+                days = Arrays.copyOf(days, grown);
+                cents = Arrays.copyOf(cents, grown);
+                categories = Arrays.copyOf(categories, grown);
+            }
+            int doc = docCount++;
+            List<String> tokens = tokenize(description);
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            frequencies.forEach((term, freq) -> terms.computeIfAbsent(term, t -> new Postings()).add(doc, freq));
+
+            ids[doc] = id;
+            lengths[doc] = tokens.size();
+            days[doc] = date == null ? ExpenseAnalyticsEngine.NO_DATE : (int) date.toEpochDay();
+            cents[doc] = ExpenseRollupService.toCents(amount);
+            categories[doc] = categoryIds.computeIfAbsent(category, c -> categoryIds.size());
+            docById.put(id, doc);
+            liveCount++;
+            liveLength += tokens.size();
+        }
+
+        void remove(long id) {
+            Integer doc = docById.remove(id);
+            if (doc == null) {
+                return;
+            }
+            dead.set(doc);
+            liveCount--;
+            liveLength -= lengths[doc];
+        }
+
+        Hits search(List<QueryTerm> queryTerms, ExpenseFilter filter, int offset, int limit) {
+            Filter bounds = Filter.compile(filter, categoryIds);
+            if (bounds == null) {
+                return new Hits(Collections.emptyList(), new float[0], 0);
+            }
+            // Each query term becomes the posting lists it expands to; cheapest first, so the
+            // candidate set starts small and later terms only probe it
+            List<List<Postings>> groups = new ArrayList<>();
+            for (QueryTerm queryTerm : queryTerms) {
+                Collection<Postings> expansion;
+                if (queryTerm.prefix) {
+                    expansion = terms.subMap(queryTerm.text, true, queryTerm.text + Character.MAX_VALUE, false).values();
+                } else {
+                    Postings postings = terms.get(queryTerm.text);
+                    expansion = postings == null ? Collections.emptyList() : Collections.singletonList(postings);
+                }
+                if (expansion.isEmpty()) {
+                    return new Hits(Collections.emptyList(), new float[0], 0);
+                }
+                groups.add(new ArrayList<>(expansion));
+            }
+            groups.sort((a, b) -> Long.compare(cost(a), cost(b)));
+
+            float averageLength = liveCount == 0 ? 1f : Math.max((float) liveLength / liveCount, 1f);
+            Candidates candidates = union(groups.get(0), bounds, averageLength);
+            for (int i = 1; i < groups.size() && candidates.size > 0; i++) {
+                candidates = intersect(candidates, groups.get(i), averageLength);
+            }
+            return top(candidates, offset, limit);
+        }
+
+        // Live documents passing the filter that contain any of the terms, with their best score
+        private Candidates union(List<Postings> group, Filter bounds, float averageLength) {
+            long total = cost(group);
+            long[] packed = new long[(int) Math.min(total, docCount)];
+            int count = 0;
+            for (Postings postings : group) {
+                float idf = idf(postings);
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    if (dead.get(doc) || !bounds.matches(days[doc], cents[doc], categories[doc])) {
+                        continue;
+                    }
+                    if (count == packed.length) {
+                        packed = Arrays.copyOf(packed, Math.max(count * 2, 16));
+                    }
+                    // Scores are positive, so their float bits order like the floats themselves
+                    float score = score(idf, postings.freqs[i], lengths[doc], averageLength);
+                    packed[count++] = ((long) doc << 32) | Float.floatToIntBits(score);
+                }
+            }
+            Arrays.sort(packed, 0, count);
+            Candidates candidates = new Candidates(count);
+            for (int i = 0; i < count; i++) {
+                int doc = (int) (packed[i] >>> 32);
+                float score = Float.intBitsToFloat((int) packed[i]);
+                if (candidates.size > 0 && candidates.docs[candidates.size - 1] == doc) {
+                    // Sorted by score within a doc, so the last expansion seen is the best one
+                    candidates.scores[candidates.size - 1] = score;
+                } else {
+                    candidates.docs[candidates.size] = doc;
+                    candidates.scores[candidates.size] = score;
+                    candidates.size++;
+                }
+            }
+            return candidates;
+        }
+
+        // Candidates that also contain one of the terms, with the best of those terms' scores added
+        private Candidates intersect(Candidates candidates, List<Postings> group, float averageLength) {
+            float[] best = new float[candidates.size];
+            Arrays.fill(best, -1f);
+            for (Postings postings : group) {
+                float idf = idf(postings);
+                int position = 0;
+                for (int i = 0; i < candidates.size && position < postings.size; i++) {
+                    int doc = candidates.docs[i];
+                    position = postings.advance(position, doc);
+                    if (position < postings.size && postings.docs[position] == doc) {
+                        float score = score(idf, postings.freqs[position], lengths[doc], averageLength);
+                        best[i] = Math.max(best[i], score);
+                    }
+                }
+            }
+            Candidates matched = new Candidates(candidates.size);
+            for (int i = 0; i < candidates.size; i++) {
+                if (best[i] >= 0) {
+                    matched.docs[matched.size] = candidates.docs[i];
+                    matched.scores[matched.size] = candidates.scores[i] + best[i];
+                    matched.size++;
+                }
+            }
+            return matched;
+        }
+
+        // Best offset + limit candidates by score (ties: older document first) through a bounded min-heap
+        private Hits top(Candidates candidates, int offset, int limit) {
+            int window = (int) Math.min((long) offset + limit, candidates.size);
+            long[] heap = new long[window];
+            int heapSize = 0;
+            for (int i = 0; i < candidates.size && window > 0; i++) {
+                long key = ((long) Float.floatToIntBits(candidates.scores[i]) << 32)
+                        | (Integer.MAX_VALUE - candidates.docs[i]);
+                if (heapSize < window) {
+                    heap[heapSize++] = key;
+                    siftUp(heap, heapSize - 1);
+                } else if (key > heap[0]) {
+                    heap[0] = key;
+                    siftDown(heap, heapSize);
+                }
+            }
+            Arrays.sort(heap, 0, heapSize);
+
+            List<Long> pageIds = new ArrayList<>();
+            float[] pageScores = new float[Math.max(heapSize - offset, 0)];
+            for (int i = heapSize - 1 - offset; i >= 0; i--) {
+                int doc = Integer.MAX_VALUE - (int) (heap[i] & 0xFFFFFFFFL);
+                pageScores[pageIds.size()] = Float.intBitsToFloat((int) (heap[i] >>> 32));
+                pageIds.add(ids[doc]);
+            }
+            return new Hits(pageIds, pageScores, candidates.size);
+        }
+
+        private float idf(Postings postings) {
+            // Dead postings still count towards df until the next rebuild; close enough for ranking
+            float df = Math.min(postings.size, Math.max(liveCount, 1));
+            return (float) Math.log(1 + (liveCount - df + 0.5) / (df + 0.5));
+        }
+
+        private static float score(float idf, int freq, int length, float averageLength) {
+            float norm = K1 * (1 - B + B * length / averageLength);
+            // Never zero, so a matched term is told apart from "no match" (-1)
+            return Math.max(idf * freq * (K1 + 1) / (freq + norm), Float.MIN_NORMAL);
+        }
+
+        private static long cost(List<Postings> group) {
+            long cost = 0;
+            for (Postings postings : group) {
+                cost += postings.size;
+            }
+            return cost;
+        }
+
+        private static void siftUp(long[] heap, int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (heap[parent] <= heap[index]) {
+                    return;
+                }
+                swap(heap, parent, index);
+                index = parent;
+            }
+        }
+
+        private static void siftDown(long[] heap, int size) {
+            int index = 0;
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heap[right] < heap[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(heap, smallest, index);
+                index = smallest;
+            }
+        }
+
+        private static void swap(long[] heap, int a, int b) {
+            long tmp = heap[a];
+            heap[a] = heap[b];
+            heap[b] = tmp;
+        }
+    }
+
+    // Matching documents in ascending order with their accumulated scores
+    private static final class Candidates {
+
+        final int[] docs;
+        final float[] scores;
+        int size;
+
+        Candidates(int capacity) {
+            this.docs = new int[capacity];
+            this.scores = new float[capacity];
+        }
+    }
+
+    // The filter compiled into primitive bounds, with the same semantics as ExpenseFilter.toSpecification()
+    private static final class Filter {
+
+        final int fromDay;
+        final int toDay;
+        final long minCents;
+        final long maxCents;
+        final int category;
+
+        private Filter(int fromDay, int toDay, long minCents, long maxCents, int category) {
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            this.category = category;
+        }
+
+        // Null when the filter names a category that no indexed expense has
+        static Filter compile(ExpenseFilter filter, Map<String, Integer> categoryIds) {
+            int category = -1;
+            if (filter.getCategory() != null) {
+                Integer id = categoryIds.get(filter.getCategory());
+                if (id == null) {
+                    return null;
+                }
+                category = id;
+            }
+            int noDate = ExpenseAnalyticsEngine.NO_DATE;
+            boolean dateBounded = filter.getStartDate() != null || filter.getEndDate() != null;
+            int fromDay = filter.getStartDate() != null ? (int) filter.getStartDate().toEpochDay()
+                    : dateBounded ? noDate + 1 : noDate;
+            int toDay = filter.getEndDate() != null ? (int) filter.getEndDate().toEpochDay() : Integer.MAX_VALUE;
+            long minCents = filter.getMinAmount() != null ? ExpenseRollupService.toCents(filter.getMinAmount()) : Long.MIN_VALUE;
+            long maxCents = filter.getMaxAmount() != null ? ExpenseRollupService.toCents(filter.getMaxAmount()) : Long.MAX_VALUE;
+            return new Filter(fromDay, toDay, minCents, maxCents, category);
+        }
+
+        boolean matches(int day, long amount, int rowCategory) {
+            return day >= fromDay && day <= toDay && amount >= minCents && amount <= maxCents
+                    && (category < 0 || rowCategory == category);
+        }
+    }
+}
@@ -1,90 +1,211 @@
 package com.example.expensetracker.service;
 
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.ExpenseNotFoundException;
 import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
 import com.example.expensetracker.repository.ExpenseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import javax.persistence.criteria.Predicate;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class ExpenseService {
     @Autowired
     private ExpenseRepository expenseRepository;
 
+    @Autowired
+    private ExpenseArchiveStore archiveStore;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ExpenseReadCache readCache;
+
+    @Autowired
+    private CategoryRegistry categoryRegistry;
+
     // The original method is still retained
+    @Transactional
     public Expense createExpense(Expense expense) {
-        return expenseRepository.save(expense);
+        Expense saved = expenseRepository.save(expense);
+        if (!saved.isDeleted()) {
+            eventPublisher.publishEvent(ExpenseChangeEvent.created(Collections.singletonList(ExpenseSnapshot.of(saved))));
+        }
+        return saved;
     }
 
     public List<Expense> getAllExpenses() {
         return expenseRepository.findAll();
     }
 
+    // Read-only transactions may be served by a read replica (see ReadWriteRoutingDataSource)
+    @Transactional(readOnly = true)
     public Expense getExpenseById(Long id) {
-        return expenseRepository.findById(id).orElse(null);
+        return readCache.getById(id, () -> expenseRepository.findById(id).orElse(null));
     }
 
+    // A version in the request (from the body or If-Match) must match the stored one; concurrent updates
+    // that both pass this check are caught by Hibernate's version check when the transaction flushes
+    @Transactional
     public Expense updateExpense(Long id, Expense expense) {
-        Expense existing = getExpenseById(id);
+        Expense existing = expenseRepository.findById(id).orElse(null);
         if (existing != null) {
+            if (expense.getVersion() != null && !expense.getVersion().equals(existing.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Expense.class, id);
+            }
+            ExpenseSnapshot before = ExpenseSnapshot.of(existing);
             existing.setDescription(expense.getDescription());
             existing.setAmount(expense.getAmount());
             existing.setDate(expense.getDate());
             existing.setCategory(expense.getCategory());
-            return expenseRepository.save(existing);
+            Expense saved = expenseRepository.save(existing);
+            if (!saved.isDeleted()) {
+                eventPublisher.publishEvent(ExpenseChangeEvent.updated(before, ExpenseSnapshot.of(saved)));
+            }
+            return saved;
         }
         return null;
     }
 
+    // Soft delete: the expense is archived according to the configured archive storage
+    @Transactional
     public void deleteExpense(Long id) {
-        Expense expense = expenseRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Expense not found with id: " + id));
-        expense.setDeleted(true);
-        expenseRepository.save(expense);
+        Expense existing = expenseRepository.findById(id).orElseThrow(() -> new ExpenseNotFoundException(id));
+        // Archived concurrently (by the archiving job) if nothing changed: that change has been published already
+        if (archiveStore.archive(Collections.singletonList(id)) > 0 && !existing.isDeleted()) {
+            eventPublisher.publishEvent(ExpenseChangeEvent.deleted(ExpenseSnapshot.of(existing)));
+        }
     }
 
-    // New: Query methods that support filtering and paging
-    public Page<Expense> getExpenses(String category,
+    // Bring an archived expense back into the active set
+    @Transactional
+    public Expense restoreExpense(Long id) {
+        if (!archiveStore.restore(id)) {
+            throw new ExpenseNotFoundException(id);
+        }
+        Expense restored = expenseRepository.findById(id).orElseThrow(() -> new ExpenseNotFoundException(id));
+        eventPublisher.publishEvent(ExpenseChangeEvent.restored(ExpenseSnapshot.of(restored)));
+        return restored;
+    }
+
+    // New: Query methods that support filtering and paging.
+    // List pages are read-only, so rows are projected into immutable snapshots instead of managed entities.
+    @Transactional(readOnly = true)
+    public Page<ExpenseSnapshot> getExpenses(String category,
                                      LocalDate startDate,
                                      LocalDate endDate,
                                      Double minAmount,
                                      Double maxAmount,
                                      Pageable pageable) {
-        Specification<Expense> spec = (root, query, cb) -> {
-            List<Predicate> predicates = new ArrayList<>();
+        ExpenseFilter filter = new ExpenseFilter(category, startDate, endDate, minAmount, maxAmount);
+        return readCache.getPage(filter, Arrays.asList("offset", pageable),
+                () -> expenseRepository.findSnapshots(specificationFor(filter), pageable));
+    }
 
-            // Only include non-deleted expenses (i.e., soft delete flag is false)
-            predicates.add(cb.equal(root.get("deleted"), false));
+    // Keyset pagination over (date DESC, id DESC): each page seeks from the cursor instead of
+    // skipping OFFSET rows, and the COUNT query only runs when includeTotal is set.
+    @Transactional(readOnly = true)
+    public CursorPage<ExpenseSnapshot> getExpensesByCursor(String category,
+                                                   LocalDate startDate,
+                                                   LocalDate endDate,
+                                                   Double minAmount,
+                                                   Double maxAmount,
+                                                   String cursor,
+                                                   int size,
+                                                   boolean includeTotal) {
+        ExpenseFilter filter = new ExpenseFilter(category, startDate, endDate, minAmount, maxAmount);
+        return readCache.getPage(filter, Arrays.asList("cursor", cursor, size, includeTotal),
+                () -> loadCursorPage(filter, cursor, size, includeTotal));
+    }
 
-            if (category != null && !category.trim().isEmpty()) {
-                predicates.add(cb.equal(root.get("category"), category));
-            }
-            if (startDate != null) {
-                predicates.add(cb.greaterThanOrEqualTo(root.get("date"), startDate));
-            }
-            if (endDate != null) {
-                predicates.add(cb.lessThanOrEqualTo(root.get("date"), endDate));
-            }
-            if (minAmount != null) {
-                predicates.add(cb.greaterThanOrEqualTo(root.get("amount"), minAmount));
+    private CursorPage<ExpenseSnapshot> loadCursorPage(ExpenseFilter filter, String cursor, int size, boolean includeTotal) {
+        ExpenseCursor position = cursor == null || cursor.isEmpty() ? null : ExpenseCursor.decode(cursor);
+
+        Specification<Expense> spec = specificationFor(filter);
+        Sort sort = ExpenseCursor.FORWARD_SORT;
+        if (position != null) {
+            spec = spec.and(position.seek());
+            sort = position.sort();
+        }
+
+        // Fetch one extra row to learn whether another page exists in the reading direction
+        List<ExpenseSnapshot> rows = new ArrayList<>(expenseRepository.findSnapshotsLimited(spec, sort, size + 1));
+        boolean more = rows.size() > size;
+        if (more) {
+            rows.remove(size);
+        }
+        boolean backward = position != null && position.isBackward();
+        if (backward) {
+            Collections.reverse(rows);
+        }
+
+        String nextCursor = null;
+        String prevCursor = null;
+        if (!rows.isEmpty()) {
+            // Reading forward from a cursor implies rows before it; reading backward implies rows after it
+            boolean hasNext = backward || more;
+            boolean hasPrevious = backward ? more : position != null;
+            if (hasNext) {
+                nextCursor = ExpenseCursor.after(rows.get(rows.size() - 1)).encode();
             }
-            if (maxAmount != null) {
-                predicates.add(cb.lessThanOrEqualTo(root.get("amount"), maxAmount));
+            if (hasPrevious) {
+                prevCursor = ExpenseCursor.before(rows.get(0)).encode();
             }
-            return cb.and(predicates.toArray(new Predicate[0]));
-        };
+        }
 
-        return expenseRepository.findAll(spec, pageable);
+        Long total = includeTotal ? expenseRepository.count(specificationFor(filter)) : null;
+        return new CursorPage<>(rows, nextCursor, prevCursor, total);
+    }
+
+    // The category predicate compares category_id with the key of the requested name. A name that was
+    // never registered matches nothing, and must not reach the converter, which would register it.
+    private Specification<Expense> specificationFor(ExpenseFilter filter) {
+        if (filter.getCategory() != null && !categoryRegistry.findId(filter.getCategory()).isPresent()) {
+            return (root, query, cb) -> cb.disjunction();
+        }
+        return filter.toSpecification();
+    }
+
+    // Active expenses with the given ids, in the order of the ids; ids that are no longer active are skipped
+    public List<ExpenseSnapshot> getExpenseSnapshots(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Specification<Expense> spec = (root, query, cb) ->
+                cb.and(cb.equal(root.get("deleted"), false), root.get("id").in(ids));
+        Map<Long, ExpenseSnapshot> byId = new HashMap<>();
+        for (ExpenseSnapshot expense : expenseRepository.findSnapshotsLimited(spec, Sort.unsorted(), ids.size())) {
+            byId.put(expense.getId(), expense);
+        }
+        List<ExpenseSnapshot> ordered = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            ExpenseSnapshot expense = byId.get(id);
+            if (expense != null) {
+                ordered.add(expense);
+            }
+        }
+        return ordered;
     }
 
-    public List<Expense> getArchivedExpenses() {
-        return expenseRepository.findByDeletedTrue();
+    @Transactional(readOnly = true)
+    public Page<Expense> getArchivedExpenses(Pageable pageable) {
+        return archiveStore.findArchived(pageable);
     }
 }
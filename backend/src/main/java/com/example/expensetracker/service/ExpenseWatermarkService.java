@@ -0,0 +1,157 @@
+package com.example.expensetracker.service;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.ExpenseWatermark;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Table-level change watermark of the active expenses, used to answer conditional list requests.
+ * <p>
+ * Every committed {@link ExpenseChangeEvent} bumps the counter in a short transaction of its own, so writers
+ * never hold the watermark row while their own transaction runs, and a rolled-back change bumps nothing. The
+ * watermark is the same for every instance sharing the database, and reading it is one primary-key lookup,
+ * which lets an unchanged list page be answered with 304 before any expense is queried.
+ * <p>
+ * A change is visible before its bump, never after: a page read in between carries the previous ETag, so
+ * the client only revalidates once more. Should a bump fail, the change goes unnoticed by conditional
+ * requests until the next write; the failure is logged.
+ * <p>
+ * The watermark also tells this instance when another one has changed the expenses: the version then
+ * advances by more than the bumps made here, the {@link ExpenseReadCache} is cleared and the in-memory
+ * sketches of the {@link ExpenseDistributionService} are reloaded.
+ * <p>
+ * The ETag combines the counter with the modification time, so it does not repeat after the in-memory
+ * database is recreated on restart.
+ */
+@Service
+public class ExpenseWatermarkService {
+
+    private static final String BUMP_SQL =
+            "MERGE INTO expense_watermark t USING (SELECT " + ExpenseWatermark.ROW_ID + " AS id) s ON t.id = s.id "
+                    + "WHEN MATCHED THEN UPDATE SET version = t.version + 1, modified_at = ? "
+                    + "WHEN NOT MATCHED THEN INSERT (id, version, modified_at) VALUES (s.id, 1, ?)";
+
+    private static final Logger log = LoggerFactory.getLogger(ExpenseWatermarkService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ExpenseReadCache readCache;
+    private final ExpenseDistributionService distributionService;
+    private final TransactionTemplate transactionTemplate;
+    private final Instant startedAt = Instant.now().truncatedTo(ChronoUnit.SECONDS);
+
+    // Bumps made by this instance, counted before they commit and uncounted if they fail, so the count
+    // never trails what a read of the watermark can see
+    private final AtomicLong ownBumps = new AtomicLong();
+    // Watermark version when this instance started, and the most remote bumps seen since
+    private final long initialVersion;
+    private long remoteBumps;
+
+    public ExpenseWatermarkService(JdbcTemplate jdbcTemplate, ExpenseReadCache readCache,
+                                   ExpenseDistributionService distributionService,
+                                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readCache = readCache;
+        this.distributionService = distributionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // After commit the writer's connection is still bound; the bump must not join its finished transaction
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.initialVersion = version();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExpenseChange(ExpenseChangeEvent event) {
+        try {
+            bump();
+        } catch (DataAccessException ex) {
+            // The change itself is committed; failing the request now would only invite a retry
+            log.warn("Could not bump the expense watermark; list ETags stay stale until the next change", ex);
+        }
+    }
+
+    // Record a change of the active set once it is committed; callers that write around ExpenseService call this
+    public void bump() {
+        // Last-Modified only has second precision; the ETag (which includes the counter) is what clients compare
+        Timestamp now = Timestamp.from(Instant.now());
+        ownBumps.incrementAndGet();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(BUMP_SQL, now, now));
+        } catch (RuntimeException ex) {
+            ownBumps.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * Clears the read cache and reloads the amount sketches once other instances have changed the expenses;
+     * their bumps follow their commits, so the reload sees their changes. Bumps not yet committed only
+     * make the remote count look lower for a while, so a remote change is never mistaken for a local one;
+     * at worst it is noticed one check later.
+     */
+    @Scheduled(fixedDelayString = "${expense.cache.remote-check-interval:PT1S}")
+    public synchronized void checkRemoteChanges() {
+        // The version first: every bump it includes has been counted by then
+        long version = version();
+        long remote = version - initialVersion - ownBumps.get();
+        if (remote > remoteBumps) {
+            remoteBumps = remote;
+            readCache.invalidateAll();
+            distributionService.reload();
+        }
+    }
+
+    // Read-only so that, with replicas, it comes from the same replica as the page it validates
+    @Transactional(readOnly = true)
+    public Watermark current() {
+        List<Watermark> rows = jdbcTemplate.query(
+                "SELECT version, modified_at FROM expense_watermark WHERE id = " + ExpenseWatermark.ROW_ID,
+                (rs, rowNum) -> new Watermark(rs.getLong(1), rs.getTimestamp(2).toInstant()));
+        // No write recorded yet: the data is whatever the process started with
+        return rows.isEmpty() ? new Watermark(0, startedAt) : rows.get(0);
+    }
+
+    // From the primary, outside any read-only transaction
+    private long version() {
+        List<Long> versions = jdbcTemplate.queryForList(
+                "SELECT version FROM expense_watermark WHERE id = " + ExpenseWatermark.ROW_ID, Long.class);
+        return versions.isEmpty() ? 0 : versions.get(0);
+    }
+
+    public static final class Watermark {
+        private final long version;
+        private final Instant modifiedAt;
+
+        Watermark(long version, Instant modifiedAt) {
+            this.version = version;
+            this.modifiedAt = modifiedAt;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Instant getModifiedAt() {
+            return modifiedAt;
+        }
+
+        // Weak: the same watermark may be serialized with different (equivalent) JSON
+        public String etag(String scope) {
+            return "W/\"" + scope + "-" + version + "-" + modifiedAt.toEpochMilli() + "\"";
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.expensetracker.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import. Rows are numbered from 1 in input order (CSV rows exclude the header).
+ * At most maxErrors row errors are kept so a badly broken upload cannot exhaust memory.
+ */
+public class ImportResult {
+
+    private final int maxErrors;
+    private final List<RowError> errors = new ArrayList<>();
+    private long imported;
+    private long rejected;
+    private boolean errorsTruncated;
+
+    ImportResult(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    void addImported(int count) {
+        imported += count;
+    }
+
+    void reject(long row, List<String> messages) {
+        rejected++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, messages));
+        } else {
+            errorsTruncated = true;
+        }
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<RowError> getErrors() {
+        return Collections.unmodifiableList(errors);
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public static class RowError {
+
+        private final long row;
+        private final List<String> messages;
+
+        RowError(long row, List<String> messages) {
+            this.row = row;
+            this.messages = messages;
+        }
+
+        public long getRow() {
+            return row;
+        }
+
+        public List<String> getMessages() {
+            return messages;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.expensetracker.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Database-backed locks and leases that let several nodes share scheduled jobs.
+ * <p>
+ * A job lock (job_lock) is taken with a conditional UPDATE that only succeeds when the previous holder's
+ * lease has run out, so exactly one node runs each execution. The holder renews its lease through
+ * {@link Lease#checkpoint()} between units of work, and a node that dies simply stops renewing: the lock
+ * frees itself after the lease time. Every claim writes a fresh claim token, and renewing or giving up a
+ * lock or shard matches on it rather than on the node id, so a stale holder on the same node (the cron and
+ * poll paths share the id) cannot touch a claim made since. Released locks can stay held for lock-at-least, so a node whose clock
+ * runs slightly behind does not start the same execution again after a quick run has finished.
+ * <p>
+ * Sharded runs (job_shard) split a job into id ranges that any node may claim the same way, one shard at a
+ * time; a shard whose lease has run out is claimed again by another node. Expiry is compared against each
+ * node's clock, so leases must be much longer than the clock skew between nodes.
+ */
+@Service
+public class JobLockService {
+
+    public static final String PENDING = "PENDING";
+    public static final String RUNNING = "RUNNING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String nodeId;
+
+    public JobLockService(JdbcTemplate jdbcTemplate, @Value("${expense.scheduler.node-id:}") String nodeId) {
+        this.jdbcTemplate = jdbcTemplate;
+        // pid@host identifies the process unless a node id is configured
+        this.nodeId = nodeId == null || nodeId.trim().isEmpty()
+                ? ManagementFactory.getRuntimeMXBean().getName() : nodeId.trim();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Takes the lock of a job for {@code leaseTime} if no other node holds it.
+     */
+    public Optional<Lease> tryLock(String job, Duration leaseTime) {
+        Instant now = Instant.now();
+        Instant until = now.plus(leaseTime);
+        String token = UUID.randomUUID().toString();
+        int updated = jdbcTemplate.update("UPDATE job_lock SET owner = ?, claim_token = ?, locked_at = ?, "
+                        + "locked_until = ? WHERE job_name = ? AND locked_until <= ?",
+                nodeId, token, Timestamp.from(now), Timestamp.from(until), job, Timestamp.from(now));
+        if (updated == 0) {
+            try {
+                jdbcTemplate.update("INSERT INTO job_lock (job_name, owner, claim_token, locked_at, locked_until) "
+                        + "VALUES (?, ?, ?, ?, ?)", job, nodeId, token, Timestamp.from(now), Timestamp.from(until));
+            } catch (DuplicateKeyException held) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new Lease(job, token, leaseTime, now, until));
+    }
+
+    public boolean hasShards(String job, String runKey) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_shard WHERE job_name = ? AND run_key = ?",
+                Integer.class, job, runKey);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Plans a sharded run: one PENDING shard per id range ({from, to}, inclusive). Shards of earlier runs
+     * are dropped. The caller holds the job lock, so only one node plans each run.
+     */
+    @Transactional
+    public void createShards(String job, String runKey, List<long[]> ranges) {
+        jdbcTemplate.update("DELETE FROM job_shard WHERE job_name = ? AND run_key <> ?", job, runKey);
+        List<Object[]> batch = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            batch.add(new Object[]{job, runKey, i, ranges.get(i)[0], ranges.get(i)[1]});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO job_shard (job_name, run_key, shard_index, from_id, to_id, status, "
+                + "attempts, row_count) VALUES (?, ?, ?, ?, ?, '" + PENDING + "', 0, 0)", batch);
+    }
+
+    /**
+     * Claims the next shard of the job that is pending, or whose lease has run out, and has been claimed
+     * fewer than {@code maxAttempts} times.
+     */
+    public Optional<ShardLease> claimShard(String job, Duration leaseTime, int maxAttempts) {
+        Instant now = Instant.now();
+        List<ShardLease> candidates = jdbcTemplate.query("SELECT run_key, shard_index, from_id, to_id FROM job_shard "
+                        + "WHERE job_name = ? AND attempts < ? AND (status = '" + PENDING + "' "
+                        + "OR (status = '" + RUNNING + "' AND lease_until <= ?)) ORDER BY run_key, shard_index",
+                (rs, rowNum) -> new ShardLease(job, UUID.randomUUID().toString(), rs.getString("run_key"),
+                        rs.getInt("shard_index"), rs.getLong("from_id"), rs.getLong("to_id"), leaseTime, now),
+                job, maxAttempts, Timestamp.from(now));
+        for (ShardLease candidate : candidates) {
+            // Another node may claim the same shard between the SELECT and here; only one UPDATE matches
+            int claimed = jdbcTemplate.update("UPDATE job_shard SET status = '" + RUNNING + "', owner = ?, "
+                            + "claim_token = ?, lease_until = ?, started_at = ?, attempts = attempts + 1 "
+                            + "WHERE job_name = ? AND run_key = ? AND shard_index = ? AND attempts < ? "
+                            + "AND (status = '" + PENDING + "' OR (status = '" + RUNNING + "' AND lease_until <= ?))",
+                    nodeId, candidate.token, Timestamp.from(candidate.until), Timestamp.from(now), job, candidate.runKey,
+                    candidate.shardIndex, maxAttempts, Timestamp.from(now));
+            if (claimed == 1) {
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A claim renewed between units of work; see {@link Lease} and {@link ShardLease}.
+     * Not thread-safe: used by the thread running the job.
+     */
+    abstract static class Claim {
+
+        final String job;
+        final String token;
+        final Duration leaseTime;
+        Instant until;
+        boolean held = true;
+
+        Claim(String job, String token, Duration leaseTime, Instant until) {
+            this.job = job;
+            this.token = token;
+            this.leaseTime = leaseTime;
+            this.until = until;
+        }
+
+        public String getJob() {
+            return job;
+        }
+
+        public boolean isHeld() {
+            return held;
+        }
+
+        /**
+         * Called between units of work: renews the lease once a third of it has been used, and returns
+         * false (for good) if another claim has taken it over meanwhile, in which case the work must stop.
+         */
+        public boolean checkpoint() {
+            if (!held) {
+                return false;
+            }
+            Instant now = Instant.now();
+            if (now.isBefore(until.minus(leaseTime.multipliedBy(2).dividedBy(3)))) {
+                return true;
+            }
+            Instant next = now.plus(leaseTime);
+            held = extend(next);
+            if (held) {
+                until = next;
+            }
+            return held;
+        }
+
+        abstract boolean extend(Instant next);
+    }
+
+    /**
+     * A held job lock.
+     */
+    public class Lease extends Claim {
+
+        final Instant acquiredAt;
+
+        Lease(String job, String token, Duration leaseTime, Instant acquiredAt, Instant until) {
+            super(job, token, leaseTime, until);
+            this.acquiredAt = acquiredAt;
+        }
+
+        /**
+         * Releases the lock, keeping it until at least {@code lockAtLeast} after it was taken.
+         */
+        public void release(Duration lockAtLeast) {
+            if (!held) {
+                return;
+            }
+            Instant keepUntil = acquiredAt.plus(lockAtLeast);
+            Instant now = Instant.now();
+            jdbcTemplate.update("UPDATE job_lock SET locked_until = ? WHERE job_name = ? AND claim_token = ?",
+                    Timestamp.from(keepUntil.isAfter(now) ? keepUntil : now), job, token);
+            held = false;
+        }
+
+        @Override
+        boolean extend(Instant next) {
+            return jdbcTemplate.update("UPDATE job_lock SET locked_until = ? WHERE job_name = ? AND claim_token = ?",
+                    Timestamp.from(next), job, token) == 1;
+        }
+    }
+
+    /**
+     * A claimed shard: ids {@code fromId..toId} (inclusive) of the run {@code runKey}. It ends with
+     * {@link #complete} or {@link #abandon}.
+     */
+    public class ShardLease extends Claim {
+
+        final String runKey;
+        final int shardIndex;
+        final long fromId;
+        final long toId;
+
+        ShardLease(String job, String token, String runKey, int shardIndex, long fromId, long toId,
+                   Duration leaseTime, Instant now) {
+            super(job, token, leaseTime, now.plus(leaseTime));
+            this.runKey = runKey;
+            this.shardIndex = shardIndex;
+            this.fromId = fromId;
+            this.toId = toId;
+        }
+
+        public String getRunKey() {
+            return runKey;
+        }
+
+        public int getShardIndex() {
+            return shardIndex;
+        }
+
+        public long getFromId() {
+            return fromId;
+        }
+
+        public long getToId() {
+            return toId;
+        }
+
+        /**
+         * Marks the shard DONE; false if the lease was lost, in which case the new owner finishes it.
+         */
+        public boolean complete(long rows) {
+            if (!held) {
+                return false;
+            }
+            held = false;
+            return jdbcTemplate.update("UPDATE job_shard SET status = '" + DONE + "', row_count = row_count + ?, "
+                            + "finished_at = ?, lease_until = NULL WHERE job_name = ? AND run_key = ? "
+                            + "AND shard_index = ? AND claim_token = ? AND status = '" + RUNNING + "'",
+                    rows, Timestamp.from(Instant.now()), job, runKey, shardIndex, token) == 1;
+        }
+
+        /**
+         * Gives a failed shard back for another attempt, or marks it FAILED after {@code maxAttempts}.
+         */
+        public void abandon(long rows, int maxAttempts) {
+            if (!held) {
+                return;
+            }
+            held = false;
+            jdbcTemplate.update("UPDATE job_shard SET status = CASE WHEN attempts >= ? THEN '" + FAILED + "' "
+                            + "ELSE '" + PENDING + "' END, row_count = row_count + ?, owner = NULL, claim_token = NULL, "
+                            + "lease_until = NULL WHERE job_name = ? AND run_key = ? AND shard_index = ? "
+                            + "AND claim_token = ? AND status = '" + RUNNING + "'",
+                    maxAttempts, rows, job, runKey, shardIndex, token);
+        }
+
+        @Override
+        boolean extend(Instant next) {
+            return jdbcTemplate.update("UPDATE job_shard SET lease_until = ? WHERE job_name = ? AND run_key = ? "
+                            + "AND shard_index = ? AND claim_token = ? AND status = '" + RUNNING + "'",
+                    Timestamp.from(next), job, runKey, shardIndex, token) == 1;
+        }
+    }
+}
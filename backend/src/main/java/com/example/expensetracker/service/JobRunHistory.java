@@ -0,0 +1,65 @@
+package com.example.expensetracker.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Run history of scheduled jobs (job_run): who ran what, for how long, and how many rows it handled.
+ */
+@Service
+public class JobRunHistory {
+
+    public static final String SUCCEEDED = "SUCCEEDED";
+    public static final String FAILED = "FAILED";
+    public static final String LEASE_LOST = "LEASE_LOST";
+
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JobRunHistory(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // One finished run (shardIndex null unless it processed a shard)
+    public void record(String job, String nodeId, Integer shardIndex, Instant startedAt, long rows, String status,
+                       String message) {
+        Instant finishedAt = Instant.now();
+        if (message != null && message.length() > MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        jdbcTemplate.update("INSERT INTO job_run (job_name, node_id, shard_index, started_at, finished_at, duration_ms, "
+                        + "row_count, status, message) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                job, nodeId, shardIndex, Timestamp.from(startedAt), Timestamp.from(finishedAt),
+                Duration.between(startedAt, finishedAt).toMillis(), rows, status, message);
+    }
+
+    // Most recent runs first, of one job or (job null) of all jobs
+    public List<Map<String, Object>> recent(String job, int limit) {
+        String where = job == null ? "" : " WHERE job_name = ?";
+        Object[] args = job == null ? new Object[]{limit} : new Object[]{job, limit};
+        String sql = "SELECT job_name, node_id, shard_index, started_at, finished_at, duration_ms, row_count, status, "
+                + "message FROM job_run" + where + " ORDER BY started_at DESC, id DESC LIMIT ?";
+        return jdbcTemplate.query(sql, (rs, rowNum) -> {
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("job", rs.getString("job_name"));
+            run.put("node", rs.getString("node_id"));
+            int shard = rs.getInt("shard_index");
+            run.put("shard", rs.wasNull() ? null : shard);
+            run.put("startedAt", rs.getTimestamp("started_at").toInstant());
+            run.put("finishedAt", rs.getTimestamp("finished_at").toInstant());
+            run.put("durationMs", rs.getLong("duration_ms"));
+            run.put("rows", rs.getLong("row_count"));
+            run.put("status", rs.getString("status"));
+            run.put("message", rs.getString("message"));
+            return run;
+        }, args);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.expensetracker.service;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Collection;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Serializes rebuilds of the summary tables against the transactions that apply deltas to them, on every
+ * node. A rebuild must not run while a writer's delta is in flight: the rebuild would either miss the
+ * writer's row or count it a second time on top of the delta.
+ * <p>
+ * H2 has no LOCK TABLE, so the table lock is emulated with the rows of summary_lock. A writer locks
+ * ({@code SELECT ... FOR UPDATE}) the stripes of the groups it changes, in stripe order, and a rebuild locks
+ * every stripe. Writers of different groups rarely share a stripe, so they still commit in parallel. A writer
+ * that committed before the rebuild got its locks is in the rebuild's read; one that had not waits for the
+ * rebuild and applies its delta on top. The locks are held until the surrounding transaction ends.
+ * <p>
+ * Each summary table has stripes of its own. A writer locks the stripes of one table, then those of the
+ * next, in one ascending pass per table, while a rebuild or reload locks every stripe of a single table; with
+ * shared stripes a writer could hold a high stripe for one table and wait for a low one for the next while
+ * a rebuild holding the low one waits for the high one.
+ */
+@Component
+public class SummaryLock {
+
+    static final int STRIPES = 64;
+
+    // The summary tables; each one owns STRIPES consecutive rows of summary_lock
+    public enum Summary {
+        ROLLUPS,
+        DISTRIBUTION
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public SummaryLock(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Stripes must exist before anyone locks them; another node may be creating them at the same time
+    @PostConstruct
+    void createStripes() {
+        for (int stripe = 0; stripe < STRIPES * Summary.values().length; stripe++) {
+            try {
+                jdbcTemplate.update("MERGE INTO summary_lock KEY (stripe) VALUES (?)", stripe);
+            } catch (DuplicateKeyException created) {
+                // Inserted by another node meanwhile
+            }
+        }
+    }
+
+    // Called by a writer, in its transaction, before it applies deltas to these groups
+    public void lockGroups(Summary summary, Collection<?> groups) {
+        SortedSet<Integer> stripes = new TreeSet<>();
+        for (Object group : groups) {
+            stripes.add(summary.ordinal() * STRIPES + Math.floorMod(group.hashCode(), STRIPES));
+        }
+        stripes.forEach(this::lock);
+    }
+
+    // Called by a rebuild, in its transaction, before it reads the expenses
+    public void lockAll(Summary summary) {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            lock(summary.ordinal() * STRIPES + stripe);
+        }
+    }
+
+    private void lock(int stripe) {
+        jdbcTemplate.queryForList("SELECT stripe FROM summary_lock WHERE stripe = ? FOR UPDATE", Integer.class, stripe);
+    }
+}
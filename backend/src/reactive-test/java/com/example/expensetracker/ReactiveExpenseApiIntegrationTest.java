@@ -0,0 +1,107 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.reactive.ReactiveApiServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "expense.reactive.port=0")
+@ActiveProfiles("reactive")
+public class ReactiveExpenseApiIntegrationTest {
+
+    @Autowired
+    private ReactiveApiServer reactiveApiServer;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer()
+                .baseUrl("http://localhost:" + reactiveApiServer.getPort())
+                .defaultHeaders(headers -> headers.setBasicAuth("admin", "admin"))
+                .build();
+    }
+
+    @Test
+    void testReadsWhatTheServletApiWrote() {
+        Expense created = restTemplate.withBasicAuth("admin", "admin").postForObject("/api/expenses",
+                new Expense("Reactive lunch", 18.5, LocalDate.of(2024, 5, 1), "ReactiveTest"), Expense.class);
+
+        List<Expense> page = client.get().uri("/api/expenses?category=ReactiveTest&size=5")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Expense.class).returnResult().getResponseBody();
+        assertEquals(1, page.size());
+        assertEquals(created.getId(), page.get(0).getId());
+        assertEquals("ReactiveTest", page.get(0).getCategory());
+
+        client.get().uri("/api/expenses/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.description").isEqualTo("Reactive lunch");
+    }
+
+    @Test
+    void testStreamsNdjsonWithoutPageSize() {
+        for (int day = 1; day <= 12; day++) {
+            restTemplate.withBasicAuth("admin", "admin").postForObject("/api/expenses",
+                    new Expense("Streamed " + day, 2.0, LocalDate.of(2024, 6, day), "ReactiveStream"), Expense.class);
+        }
+
+        List<Expense> all = client.get().uri("/api/expenses?category=ReactiveStream")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Expense.class).getResponseBody().collectList().block();
+        // The JSON array form is capped at the default page size of 10; the stream returns every row
+        assertEquals(12, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(!all.get(i).getDate().isAfter(all.get(i - 1).getDate()));
+        }
+    }
+
+    @Test
+    void testErrors() {
+        client.get().uri("/api/expenses/{id}", Long.MAX_VALUE)
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.status").isEqualTo(404);
+
+        client.get().uri("/api/expenses?startDate=yesterday")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // Unknown categories match nothing and are not registered by the lookup
+        client.get().uri("/api/expenses?category=NoSuchCategory")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Expense.class).hasSize(0);
+
+        WebTestClient.bindToServer().baseUrl("http://localhost:" + reactiveApiServer.getPort()).build()
+                .get().uri("/api/expenses")
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNAUTHORIZED);
+        client.get().uri("/api/expenses")
+                .headers(headers -> headers.setBasicAuth("admin", "wrong"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNAUTHORIZED);
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.expensetracker.reactive;
+
+import com.example.expensetracker.security.TokenService;
+import com.example.expensetracker.service.ExpenseArchiveStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+
+/**
+ * Spring profile "reactive": a read-only expense API served by WebFlux functional endpoints on a Reactor Netty
+ * server of its own (expense.reactive.port), next to the servlet API. Requests are handled on a few event-loop
+ * threads and read through a non-blocking R2DBC connection pool on the same H2 database, so a slow query no
+ * longer holds a request thread. Writes, caching and the other endpoints stay on the servlet API.
+ * <p>
+ * The pool is private to this server rather than a {@code ConnectionFactory} bean, so Spring Boot does not
+ * try to pair it with a reactive transaction manager or run the schema scripts through it.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveApiServer implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ReactiveApiServer.class);
+
+    private final ExpenseArchiveStore archiveStore;
+    private final TokenService tokenService;
+    private final UserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+    private final ObjectMapper objectMapper;
+    private final String r2dbcUrl;
+    private final String username;
+    private final String password;
+    private final int poolSize;
+    private final int port;
+    private final int eventLoopThreads;
+
+    private ConnectionPool connectionPool;
+    private LoopResources loopResources;
+    private DisposableServer server;
+
+    public ReactiveApiServer(ExpenseArchiveStore archiveStore,
+                             TokenService tokenService,
+                             UserDetailsService userDetailsService,
+                             ObjectProvider<PasswordEncoder> passwordEncoder,
+                             ObjectMapper objectMapper,
+                             @Value("${expense.reactive.r2dbc-url}") String r2dbcUrl,
+                             @Value("${spring.datasource.username:sa}") String username,
+                             @Value("${spring.datasource.password:}") String password,
+                             @Value("${expense.reactive.pool-size:10}") int poolSize,
+                             @Value("${expense.reactive.port:8081}") int port,
+                             @Value("${expense.reactive.event-loop-threads:4}") int eventLoopThreads) {
+        this.archiveStore = archiveStore;
+        this.tokenService = tokenService;
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder.getIfAvailable(PasswordEncoderFactories::createDelegatingPasswordEncoder);
+        this.objectMapper = objectMapper;
+        this.r2dbcUrl = r2dbcUrl;
+        this.username = username;
+        this.password = password;
+        this.poolSize = poolSize;
+        this.port = port;
+        this.eventLoopThreads = eventLoopThreads;
+    }
+
+    // Started once the schema and seed data exist
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(r2dbcUrl).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .maxSize(poolSize)
+                .initialSize(1)
+                .maxIdleTime(Duration.ofMinutes(30))
+                .build());
+
+        ReactiveExpenseHandler handler = new ReactiveExpenseHandler(
+                new ReactiveExpenseRepository(DatabaseClient.create(connectionPool), archiveStore));
+        RouterFunction<ServerResponse> routes = RouterFunctions.route()
+                .GET("/api/expenses/archived", handler::archived)
+                .GET("/api/expenses/{id}", handler::get)
+                .GET("/api/expenses", handler::list)
+                .filter(new ReactiveAuthFilter(tokenService, userDetailsService, passwordEncoder))
+                .build();
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper)))
+                .build();
+        HttpHandler httpHandler = RouterFunctions.toHttpHandler(routes, strategies);
+
+        loopResources = LoopResources.create("reactive-api", eventLoopThreads, true);
+        server = HttpServer.create()
+                .port(port)
+                .runOn(loopResources)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("Reactive expense API listening on port {} ({} event-loop threads, {} R2DBC connections)",
+                server.port(), eventLoopThreads, poolSize);
+    }
+
+    // Actual port, useful when expense.reactive.port=0 picks a free one
+    public int getPort() {
+        return server.port();
+    }
+
+    @Override
+    public void destroy() {
+        if (server != null) {
+            server.disposeNow();
+        }
+        if (loopResources != null) {
+            loopResources.dispose();
+        }
+        if (connectionPool != null) {
+            connectionPool.dispose();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.expensetracker.reactive;
+
+import com.example.expensetracker.security.TokenService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.reactive.function.server.HandlerFilterFunction;
+import org.springframework.web.reactive.function.server.HandlerFunction;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Authentication for the reactive API, accepting the same bearer tokens and users as the servlet API.
+ * A bearer token is verified in place (one HMAC, cheap enough for the event loop). HTTP Basic needs a user
+ * lookup and a deliberately slow password hash, so it runs on the bounded elastic scheduler instead.
+ */
+public class ReactiveAuthFilter implements HandlerFilterFunction<ServerResponse, ServerResponse> {
+
+    private static final String BASIC = "Basic ";
+    private static final String BEARER = "Bearer ";
+
+    private final TokenService tokenService;
+    private final UserDetailsService userDetailsService;
+    private final PasswordEncoder passwordEncoder;
+
+    public ReactiveAuthFilter(TokenService tokenService, UserDetailsService userDetailsService,
+                              PasswordEncoder passwordEncoder) {
+        this.tokenService = tokenService;
+        this.userDetailsService = userDetailsService;
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @Override
+    public Mono<ServerResponse> filter(ServerRequest request, HandlerFunction<ServerResponse> next) {
+        String authorization = request.headers().firstHeader(HttpHeaders.AUTHORIZATION);
+        if (authorization != null && authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return tokenService.verify(authorization.substring(BEARER.length()).trim()) != null
+                    ? next.handle(request)
+                    : unauthorized();
+        }
+        if (authorization == null || !authorization.regionMatches(true, 0, BASIC, 0, BASIC.length())) {
+            return unauthorized();
+        }
+        String credentials;
+        try {
+            credentials = new String(Base64.getDecoder().decode(authorization.substring(BASIC.length()).trim()),
+                    StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException ex) {
+            return unauthorized();
+        }
+        int colon = credentials.indexOf(':');
+        if (colon < 0) {
+            return unauthorized();
+        }
+        String username = credentials.substring(0, colon);
+        String password = credentials.substring(colon + 1);
+        return Mono.fromCallable(() -> authenticate(username, password))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(authenticated -> authenticated ? next.handle(request) : unauthorized());
+    }
+
+    private boolean authenticate(String username, String password) {
+        try {
+            UserDetails user = userDetailsService.loadUserByUsername(username);
+            return user.isEnabled() && passwordEncoder.matches(password, user.getPassword());
+        } catch (UsernameNotFoundException ex) {
+            return false;
+        }
+    }
+
+    private static Mono<ServerResponse> unauthorized() {
+        return ServerResponse.status(HttpStatus.UNAUTHORIZED)
+                .header(HttpHeaders.WWW_AUTHENTICATE, "Basic realm=\"Realm\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(ReactiveExpenseHandler.errorBody(HttpStatus.UNAUTHORIZED, "Authentication required"));
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.expensetracker.reactive;
+
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Handlers of the reactive read API. Parameters mirror the servlet endpoints (category, startDate,
+ * endDate, minAmount, maxAmount, page, size); lists are written as a JSON array, or as newline-delimited
+ * JSON when the client accepts application/x-ndjson, in which case size may be omitted to stream every match.
+ */
+public class ReactiveExpenseHandler {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    private final ReactiveExpenseRepository repository;
+
+    public ReactiveExpenseHandler(ReactiveExpenseRepository repository) {
+        this.repository = repository;
+    }
+
+    public Mono<ServerResponse> list(ServerRequest request) {
+        return respond(request, 10, (filter, page) -> repository.findActive(filter, page.offset, page.limit));
+    }
+
+    public Mono<ServerResponse> archived(ServerRequest request) {
+        return respond(request, 100, (filter, page) -> repository.findArchived(filter, page.offset, page.limit));
+    }
+
+    public Mono<ServerResponse> get(ServerRequest request) {
+        long id;
+        try {
+            id = Long.parseLong(request.pathVariable("id"));
+        } catch (NumberFormatException ex) {
+            return error(HttpStatus.BAD_REQUEST, "Invalid id: " + request.pathVariable("id"));
+        }
+        return repository.findById(id)
+                .flatMap(expense -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(expense))
+                .switchIfEmpty(Mono.defer(() -> error(HttpStatus.NOT_FOUND, "Expense not found with id: " + id)));
+    }
+
+    private Mono<ServerResponse> respond(ServerRequest request, int defaultSize, Query query) {
+        boolean ndjson = request.headers().accept().stream()
+                .anyMatch(type -> type.isCompatibleWith(MediaType.APPLICATION_NDJSON) && !type.isWildcardType());
+        ExpenseFilter filter;
+        Page page;
+        try {
+            filter = new ExpenseFilter(
+                    request.queryParam("category").orElse(null),
+                    param(request, "startDate", LocalDate::parse),
+                    param(request, "endDate", LocalDate::parse),
+                    param(request, "minAmount", Double::valueOf),
+                    param(request, "maxAmount", Double::valueOf));
+            page = page(request, ndjson ? null : defaultSize);
+        } catch (InvalidRequestException ex) {
+            return error(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+        Flux<Expense> expenses = query.run(filter, page);
+        return ServerResponse.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(expenses, Expense.class);
+    }
+
+    private static Page page(ServerRequest request, Integer defaultSize) {
+        Integer page = param(request, "page", Integer::valueOf);
+        Integer size = param(request, "size", Integer::valueOf);
+        if (size == null) {
+            size = defaultSize;
+        }
+        if (page != null && page < 0) {
+            throw new InvalidRequestException("page must be at least 0");
+        }
+        if (size != null && (size < 1 || size > MAX_PAGE_SIZE)) {
+            throw new InvalidRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        if (size == null) {
+            // Unbounded NDJSON stream: paging makes no sense without a page size
+            return new Page(0, null);
+        }
+        return new Page((page == null ? 0L : page) * size, size);
+    }
+
+    private static <T> T param(ServerRequest request, String name, Function<String, T> parser) {
+        String value = request.queryParam(name).orElse(null);
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return parser.apply(value);
+        } catch (NumberFormatException | DateTimeParseException ex) {
+            throw new InvalidRequestException("Invalid value for " + name + ": " + value);
+        }
+    }
+
+    // Same body shape as GlobalExceptionHandler
+    static Map<String, Object> errorBody(HttpStatus status, String message) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("status", status.value());
+        body.put("message", message);
+        return body;
+    }
+
+    private static Mono<ServerResponse> error(HttpStatus status, String message) {
+        return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(errorBody(status, message));
+    }
+
+    private interface Query {
+        Flux<Expense> run(ExpenseFilter filter, Page page);
+    }
+
+    private static final class Page {
+        final long offset;
+        final Integer limit;
+
+        Page(long offset, Integer limit) {
+            this.offset = offset;
+            this.limit = limit;
+        }
+    }
+}
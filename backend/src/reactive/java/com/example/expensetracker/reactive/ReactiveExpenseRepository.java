@@ -0,0 +1,104 @@
+package com.example.expensetracker.reactive;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.service.ExpenseArchiveStore;
+import io.r2dbc.spi.Row;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * R2DBC queries behind the reactive read API. They build the same predicates as
+ * {@link ExpenseFilter#toSpecification()} (category, date and amount ranges) and the same
+ * date DESC, id DESC order as the servlet API, so both APIs return identical rows.
+ * Category names come from a join with the category table, so mapping a row never leaves the event loop.
+ * Rows are emitted as the driver produces them; subscriber demand limits how far the query runs ahead.
+ */
+public class ReactiveExpenseRepository {
+
+    private static final String COLUMNS = "SELECT e.id, e.description, e.amount, e.date, c.name FROM ";
+
+    private static final String CATEGORY_JOIN = " e LEFT JOIN category c ON c.id = e.category_id";
+
+    private final DatabaseClient databaseClient;
+    private final ExpenseArchiveStore archiveStore;
+
+    public ReactiveExpenseRepository(DatabaseClient databaseClient, ExpenseArchiveStore archiveStore) {
+        this.databaseClient = databaseClient;
+        this.archiveStore = archiveStore;
+    }
+
+    // Active expenses matching the filter; limit == null streams every match
+    public Flux<Expense> findActive(ExpenseFilter filter, long offset, Integer limit) {
+        return select("expense", "e.deleted = FALSE", false, filter, offset, limit);
+    }
+
+    // Archived expenses matching the filter, from whichever storage expense.archive.storage selects
+    public Flux<Expense> findArchived(ExpenseFilter filter, long offset, Integer limit) {
+        return archiveStore.isColdStorage()
+                ? select("expense_archive", "1 = 1", true, filter, offset, limit)
+                : select("expense", "e.deleted = TRUE", true, filter, offset, limit);
+    }
+
+    public Mono<Expense> findById(long id) {
+        return databaseClient.sql(COLUMNS.replace("SELECT ", "SELECT e.deleted, ") + "expense" + CATEGORY_JOIN + " WHERE e.id = :id")
+                .bind("id", id)
+                .map((row, metadata) -> toExpense(row, 1, Boolean.TRUE.equals(row.get(0, Boolean.class))))
+                .one();
+    }
+
+    private Flux<Expense> select(String table, String baseCondition, boolean archived,
+                                 ExpenseFilter filter, long offset, Integer limit) {
+        StringBuilder sql = new StringBuilder(COLUMNS).append(table).append(CATEGORY_JOIN).append(" WHERE ").append(baseCondition);
+        Map<String, Object> bindings = new LinkedHashMap<>();
+        if (filter.getCategory() != null) {
+            sql.append(" AND c.name = :category");
+            bindings.put("category", filter.getCategory());
+        }
+        if (filter.getStartDate() != null) {
+            sql.append(" AND e.date >= :startDate");
+            bindings.put("startDate", filter.getStartDate());
+        }
+        if (filter.getEndDate() != null) {
+            sql.append(" AND e.date <= :endDate");
+            bindings.put("endDate", filter.getEndDate());
+        }
+        if (filter.getMinAmount() != null) {
+            sql.append(" AND e.amount >= :minAmount");
+            bindings.put("minAmount", filter.getMinAmount());
+        }
+        if (filter.getMaxAmount() != null) {
+            sql.append(" AND e.amount <= :maxAmount");
+            bindings.put("maxAmount", filter.getMaxAmount());
+        }
+        sql.append(" ORDER BY e.date DESC, e.id DESC");
+        if (limit != null) {
+            sql.append(" LIMIT :limit OFFSET :offset");
+            bindings.put("limit", limit);
+            bindings.put("offset", offset);
+        }
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (Map.Entry<String, Object> binding : bindings.entrySet()) {
+            spec = spec.bind(binding.getKey(), binding.getValue());
+        }
+        return spec.map((row, metadata) -> toExpense(row, 0, archived)).all();
+    }
+
+    // Columns id, description, amount, date, category name starting at index first
+    private static Expense toExpense(Row row, int first, boolean deleted) {
+        Expense expense = new Expense(
+                row.get(first + 1, String.class),
+                row.get(first + 2, Double.class),
+                row.get(first + 3, LocalDate.class),
+                row.get(first + 4, String.class));
+        expense.setId(row.get(first, Long.class));
+        expense.setDeleted(deleted);
+        return expense;
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.service.AmountSketch;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AmountSketchTest {
+
+    private static final double ACCURACY = 0.01;
+
+    @Test
+    void testQuantilesAreWithinRelativeAccuracy() {
+        Random random = new Random(42);
+        long[] amounts = new long[10_000];
+        AmountSketch sketch = new AmountSketch(ACCURACY);
+        for (int i = 0; i < amounts.length; i++) {
+            // Log-normal-ish spread from cents to thousands
+            amounts[i] = 100 + (long) Math.exp(random.nextGaussian() * 2 + 8);
+            sketch.add(amounts[i]);
+        }
+        Arrays.sort(amounts);
+
+        for (double q : new double[]{0, 0.1, 0.5, 0.9, 0.99, 1}) {
+            double exact = amounts[(int) Math.floor(q * (amounts.length - 1))] / 100.0;
+            double approximate = sketch.quantile(q).doubleValue();
+            assertTrue(Math.abs(approximate - exact) <= exact * ACCURACY + 0.01,
+                    "q=" + q + ": " + approximate + " vs " + exact);
+        }
+    }
+
+    @Test
+    void testMergeEqualsOneSketchOverAllAmounts() {
+        AmountSketch all = new AmountSketch(ACCURACY);
+        AmountSketch low = new AmountSketch(ACCURACY);
+        AmountSketch high = new AmountSketch(ACCURACY);
+        for (long cents = 1; cents <= 100_000; cents += 37) {
+            all.add(cents);
+            (cents < 5_000 ? low : high).add(cents);
+        }
+        low.merge(high);
+
+        assertEquals(all.getCount(), low.getCount());
+        for (double q : new double[]{0.01, 0.5, 0.99}) {
+            assertEquals(all.quantile(q), low.quantile(q));
+        }
+        assertThrows(IllegalArgumentException.class, () -> low.merge(new AmountSketch(0.02)));
+    }
+
+    @Test
+    void testRemovingAnAmountIsExact() {
+        AmountSketch sketch = new AmountSketch(ACCURACY);
+        sketch.add(1_000);
+        BigDecimal before = sketch.quantile(0.5);
+        sketch.add(250_000);
+        sketch.addToBucket(sketch.bucketOf(250_000), -1);
+
+        assertEquals(1, sketch.getCount());
+        assertEquals(before, sketch.quantile(1));
+
+        sketch.addToBucket(sketch.bucketOf(1_000), -1);
+        assertTrue(sketch.isEmpty());
+        assertNull(sketch.quantile(0.5));
+    }
+
+    @Test
+    void testHistogramCoversEveryAmount() {
+        AmountSketch sketch = new AmountSketch(ACCURACY);
+        for (long cents = 50; cents <= 500_000; cents *= 3) {
+            sketch.add(cents);
+            sketch.add(cents + 1);
+        }
+
+        List<Map<String, Object>> histogram = sketch.histogram(4);
+        assertTrue(histogram.size() <= 4);
+        long total = histogram.stream().mapToLong(bin -> (Long) bin.get("count")).sum();
+        assertEquals(sketch.getCount(), total);
+        assertTrue(((BigDecimal) histogram.get(0).get("from")).compareTo(new BigDecimal("0.50")) <= 0);
+        assertTrue(((BigDecimal) histogram.get(histogram.size() - 1).get("to")).compareTo(new BigDecimal("3280.51")) >= 0);
+    }
+}
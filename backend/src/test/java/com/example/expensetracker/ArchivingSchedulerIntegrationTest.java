@@ -0,0 +1,184 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.ArchivingScheduler;
+import com.example.expensetracker.service.ExpenseArchiveStore;
+import com.example.expensetracker.service.ExpenseArchivingService;
+import com.example.expensetracker.service.ExpenseDistributionService;
+import com.example.expensetracker.service.ExpenseRollupService;
+import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.service.JobLockService;
+import com.example.expensetracker.service.JobRunHistory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Two "nodes" are two JobLockService instances with their own node ids sharing one database
+@SpringBootTest
+public class ArchivingSchedulerIntegrationTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ExpenseArchivingService archivingService;
+
+    @Autowired
+    private ExpenseArchiveStore archiveStore;
+
+    @Autowired
+    private JobRunHistory history;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExpenseRollupService rollupService;
+
+    @Autowired
+    private ExpenseDistributionService distributionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testLockIsExclusiveUntilReleasedOrExpired() throws Exception {
+        JobLockService nodeA = new JobLockService(jdbcTemplate, "node-a");
+        JobLockService nodeB = new JobLockService(jdbcTemplate, "node-b");
+
+        JobLockService.Lease lease = nodeA.tryLock("test-exclusive", Duration.ofMinutes(5)).orElseThrow();
+        assertFalse(nodeB.tryLock("test-exclusive", Duration.ofMinutes(5)).isPresent());
+        assertTrue(lease.checkpoint());
+
+        // A quick run keeps the lock for lock-at-least, so a late node does not repeat the execution
+        lease.release(Duration.ofMinutes(1));
+        assertFalse(nodeB.tryLock("test-exclusive", Duration.ofMinutes(5)).isPresent());
+
+        // A node that stops renewing loses the lock once its lease runs out
+        JobLockService.Lease short1 = nodeA.tryLock("test-expiry", Duration.ofMillis(200)).orElseThrow();
+        Thread.sleep(300);
+        JobLockService.Lease taken = nodeB.tryLock("test-expiry", Duration.ofMinutes(5)).orElseThrow();
+        assertFalse(short1.checkpoint());
+        assertTrue(taken.checkpoint());
+        taken.release(Duration.ZERO);
+        assertTrue(nodeA.tryLock("test-expiry", Duration.ofMinutes(5)).isPresent());
+    }
+
+    @Test
+    void testStaleClaimOfTheSameNodeCannotRenewOrRelease() throws Exception {
+        JobLockService node = new JobLockService(jdbcTemplate, "node-a");
+
+        // The cron and poll paths share the node id; an expired lease must not renew the new claim
+        JobLockService.Lease stale = node.tryLock("test-token", Duration.ofMillis(200)).orElseThrow();
+        Thread.sleep(300);
+        JobLockService.Lease current = node.tryLock("test-token", Duration.ofMinutes(5)).orElseThrow();
+        assertFalse(stale.checkpoint());
+        stale.release(Duration.ZERO);
+        assertFalse(node.tryLock("test-token", Duration.ofMinutes(5)).isPresent());
+        assertTrue(current.checkpoint());
+        current.release(Duration.ZERO);
+    }
+
+    @Test
+    void testShardedRunSplitsArchivingAcrossNodes() throws Exception {
+        jdbcTemplate.update("DELETE FROM job_shard");
+        jdbcTemplate.update("DELETE FROM job_lock WHERE job_name = ?", ArchivingScheduler.JOB);
+        List<Expense> expired = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            expired.add(new Expense("Sharded " + i, 5.0 + i, LocalDate.now().minusDays(100 + i), "Food"));
+        }
+        List<Long> ids = expenseRepository.saveAll(expired).stream().map(Expense::getId).collect(Collectors.toList());
+
+        ArchivingScheduler nodeA = scheduler("shard-node-a");
+        ArchivingScheduler nodeB = scheduler("shard-node-b");
+        CompletableFuture<Void> a = CompletableFuture.runAsync(nodeA::run);
+        CompletableFuture<Void> b = CompletableFuture.runAsync(nodeB::run);
+        a.get(30, TimeUnit.SECONDS);
+        b.get(30, TimeUnit.SECONDS);
+
+        // Every expired expense is archived once, and the run is planned once
+        for (Long id : ids) {
+            assertTrue(expenseRepository.findById(id).map(Expense::isDeleted).orElse(true), "expense " + id);
+        }
+        // findArchivable locks its rows and needs a transaction; the id bounds tell the same
+        assertTrue(archivingService.shardRanges(archivingService.thresholdDate(), 1).isEmpty());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM job_shard WHERE status <> 'DONE'", Integer.class));
+        assertFalse(nodeA.planShards());
+
+        List<Map<String, Object>> shardRuns = history.recent(ArchivingScheduler.JOB, 100).stream()
+                .filter(run -> String.valueOf(run.get("node")).startsWith("shard-node-") && run.get("shard") != null)
+                .collect(Collectors.toList());
+        assertEquals(4, shardRuns.size());
+        long archived = shardRuns.stream().mapToLong(run -> (Long) run.get("rows")).sum();
+        assertTrue(archived >= ids.size(), "archived " + archived);
+        assertTrue(shardRuns.stream().allMatch(run -> JobRunHistory.SUCCEEDED.equals(run.get("status"))));
+    }
+
+    @Test
+    void testExpenseDeletedWhileArchivingLeavesTheSummariesOnce() throws Exception {
+        LocalDate old = LocalDate.now().minusDays(200);
+        Long deleted = expenseService.createExpense(new Expense("Deleted meanwhile", 8.0, old, "ArchiveRace")).getId();
+        expenseService.createExpense(new Expense("Archived", 9.0, old, "ArchiveRace"));
+
+        // The delete has changed the row but not committed when the archiving chunk selects it
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> deleter = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                expenseService.deleteExpense(deleted);
+                written.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+            Future<Long> archiver = executor.submit(() -> archivingService.archiveExpensesBefore(archivingService.thresholdDate()));
+            Thread.sleep(300);
+            commit.countDown();
+            deleter.get(10, TimeUnit.SECONDS);
+            archiver.get(10, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+
+        // Each expense left the active set exactly once
+        assertTrue(rollupService.summarize(Set.of("category"), null, null, "ArchiveRace").stream()
+                .allMatch(row -> ((Number) row.get("count")).longValue() == 0));
+        assertTrue(distributionService.distribution(Set.of("category"), null, null, "ArchiveRace", new double[]{0.5}, 0)
+                .stream().allMatch(row -> ((Number) row.get("count")).longValue() == 0));
+    }
+
+    private ArchivingScheduler scheduler(String nodeId) {
+        return new ArchivingScheduler(archivingService, archiveStore, new JobLockService(jdbcTemplate, nodeId), history,
+                4, Duration.ofMinutes(5), Duration.ofMinutes(1), 3);
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.example.expensetracker.service.ExpenseAnalyticsEngine;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ExpenseAnalyticsEngineTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void testAggregateFollowsChangeEvents() {
+        ExpenseAnalyticsEngine engine = new ExpenseAnalyticsEngine(null, false, 1);
+        ExpenseSnapshot lunch = new ExpenseSnapshot(1L, "Lunch", 12.50, DAY, "Food");
+        ExpenseSnapshot taxi = new ExpenseSnapshot(2L, "Taxi", 30.00, DAY.plusDays(1), "Travel");
+        ExpenseSnapshot dinner = new ExpenseSnapshot(3L, "Dinner", 40.25, DAY.plusDays(2), "Food");
+        engine.onExpenseChange(ExpenseChangeEvent.created(Arrays.asList(lunch, taxi, dinner)));
+
+        Map<String, Object> food = engine.aggregate(new ExpenseFilter("Food", null, null, null, null));
+        assertEquals(2L, food.get("count"));
+        assertEquals(new BigDecimal("52.75"), food.get("total"));
+        assertEquals(new BigDecimal("12.50"), food.get("min"));
+        assertEquals(new BigDecimal("40.25"), food.get("max"));
+
+        // Update moves lunch out of the date window, delete removes the taxi
+        ExpenseSnapshot movedLunch = new ExpenseSnapshot(1L, "Lunch", 12.50, DAY.minusDays(10), "Food");
+        engine.onExpenseChange(ExpenseChangeEvent.updated(lunch, movedLunch));
+        engine.onExpenseChange(ExpenseChangeEvent.deleted(taxi));
+
+        Map<String, Object> window = engine.aggregate(new ExpenseFilter(null, DAY, DAY.plusDays(5), null, null));
+        assertEquals(1L, window.get("count"));
+        assertEquals(new BigDecimal("40.25"), window.get("total"));
+        assertEquals(2, engine.size());
+
+        Map<String, Object> none = engine.aggregate(new ExpenseFilter("Unknown", null, null, null, null));
+        assertEquals(0L, none.get("count"));
+        assertNull(none.get("average"));
+    }
+
+    @Test
+    void testTopCategoriesOrderedByTotal() {
+        ExpenseAnalyticsEngine engine = new ExpenseAnalyticsEngine(null, false, 1);
+        engine.onExpenseChange(ExpenseChangeEvent.created(Arrays.asList(
+                new ExpenseSnapshot(1L, "a", 5.0, DAY, "Food"),
+                new ExpenseSnapshot(2L, "b", 50.0, DAY, "Travel"),
+                new ExpenseSnapshot(3L, "c", 7.0, DAY, "Food"),
+                new ExpenseSnapshot(4L, "d", 1.0, DAY, "Health"))));
+
+        List<Map<String, Object>> top = engine.topCategories(new ExpenseFilter(null, null, null, 2.0, null), 2);
+
+        assertEquals(2, top.size());
+        assertEquals("Travel", top.get(0).get("category"));
+        assertEquals("Food", top.get(1).get("category"));
+        assertEquals(2L, top.get(1).get("count"));
+        assertEquals(new BigDecimal("6.00"), top.get(1).get("average"));
+    }
+
+    @Test
+    void testExpensesWithoutAmountAreLeftOut() {
+        ExpenseAnalyticsEngine engine = new ExpenseAnalyticsEngine(null, false, 1);
+        ExpenseSnapshot lunch = new ExpenseSnapshot(1L, "Lunch", 12.50, DAY, "Food");
+        engine.onExpenseChange(ExpenseChangeEvent.created(Arrays.asList(lunch,
+                new ExpenseSnapshot(2L, "Unpriced", null, DAY, "Food"))));
+
+        Map<String, Object> food = engine.aggregate(new ExpenseFilter("Food", null, null, null, null));
+        assertEquals(1L, food.get("count"));
+        assertEquals(new BigDecimal("12.50"), food.get("min"));
+
+        // Clearing the amount takes the expense out again
+        engine.onExpenseChange(ExpenseChangeEvent.updated(lunch, new ExpenseSnapshot(1L, "Lunch", null, DAY, "Food")));
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void testSlotsSurviveHeavyChurn() {
+        ExpenseAnalyticsEngine engine = new ExpenseAnalyticsEngine(null, false, 1);
+        List<ExpenseSnapshot> expenses = new ArrayList<>();
+        for (long id = 1; id <= 20_000; id++) {
+            expenses.add(new ExpenseSnapshot(id * 4096, "e" + id, 1.0, DAY, "Food"));
+        }
+        engine.onExpenseChange(ExpenseChangeEvent.created(expenses));
+        // Deleting every third expense moves slots around and shifts probe runs in the id index
+        for (int i = 0; i < expenses.size(); i += 3) {
+            engine.onExpenseChange(ExpenseChangeEvent.deleted(expenses.get(i)));
+        }
+        for (int i = 1; i < expenses.size(); i += 3) {
+            ExpenseSnapshot expense = expenses.get(i);
+            engine.onExpenseChange(ExpenseChangeEvent.updated(expense, new ExpenseSnapshot(
+                    expense.getId(), expense.getDescription(), 3.0, DAY, "Food")));
+        }
+
+        int kept = expenses.size() - (expenses.size() + 2) / 3;
+        int updated = (expenses.size() + 1) / 3;
+        Map<String, Object> all = engine.aggregate(new ExpenseFilter(null, null, null, null, null));
+        assertEquals(kept, engine.size());
+        assertEquals((long) kept, all.get("count"));
+        assertEquals(new BigDecimal(kept + 2 * updated).setScale(2), all.get("total"));
+    }
+
+    @Test
+    void testParallelScanMatchesSequentialScan() {
+        ExpenseAnalyticsEngine sequential = new ExpenseAnalyticsEngine(null, false, 1);
+        ExpenseAnalyticsEngine parallel = new ExpenseAnalyticsEngine(null, true, 1);
+        String[] categories = { "Food", "Travel", "Health" };
+        List<ExpenseSnapshot> expenses = new ArrayList<>();
+        for (long id = 1; id <= 300_000; id++) {
+            expenses.add(new ExpenseSnapshot(id, "e" + id, (id % 1000) / 10.0,
+                    DAY.plusDays(id % 365), categories[(int) (id % categories.length)]));
+        }
+        sequential.onExpenseChange(ExpenseChangeEvent.created(expenses));
+        parallel.onExpenseChange(ExpenseChangeEvent.created(expenses));
+
+        ExpenseFilter filter = new ExpenseFilter(null, DAY.plusDays(30), DAY.plusDays(200), 10.0, 80.0);
+        assertEquals(sequential.aggregate(filter), parallel.aggregate(filter));
+        assertEquals(sequential.topCategories(filter, 3), parallel.topCategories(filter, 3));
+    }
+}
@@ -1,16 +1,22 @@
 package com.example.expensetracker;
 
-import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.ExpenseSnapshot;
 import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.ExpenseArchiveStore;
 import com.example.expensetracker.service.ExpenseArchivingService;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
 import java.time.LocalDate;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 class ExpenseArchivingServiceTest {
@@ -19,40 +25,64 @@ class ExpenseArchivingServiceTest {
     void testArchiveOldExpenses() {
         // Create mock repository
         ExpenseRepository mockRepository = Mockito.mock(ExpenseRepository.class);
-        
-        // Create test expenses
-        Expense expense1 = new Expense();
-        expense1.setId(1L);
-        expense1.setDeleted(false);
-        expense1.setDate(LocalDate.now().minusDays(31));
-        
-        Expense expense2 = new Expense();
-        expense2.setId(2L);
-        expense2.setDeleted(false);
-        expense2.setDate(LocalDate.now().minusDays(45));
-        
-        List<Expense> oldExpenses = Arrays.asList(expense1, expense2);
-        
-        // Set up the mock to return our test expenses
+        ExpenseArchiveStore mockStore = Mockito.mock(ExpenseArchiveStore.class);
+        ApplicationEventPublisher mockPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        PlatformTransactionManager mockTransactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+        // Two expired expenses fit into a single chunk
         LocalDate thresholdDate = LocalDate.now().minusDays(30);
-        when(mockRepository.findByDeletedFalseAndDateBefore(thresholdDate)).thenReturn(oldExpenses);
-        
+        when(mockRepository.findArchivable(thresholdDate, PageRequest.of(0, 1000)))
+                .thenReturn(Arrays.asList(expired(1L, 31), expired(2L, 45)));
+        when(mockStore.archive(Arrays.asList(1L, 2L))).thenReturn(2);
+
         // Create the service with the mock repository
-        ExpenseArchivingService service = new ExpenseArchivingService(mockRepository);
-        
+        ExpenseArchivingService service =
+                new ExpenseArchivingService(mockRepository, mockStore, mockPublisher, mockTransactionManager, 1000, 30);
+
         // Call the method to test
         service.archiveOldExpenses();
-        
-        // Create a captor to verify the expenses were updated correctly
-        ArgumentCaptor<List<Expense>> expenseCaptor = ArgumentCaptor.forClass(List.class);
-        
-        // Verify that saveAll was called with the updated expenses
-        verify(mockRepository).saveAll(expenseCaptor.capture());
-        
-        // Verify the expenses were updated correctly
-        List<Expense> updatedExpenses = expenseCaptor.getValue();
-        assertEquals(2, updatedExpenses.size());
-        assertTrue(updatedExpenses.get(0).isDeleted());
-        assertTrue(updatedExpenses.get(1).isDeleted());
+
+        // Verify the chunk was archived with one set-based update, without loading entities
+        verify(mockStore).archive(Arrays.asList(1L, 2L));
+        verify(mockRepository, never()).saveAll(any());
+        verify(mockTransactionManager, times(1)).commit(any());
+
+        // Derived data is told which rows left the active set
+        ArgumentCaptor<ExpenseChangeEvent> eventCaptor = ArgumentCaptor.forClass(ExpenseChangeEvent.class);
+        verify(mockPublisher).publishEvent(eventCaptor.capture());
+        assertEquals(ExpenseChangeEvent.Type.ARCHIVED, eventCaptor.getValue().getType());
+        assertEquals(2, eventCaptor.getValue().getRemoved().size());
+    }
+
+    @Test
+    void testArchiveRunsInBoundedChunks() {
+        ExpenseRepository mockRepository = Mockito.mock(ExpenseRepository.class);
+        ExpenseArchiveStore mockStore = Mockito.mock(ExpenseArchiveStore.class);
+        ApplicationEventPublisher mockPublisher = Mockito.mock(ApplicationEventPublisher.class);
+        PlatformTransactionManager mockTransactionManager = Mockito.mock(PlatformTransactionManager.class);
+
+        // Five expired expenses with a chunk size of two: chunks of 2, 2 and 1
+        LocalDate thresholdDate = LocalDate.now().minusDays(90);
+        when(mockRepository.findArchivable(thresholdDate, PageRequest.of(0, 2)))
+                .thenReturn(Arrays.asList(expired(1L, 100), expired(2L, 100)))
+                .thenReturn(Arrays.asList(expired(3L, 99), expired(4L, 98)))
+                .thenReturn(Collections.singletonList(expired(5L, 95)));
+        when(mockStore.archive(any())).thenAnswer(invocation ->
+                ((Collection<?>) invocation.getArgument(0)).size());
+
+        ExpenseArchivingService service =
+                new ExpenseArchivingService(mockRepository, mockStore, mockPublisher, mockTransactionManager, 2, 90);
+
+        long archived = service.archiveExpensesBefore(thresholdDate);
+
+        assertEquals(5, archived);
+        verify(mockRepository, times(3)).findArchivable(thresholdDate, PageRequest.of(0, 2));
+        verify(mockStore, times(3)).archive(any());
+        // Each chunk commits in its own transaction
+        verify(mockTransactionManager, times(3)).commit(any());
+    }
+
+    private static ExpenseSnapshot expired(long id, int daysAgo) {
+        return new ExpenseSnapshot(id, "Expense " + id, 10.0, LocalDate.now().minusDays(daysAgo), "Food");
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,123 @@
+package com.example.expensetracker;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A short subscriber queue, so a replay longer than it is sent as a reset
+@SpringBootTest(properties = "expense.feed.subscriber-queue=4")
+@AutoConfigureMockMvc
+@WithMockUser
+public class ExpenseChangeFeedIntegrationTest {
+
+    private static final Pattern EVENT_ID = Pattern.compile("id:(\\S+)\\s+event:created\\s+data:[^\\n]*Feed groceries");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void testFilteredFeedAndResume() throws Exception {
+        MvcResult food = subscribe("Food", null);
+
+        Long groceries = create("Feed groceries", "Food");
+        create("Feed taxi", "Travel");
+        String body = awaitContent(food, "Feed groceries");
+        assertTrue(body.contains("event:created"));
+        assertFalse(body.contains("Feed taxi"));
+
+        Matcher matcher = EVENT_ID.matcher(body);
+        assertTrue(matcher.find(), body);
+        String groceriesEventId = matcher.group(1);
+
+        mockMvc.perform(delete("/api/expenses/" + groceries)).andExpect(status().isOk());
+        body = awaitContent(food, "event:deleted");
+        assertTrue(body.contains("\"removed\":[" + groceries + "]"));
+
+        // A client reconnecting after the create receives the delete it missed, but not the create again
+        MvcResult resumed = subscribe("Food", groceriesEventId);
+        body = awaitContent(resumed, "event:deleted");
+        assertFalse(body.contains("Feed groceries"));
+
+        // An id from another server run cannot be resumed
+        MvcResult stale = subscribe(null, "0-1");
+        awaitContent(stale, "event:reset");
+    }
+
+    @Test
+    void testReplayLongerThanTheQueueResets() throws Exception {
+        MvcResult live = subscribe("Backlog", null);
+        create("Backlog 0", "Backlog");
+        Matcher matcher = Pattern.compile("id:(\\S+)\\s+event:created\\s+data:[^\\n]*Backlog 0")
+                .matcher(awaitContent(live, "Backlog 0"));
+        assertTrue(matcher.find());
+        String firstEventId = matcher.group(1);
+
+        for (int i = 1; i <= 5; i++) {
+            create("Backlog " + i, "Backlog");
+        }
+        // Sent one at a time, the live subscriber keeps up with its short queue
+        awaitContent(live, "Backlog 5");
+
+        MvcResult resumed = subscribe("Backlog", firstEventId);
+        String body = awaitContent(resumed, "event:reset");
+        assertFalse(body.contains("Backlog 1"));
+    }
+
+    private MvcResult subscribe(String category, String lastEventId) throws Exception {
+        MockHttpServletRequestBuilder builder = get("/api/expenses/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .param("category", category == null ? "" : category);
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private Long create(String description, String category) throws Exception {
+        String json = "{\"description\": \"" + description + "\", \"amount\": 12.30, \"date\": \""
+                + LocalDate.now().minusDays(1) + "\", \"category\": \"" + category + "\"}";
+        String created = mockMvc.perform(post("/api/expenses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Matcher id = Pattern.compile("\"id\":(\\d+)").matcher(created);
+        assertTrue(id.find(), created);
+        return Long.valueOf(id.group(1));
+    }
+
+    // Changes reach subscribers from the feed's dispatcher thread, shortly after the commit
+    private static String awaitContent(MvcResult result, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            String body = result.getResponse().getContentAsString();
+            if (body.contains(expected)) {
+                return body;
+            }
+            Thread.sleep(20);
+        }
+        fail("No '" + expected + "' in " + result.getResponse().getContentAsString());
+        return null;
+    }
+}
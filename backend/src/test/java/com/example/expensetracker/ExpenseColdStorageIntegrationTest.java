@@ -0,0 +1,106 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.repository.ArchivedExpenseRepository;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.ExpenseArchivingService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Archive storage in "table" mode: archived rows move out of the hot expense table
+@SpringBootTest
+@AutoConfigureMockMvc
+@WithMockUser
+@TestPropertySource(properties = "expense.archive.storage=table")
+public class ExpenseColdStorageIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private ArchivedExpenseRepository archivedExpenseRepository;
+
+    @Autowired
+    private ExpenseArchivingService archivingService;
+
+    private Expense recent;
+    private Expense old;
+
+    @BeforeEach
+    void setUp() {
+        archivedExpenseRepository.deleteAll();
+        expenseRepository.deleteAll();
+        recent = expenseRepository.save(new Expense("Recent", 10.00, LocalDate.now().minusDays(1), "Food"));
+        old = expenseRepository.save(new Expense("Old", 20.00, LocalDate.now().minusDays(60), "Travel"));
+    }
+
+    @Test
+    void testDeleteMovesExpenseToArchiveAndRestoreBringsItBack() throws Exception {
+        mockMvc.perform(delete("/api/expenses/" + recent.getId()))
+                .andExpect(status().isOk());
+
+        assertFalse(expenseRepository.existsById(recent.getId()));
+        assertTrue(archivedExpenseRepository.existsById(recent.getId()));
+
+        mockMvc.perform(get("/api/expenses/archived")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].description", is("Recent")))
+                .andExpect(jsonPath("$[0].deleted", is(true)));
+
+        mockMvc.perform(post("/api/expenses/archived/" + recent.getId() + "/restore"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(recent.getId().intValue())))
+                .andExpect(jsonPath("$.deleted", is(false)));
+
+        assertTrue(expenseRepository.existsById(recent.getId()));
+        assertFalse(archivedExpenseRepository.existsById(recent.getId()));
+    }
+
+    @Test
+    void testArchivingJobMovesExpiredAndSoftDeletedRows() {
+        // A row soft-deleted while the node still ran in flag mode
+        Expense flagged = new Expense("Flagged", 5.00, LocalDate.now().minusDays(2), "Other");
+        flagged.setDeleted(true);
+        flagged = expenseRepository.save(flagged);
+
+        archivingService.archiveOldExpenses();
+
+        assertEquals(1, expenseRepository.count());
+        assertTrue(expenseRepository.existsById(recent.getId()));
+        assertTrue(archivedExpenseRepository.existsById(old.getId()));
+        assertTrue(archivedExpenseRepository.existsById(flagged.getId()));
+        assertEquals(LocalDate.now().minusDays(60).getYear(),
+                archivedExpenseRepository.findById(old.getId()).get().getArchiveYear());
+    }
+
+    @Test
+    void testRestoreUnknownExpenseReturnsNotFound() throws Exception {
+        mockMvc.perform(post("/api/expenses/archived/999999/restore"))
+                .andExpect(status().isNotFound());
+    }
+}
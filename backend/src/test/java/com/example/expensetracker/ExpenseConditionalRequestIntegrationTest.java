@@ -0,0 +1,150 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.service.ExpenseWatermarkService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ExpenseConditionalRequestIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExpenseWatermarkService watermarkService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TestRestTemplate client;
+
+    @BeforeEach
+    void setUp() {
+        client = restTemplate.withBasicAuth("admin", "admin");
+    }
+
+    @Test
+    void testSingleExpenseRevalidationAndOptimisticLocking() {
+        Expense created = client.postForObject("/api/expenses",
+                new Expense("Conditional", 9.99, LocalDate.of(2024, 4, 2), "Food"), Expense.class);
+        assertEquals(0L, created.getVersion());
+
+        String url = "/api/expenses/" + created.getId();
+        ResponseEntity<String> first = get(url, null);
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        assertNotNull(first.getHeaders().getLastModified());
+
+        ResponseEntity<String> revalidated = get(url, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, revalidated.getStatusCode());
+        assertNull(revalidated.getBody());
+
+        // Update conditioned on the current ETag succeeds and moves the version on
+        Expense change = new Expense("Conditional (edited)", 10.99, LocalDate.of(2024, 4, 2), "Food");
+        ResponseEntity<Expense> updated = put(url, change, etag);
+        assertEquals(HttpStatus.OK, updated.getStatusCode());
+        assertEquals(1L, updated.getBody().getVersion());
+        assertEquals(HttpStatus.OK, get(url, etag).getStatusCode());
+
+        // A second writer still holding the old ETag (or version) is rejected
+        assertEquals(HttpStatus.CONFLICT, put(url, change, etag).getStatusCode());
+        change.setVersion(0L);
+        assertEquals(HttpStatus.CONFLICT, put(url, change, null).getStatusCode());
+    }
+
+    @Test
+    void testListEtagFollowsTableWatermark() {
+        String url = "/api/expenses?page=0&size=5&category=Food";
+        ResponseEntity<String> first = get(url, null);
+        String etag = first.getHeaders().getETag();
+        assertNotNull(etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, get(url, etag).getStatusCode());
+        assertEquals(HttpStatus.NOT_MODIFIED, get("/api/expenses?pagination=cursor&size=5", etag).getStatusCode());
+
+        client.postForObject("/api/expenses",
+                new Expense("Watermark", 1.25, LocalDate.of(2024, 4, 3), "Other"), Expense.class);
+
+        ResponseEntity<String> afterWrite = get(url, etag);
+        assertEquals(HttpStatus.OK, afterWrite.getStatusCode());
+        assertNotEquals(etag, afterWrite.getHeaders().getETag());
+    }
+
+    @Test
+    void testListEtagMovesOnlyOnCommitWithoutBlockingOtherWriters() throws Exception {
+        String url = "/api/expenses?page=0&size=5";
+        String etag = get(url, null).getHeaders().getETag();
+
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<?> writer = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                expenseService.createExpense(new Expense("Open transaction", 2.5, LocalDate.of(2023, 7, 9), "Health"));
+                written.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+
+            // The open transaction has not moved the watermark, and holds nothing another writer needs
+            assertEquals(HttpStatus.NOT_MODIFIED, get(url, etag).getStatusCode());
+            watermarkService.bump();
+            String bumped = get(url, null).getHeaders().getETag();
+            assertNotEquals(etag, bumped);
+
+            commit.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+            assertEquals(HttpStatus.OK, get(url, bumped).getStatusCode());
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private ResponseEntity<String> get(String url, String ifNoneMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
+        return client.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+
+    private ResponseEntity<Expense> put(String url, Expense expense, String ifMatch) {
+        HttpHeaders headers = new HttpHeaders();
+        if (ifMatch != null) {
+            headers.setIfMatch(ifMatch);
+        }
+        return client.exchange(url, HttpMethod.PUT, new HttpEntity<>(expense, headers), Expense.class);
+    }
+}
@@ -2,6 +2,10 @@ package com.example.expensetracker;
 
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.ExpenseDistributionService;
+import com.example.expensetracker.service.ExpenseRollupService;
+import com.example.expensetracker.service.ExpenseService;
+import com.jayway.jsonpath.JsonPath;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,13 +14,36 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import static org.hamcrest.Matchers.hasItem;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -31,6 +58,18 @@ public class ExpenseControllerIntegrationTest {
     @Autowired
     private ExpenseRepository expenseRepository;
 
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExpenseRollupService expenseRollupService;
+
+    @Autowired
+    private ExpenseDistributionService distributionService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @BeforeEach
     void setUp() {
         // Clean the database and add sample data for integration testing
@@ -55,6 +94,192 @@ public class ExpenseControllerIntegrationTest {
                 .andExpect(jsonPath("$.totalExpenses", is(1)));
     }
 
+    @Test
+    void testGetExpensesColumnarShape() throws Exception {
+        mockMvc.perform(get("/api/expenses")
+                .param("pagination", "cursor")
+                .param("shape", "columnar")
+                .param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data").doesNotExist())
+                .andExpect(jsonPath("$.columns.description[0]", is("Test Expense 2")))
+                .andExpect(jsonPath("$.columns.description[1]", is("Test Expense 1")))
+                .andExpect(jsonPath("$.columns.amount[1]", is(10.0)))
+                .andExpect(jsonPath("$.columns.category", hasSize(2)))
+                .andExpect(jsonPath("$.columns.category[0]", is("Food")));
+
+        mockMvc.perform(get("/api/expenses").param("shape", "tabular"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testCategoriesAreDictionaryEncoded() throws Exception {
+        mockMvc.perform(get("/api/categories"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name", hasItem("Food")))
+                .andExpect(jsonPath("$[*].name", hasItem("Travel")));
+
+        // Filtering by a name that was never used matches nothing and does not register it
+        mockMvc.perform(get("/api/expenses").param("category", "Nonexistent"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(0)));
+        mockMvc.perform(get("/api/categories"))
+                .andExpect(jsonPath("$[*].name", not(hasItem("Nonexistent"))));
+    }
+
+    @Test
+    void testGetExpensesCursorPaging() throws Exception {
+        // First cursor page: newest expense only, no COUNT unless includeTotal is requested
+        MvcResult firstPage = mockMvc.perform(get("/api/expenses")
+                .param("pagination", "cursor")
+                .param("size", "1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].description", is("Test Expense 2")))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.hasPrevious", is(false)))
+                .andExpect(jsonPath("$.totalExpenses").doesNotExist())
+                .andReturn();
+        String nextCursor = JsonPath.read(firstPage.getResponse().getContentAsString(), "$.nextCursor");
+
+        // Following the cursor seeks past the first row
+        MvcResult secondPage = mockMvc.perform(get("/api/expenses")
+                .param("cursor", nextCursor)
+                .param("size", "1")
+                .param("includeTotal", "true")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].description", is("Test Expense 1")))
+                .andExpect(jsonPath("$.hasNext", is(false)))
+                .andExpect(jsonPath("$.hasPrevious", is(true)))
+                .andExpect(jsonPath("$.totalExpenses", is(2)))
+                .andReturn();
+        String prevCursor = JsonPath.read(secondPage.getResponse().getContentAsString(), "$.prevCursor");
+
+        // And the previous cursor leads back to the first row
+        mockMvc.perform(get("/api/expenses")
+                .param("cursor", prevCursor)
+                .param("size", "1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].description", is("Test Expense 2")))
+                .andExpect(jsonPath("$.hasNext", is(true)))
+                .andExpect(jsonPath("$.hasPrevious", is(false)));
+
+        mockMvc.perform(get("/api/expenses")
+                .param("cursor", "not-a-cursor")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+
+        // An empty or negative page is rejected in either paging mode
+        mockMvc.perform(get("/api/expenses")
+                .param("pagination", "cursor")
+                .param("size", "-1"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/expenses")
+                .param("size", "0"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testPatchChangesOnlySentFields() throws Exception {
+        Expense expense = expenseRepository.findAll().stream()
+                .filter(e -> e.getDescription().equals("Test Expense 1")).findFirst().get();
+
+        mockMvc.perform(patch("/api/expenses/" + expense.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"category\": \"Health\", \"version\": 0}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.category", is("Health")))
+                .andExpect(jsonPath("$.description", is("Test Expense 1")))
+                .andExpect(jsonPath("$.amount", is(10.0)))
+                .andExpect(jsonPath("$.version", is(1)));
+        Expense stored = expenseRepository.findById(expense.getId()).get();
+        assertEquals("Health", stored.getCategory());
+        assertEquals("Test Expense 1", stored.getDescription());
+        assertEquals(1L, stored.getVersion());
+
+        // Stale version, invalid amount, nothing to change, unknown id
+        mockMvc.perform(patch("/api/expenses/" + expense.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\": 12.5, \"version\": 0}"))
+                .andExpect(status().isConflict());
+        mockMvc.perform(patch("/api/expenses/" + expense.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\": -1}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/expenses/" + expense.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/api/expenses/999999999")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"amount\": 12.5}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testBatchAppliesAllOperationsOrNone() throws Exception {
+        Long first = expenseRepository.findAll().get(0).getId();
+        Long second = expenseRepository.findAll().get(1).getId();
+
+        // An unknown id rolls back the whole batch
+        mockMvc.perform(post("/api/expenses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\": [{\"op\": \"update\", \"id\": " + first + ", \"category\": \"Health\"},"
+                        + "{\"op\": \"delete\", \"id\": 999999999}]}"))
+                .andExpect(status().isNotFound());
+        assertEquals(0L, expenseRepository.findById(first).get().getVersion());
+
+        mockMvc.perform(post("/api/expenses/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"operations\": [{\"op\": \"update\", \"id\": " + first + ", \"category\": \"Health\"},"
+                        + "{\"op\": \"archive\", \"id\": " + second + "}]}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.updated", is(1)))
+                .andExpect(jsonPath("$.archived", is(1)));
+
+        assertEquals("Health", expenseRepository.findById(first).get().getCategory());
+        assertTrue(expenseRepository.findById(second).get().isDeleted());
+        mockMvc.perform(get("/api/expenses").param("category", "Health"))
+                .andExpect(jsonPath("$.data", hasSize(1)));
+    }
+
+    @Test
+    void testFullTextSearch() throws Exception {
+        // The fixtures bypass the change events, so the index is rebuilt from the table first (administrators only)
+        mockMvc.perform(post("/api/expenses/search/rebuild"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/expenses/search/rebuild").with(user("admin").roles("USER", "ADMIN")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.rows", is(2)));
+
+        mockMvc.perform(get("/api/expenses/search").param("q", "expense 2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].description", is("Test Expense 2")))
+                .andExpect(jsonPath("$.totalExpenses", is(1)));
+        mockMvc.perform(get("/api/expenses/search").param("q", "test").param("category", "Travel"))
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].description", is("Test Expense 1")));
+
+        // New expenses are searchable as soon as they are committed
+        String groceries = "{\"description\": \"Weekly groceries\", \"amount\": 54.20, \"date\": \""
+                + LocalDate.now().minusDays(1) + "\", \"category\": \"Food\"}";
+        mockMvc.perform(post("/api/expenses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(groceries))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/expenses/search").param("q", "grocer*"))
+                .andExpect(jsonPath("$.data", hasSize(1)))
+                .andExpect(jsonPath("$.data[0].description", is("Weekly groceries")));
+
+        mockMvc.perform(get("/api/expenses/search").param("q", "g*"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void testArchivedExpensesEndpoint() throws Exception {
         // Soft delete (archive) one expense by marking its deleted flag to true.
@@ -67,7 +292,215 @@ public class ExpenseControllerIntegrationTest {
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].description", is(expense.getDescription())));
+                .andExpect(jsonPath("$[0].description", is(expense.getDescription())))
+                .andExpect(header().string("X-Total-Count", "1"));
+    }
+
+    @Test
+    void testArchivedExpensesExport() throws Exception {
+        Expense expense = expenseRepository.findAll().get(0);
+        expense.setDeleted(true);
+        expenseRepository.save(expense);
+
+        String ndjson = mockMvc.perform(get("/api/expenses/archived/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", startsWith("application/x-ndjson")))
+                .andReturn().getResponse().getContentAsString();
+        String[] lines = ndjson.trim().split("\n");
+        assertEquals(1, lines.length);
+        assertEquals(expense.getDescription(), JsonPath.read(lines[0], "$.description"));
+
+        String csv = mockMvc.perform(get("/api/expenses/archived/export").param("format", "csv"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(csv.startsWith("id,description,amount,date,category\n"));
+        assertTrue(csv.contains(expense.getDescription()));
+
+        mockMvc.perform(get("/api/expenses/archived/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+
+        byte[] compressed = mockMvc.perform(get("/api/expenses/archived/export").param("gzip", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(ndjson, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testBulkImportJsonReportsRowErrors() throws Exception {
+        String payload = "["
+                + "{\"description\": \"Bulk 1\", \"amount\": 12.5, \"date\": \"2024-01-15\", \"category\": \"Food\"},"
+                + "{\"description\": \"Bulk 2\", \"amount\": -3, \"date\": \"2024-01-16\", \"category\": \"Food\"},"
+                + "{\"description\": \"Bulk 3\", \"amount\": 7, \"date\": \"not-a-date\", \"category\": \"Food\"},"
+                + "{\"description\": \"Bulk 4\", \"amount\": 99.99, \"date\": \"2024-02-01\", \"category\": \"Travel\"}"
+                + "]";
+
+        mockMvc.perform(post("/api/expenses/bulk")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(payload))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.rejected", is(2)))
+                .andExpect(jsonPath("$.errors[0].row", is(2)))
+                .andExpect(jsonPath("$.errors[0].messages", hasItem("Amount must be greater than 0")))
+                .andExpect(jsonPath("$.errors[1].row", is(3)));
+
+        assertEquals(4, expenseRepository.count());
+    }
+
+    @Test
+    void testBulkImportCsv() throws Exception {
+        String csv = "category,description,amount,date\n"
+                + "Food,\"Dinner, with friends\",42.00,2024-03-01\n"
+                + "Travel,Taxi,abc,2024-03-02\n"
+                + "Utilities,Power bill,80.10,2024-03-03\n";
+
+        mockMvc.perform(post("/api/expenses/bulk")
+                        .contentType("text/csv")
+                        .content(csv))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported", is(2)))
+                .andExpect(jsonPath("$.rejected", is(1)))
+                .andExpect(jsonPath("$.errors[0].row", is(2)));
+
+        mockMvc.perform(get("/api/expenses")
+                        .param("category", "Food")
+                        .param("minAmount", "40")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data[0].description", is("Dinner, with friends")));
+    }
+
+    @Test
+    void testSummaryIsMaintainedIncrementally() throws Exception {
+        // Rows inserted by setUp() bypass the service, so start from a rebuilt rollup (administrators only)
+        mockMvc.perform(post("/api/expenses/summary/rebuild"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/expenses/summary/rebuild").with(user("admin").roles("USER", "ADMIN")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/expenses/summary").param("groupBy", "category"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].category", is("Food")))
+                .andExpect(jsonPath("$[0].count", is(1)))
+                .andExpect(jsonPath("$[0].total", is(20.5)));
+
+        String lunch = "{\"description\": \"Lunch\", \"amount\": 9.50, \"date\": \""
+                + LocalDate.now().minusDays(1) + "\", \"category\": \"Food\"}";
+        String created = mockMvc.perform(post("/api/expenses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(lunch))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(created, "$.id");
+
+        mockMvc.perform(get("/api/expenses/summary").param("groupBy", "category"))
+                .andExpect(jsonPath("$[0].count", is(2)))
+                .andExpect(jsonPath("$[0].total", is(30.0)));
+
+        mockMvc.perform(delete("/api/expenses/" + id))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/expenses/summary").param("groupBy", "category"))
+                .andExpect(jsonPath("$[0].count", is(1)))
+                .andExpect(jsonPath("$[0].total", is(20.5)));
+
+        mockMvc.perform(get("/api/expenses/summary").param("groupBy", "weekday"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void testRollupRebuildWaitsForWritersInFlight() throws Exception {
+        rebuildWhileWriting("RollupRace", expenseRollupService::rebuild);
+
+        List<Map<String, Object>> rows = expenseRollupService.summarize(Set.of("category"), null, null, "RollupRace");
+        assertEquals(1, rows.size());
+        assertEquals(1L, rows.get(0).get("count"));
+    }
+
+    @Test
+    void testDistributionRebuildWaitsForWritersInFlight() throws Exception {
+        rebuildWhileWriting("SketchRace", distributionService::rebuild);
+
+        // In the table and in memory exactly once, although the commit raced the reload
+        List<Map<String, Object>> rows = distributionService.distribution(Set.of("category"), null, null, "SketchRace",
+                new double[]{0.5}, 0);
+        assertEquals(1, rows.size());
+        assertEquals(1L, rows.get(0).get("count"));
+    }
+
+    // Starts the rebuild while a writer has applied its summary deltas to a new group but not committed
+    private void rebuildWhileWriting(String category, Callable<?> rebuild) throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(tx -> {
+                expenseService.createExpense(new Expense("In flight", 4.0, LocalDate.now().minusDays(1), category));
+                written.countDown();
+                try {
+                    commit.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            assertTrue(written.await(10, TimeUnit.SECONDS));
+
+            Future<?> rebuilt = executor.submit(rebuild);
+            Thread.sleep(300);
+            assertFalse(rebuilt.isDone());
+
+            commit.countDown();
+            writer.get(10, TimeUnit.SECONDS);
+            rebuilt.get(10, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testAmountDistributionFollowsChanges() throws Exception {
+        // Rows inserted by setUp() bypass the service, so start from rebuilt sketches (administrators only)
+        mockMvc.perform(post("/api/expenses/summary/distribution/rebuild"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/api/expenses/summary/distribution/rebuild").with(user("admin").roles("USER", "ADMIN")))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/expenses/summary/distribution").param("bins", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].category", is("Food")))
+                .andExpect(jsonPath("$[0].count", is(1)))
+                .andExpect(jsonPath("$[0].quantiles.p50", closeTo(20.5, 0.21)))
+                .andExpect(jsonPath("$[0].histogram[0].count", is(1)));
+
+        String lunch = "{\"description\": \"Lunch\", \"amount\": 9.50, \"date\": \""
+                + LocalDate.now().minusDays(1) + "\", \"category\": \"Food\"}";
+        String created = mockMvc.perform(post("/api/expenses")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(lunch))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(created, "$.id");
+
+        mockMvc.perform(get("/api/expenses/summary/distribution")
+                        .param("category", "Food")
+                        .param("quantiles", "0,1"))
+                .andExpect(jsonPath("$[0].count", is(2)))
+                .andExpect(jsonPath("$[0].quantiles.p0", closeTo(9.5, 0.1)))
+                .andExpect(jsonPath("$[0].quantiles.p100", closeTo(20.5, 0.21)));
+
+        mockMvc.perform(delete("/api/expenses/" + id))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/api/expenses/summary/distribution").param("category", "Food"))
+                .andExpect(jsonPath("$[0].count", is(1)));
+
+        mockMvc.perform(get("/api/expenses/summary/distribution").param("quantiles", "1.5"))
+                .andExpect(status().isBadRequest());
     }
 
     /**
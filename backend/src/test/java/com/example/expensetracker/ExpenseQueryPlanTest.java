@@ -0,0 +1,133 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.example.expensetracker.repository.ExpenseRepository;
+import com.example.expensetracker.service.CategoryRegistry;
+import com.example.expensetracker.service.ExpenseCursor;
+import com.example.expensetracker.service.ExpenseService;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Query-plan regression suite: runs the filter specification and the derived repository queries, records
+ * the SQL Hibernate generates for them and runs H2's EXPLAIN on it, failing if any statement on the expense
+ * table stops using one of the Expense indexes and falls back to a full table scan.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "com.example.expensetracker.ExpenseQueryPlanTest$RecordingInspector")
+public class ExpenseQueryPlanTest {
+
+    private static final LocalDate FROM = LocalDate.of(2024, 1, 1);
+    private static final LocalDate TO = LocalDate.of(2024, 12, 31);
+    private static final PageRequest PAGE = PageRequest.of(0, 10, Sort.by(Sort.Order.desc("date"), Sort.Order.desc("id")));
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private CategoryRegistry categoryRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    static Stream<Arguments> accessPaths() {
+        String seek = ExpenseCursor.after(new ExpenseSnapshot(50L, "Seek", 1.0, LocalDate.of(2024, 6, 1), "Food")).encode();
+        return Stream.of(
+                Arguments.of("active", (Query) (service, repository) ->
+                        service.getExpenses(null, null, null, null, null, PAGE)),
+                Arguments.of("category", (Query) (service, repository) ->
+                        service.getExpenses("Food", null, null, null, null, PAGE)),
+                Arguments.of("category and date range", (Query) (service, repository) ->
+                        service.getExpenses("Food", FROM, TO, null, null, PAGE)),
+                Arguments.of("date range", (Query) (service, repository) ->
+                        service.getExpenses(null, FROM, TO, null, null, PAGE)),
+                Arguments.of("amount range", (Query) (service, repository) ->
+                        service.getExpenses(null, null, null, 10.0, 100.0, PAGE)),
+                Arguments.of("all filters", (Query) (service, repository) ->
+                        service.getExpenses("Food", FROM, TO, 10.0, 100.0, PAGE)),
+                Arguments.of("keyset seek", (Query) (service, repository) ->
+                        service.getExpensesByCursor(null, null, null, null, null, seek, 10, true)),
+                Arguments.of("findByDeletedTrue", (Query) (service, repository) ->
+                        repository.findByDeletedTrue()),
+                Arguments.of("findByDeletedFalseAndDateBefore", (Query) (service, repository) ->
+                        repository.findByDeletedFalseAndDateBefore(FROM))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("accessPaths")
+    void queryUsesAnIndex(String accessPath, Query query) {
+        // A category that was never registered short-circuits to a predicate that matches nothing
+        categoryRegistry.register("Food");
+
+        List<String> statements = RecordingInspector.record(() -> query.run(expenseService, expenseRepository));
+        assertFalse(statements.isEmpty(), () -> accessPath + " ran no statement on the expense table");
+
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse(plan.contains("tableScan"), () -> accessPath + " falls back to a table scan:\n" + plan);
+            assertTrue(plan.toUpperCase(Locale.ROOT).contains("IDX_EXPENSE_"),
+                    () -> accessPath + " uses no Expense index:\n" + plan);
+        }
+    }
+
+    // Hibernate binds every value as a parameter; H2 chooses the index before any value is known
+    private String explain(String sql) {
+        return jdbcTemplate.query("EXPLAIN " + sql, statement -> {
+            int parameters = statement.getParameterMetaData().getParameterCount();
+            for (int i = 1; i <= parameters; i++) {
+                statement.setObject(i, null);
+            }
+        }, rs -> rs.next() ? rs.getString(1) : "");
+    }
+
+    @FunctionalInterface
+    interface Query {
+        void run(ExpenseService service, ExpenseRepository repository);
+    }
+
+    // Registered with Hibernate by class name; collects the statements on the expense table while recording
+    public static class RecordingInspector implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+        static List<String> record(Runnable action) {
+            List<String> statements = new ArrayList<>();
+            RECORDED.set(statements);
+            try {
+                action.run();
+            } finally {
+                RECORDED.remove();
+            }
+            return statements;
+        }
+
+        @Override
+        public String inspect(String sql) {
+            List<String> statements = RECORDED.get();
+            if (statements != null && sql.toLowerCase(Locale.ROOT).matches("(?s)select .* from expense\\b.*")) {
+                statements.add(sql);
+            }
+            return sql;
+        }
+    }
+}
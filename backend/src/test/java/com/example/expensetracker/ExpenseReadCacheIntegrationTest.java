@@ -0,0 +1,84 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.service.AmountSketch;
+import com.example.expensetracker.service.CategoryRegistry;
+import com.example.expensetracker.service.ExpenseDistributionService;
+import com.example.expensetracker.service.ExpenseService;
+import com.example.expensetracker.service.ExpenseWatermarkService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// The checks for remote changes are triggered by the test rather than the scheduler
+@SpringBootTest(properties = {
+        "expense.cache.enabled=true",
+        "expense.cache.remote-check-interval=PT1H" })
+public class ExpenseReadCacheIntegrationTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExpenseWatermarkService watermarkService;
+
+    @Autowired
+    private ExpenseDistributionService distributionService;
+
+    @Autowired
+    private CategoryRegistry categoryRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void testChangesByOtherInstancesClearTheCache() {
+        Long id = expenseService.createExpense(
+                new Expense("Cached", 3.75, LocalDate.now().minusDays(2), "Food")).getId();
+        assertEquals("Cached", expenseService.getExpenseById(id).getDescription());
+
+        // Another instance changes the row; until its bump arrives the cached copy is served
+        jdbcTemplate.update("UPDATE expense SET description = 'Remote' WHERE id = ?", id);
+        watermarkService.checkRemoteChanges();
+        assertEquals("Cached", expenseService.getExpenseById(id).getDescription());
+
+        // Its bump advances the watermark beyond this instance's own bumps
+        jdbcTemplate.update("UPDATE expense_watermark SET version = version + 1");
+        watermarkService.checkRemoteChanges();
+        assertEquals("Remote", expenseService.getExpenseById(id).getDescription());
+    }
+
+    @Test
+    void testChangesByOtherInstancesReachTheAmountSketches() {
+        // Another instance records a 12.50 expense in its sketch delta
+        int categoryId = categoryRegistry.register("Remote sketch");
+        int bucket = new AmountSketch(distributionService.getRelativeAccuracy()).bucketOf(1250);
+        jdbcTemplate.update("INSERT INTO expense_amount_sketch (category_id, period_year, period_month, bucket, "
+                + "bucket_count) VALUES (?, 2001, 1, ?, 1)", categoryId, bucket);
+        YearMonth month = YearMonth.of(2001, 1);
+        // A bump of this instance's own makes sure the watermark row exists, and is not taken for a remote one
+        watermarkService.bump();
+        watermarkService.checkRemoteChanges();
+        assertEquals(0, distribution(month).size());
+
+        jdbcTemplate.update("UPDATE expense_watermark SET version = version + 1");
+        watermarkService.checkRemoteChanges();
+        List<Map<String, Object>> rows = distribution(month);
+        assertEquals(1, rows.size());
+        assertEquals(1L, rows.get(0).get("count"));
+    }
+
+    private List<Map<String, Object>> distribution(YearMonth month) {
+        return distributionService.distribution(Collections.singleton("category"), month, month, "Remote sketch",
+                new double[]{0.5}, 0);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.example.expensetracker.service.ExpenseReadCache;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseReadCacheTest {
+
+    private final ExpenseReadCache cache = new ExpenseReadCache(
+            true, true, 100, Duration.ofMinutes(10), true, 1000, Duration.ofMinutes(1));
+
+    @Test
+    void testLookupsAreServedFromCacheUntilTheExpenseChanges() {
+        AtomicInteger loads = new AtomicInteger();
+        Expense expense = new Expense("Lunch", 12.50, LocalDate.now(), "Food");
+        expense.setId(1L);
+
+        cache.getById(1L, () -> { loads.incrementAndGet(); return expense; });
+        cache.getById(1L, () -> { loads.incrementAndGet(); return expense; });
+        assertEquals(1, loads.get());
+
+        cache.onExpenseChange(ExpenseChangeEvent.deleted(ExpenseSnapshot.of(expense)));
+        cache.getById(1L, () -> { loads.incrementAndGet(); return expense; });
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testCachedExpensesAreNotSharedBetweenLookups() {
+        Expense expense = new Expense("Lunch", 12.50, LocalDate.now(), "Food");
+        expense.setId(1L);
+        expense.setVersion(3L);
+
+        cache.getById(1L, () -> expense).setDescription("Changed by the loading request");
+        Expense first = cache.getById(1L, () -> expense);
+        first.setDescription("Changed by a reader");
+        Expense second = cache.getById(1L, () -> expense);
+
+        assertNotSame(first, second);
+        assertEquals("Lunch", second.getDescription());
+        assertEquals(3L, second.getVersion());
+    }
+
+    @Test
+    void testOnlyPagesWhoseFilterMatchesTheChangeAreEvicted() {
+        AtomicInteger foodLoads = new AtomicInteger();
+        AtomicInteger travelLoads = new AtomicInteger();
+        ExpenseFilter food = new ExpenseFilter("Food", null, null, null, null);
+        ExpenseFilter travel = new ExpenseFilter("Travel", null, null, null, null);
+        List<Object> firstPage = Arrays.asList("offset", 0, 10);
+
+        cache.getPage(food, firstPage, () -> { foodLoads.incrementAndGet(); return "food page"; });
+        cache.getPage(travel, firstPage, () -> { travelLoads.incrementAndGet(); return "travel page"; });
+
+        // A new Food expense can change Food pages but not Travel pages
+        ExpenseSnapshot lunch = new ExpenseSnapshot(7L, "Lunch", 9.0, LocalDate.now(), "Food");
+        cache.onExpenseChange(ExpenseChangeEvent.created(Collections.singletonList(lunch)));
+
+        cache.getPage(food, firstPage, () -> { foodLoads.incrementAndGet(); return "food page"; });
+        cache.getPage(travel, firstPage, () -> { travelLoads.incrementAndGet(); return "travel page"; });
+        assertEquals(2, foodLoads.get());
+        assertEquals(1, travelLoads.get());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> pageStats = (Map<String, Object>) cache.stats().get("pages");
+        assertEquals(1L, pageStats.get("hits"));
+        assertEquals(3L, pageStats.get("misses"));
+    }
+
+    @Test
+    void testDisabledCacheAlwaysLoads() {
+        ExpenseReadCache disabled = new ExpenseReadCache(
+                false, true, 100, Duration.ofMinutes(10), true, 1000, Duration.ofMinutes(1));
+        AtomicInteger loads = new AtomicInteger();
+
+        disabled.getById(1L, () -> { loads.incrementAndGet(); return null; });
+        disabled.getById(1L, () -> { loads.incrementAndGet(); return null; });
+
+        assertEquals(2, loads.get());
+        assertTrue(disabled.stats().isEmpty());
+    }
+}
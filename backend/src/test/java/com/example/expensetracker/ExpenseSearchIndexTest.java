@@ -0,0 +1,111 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.event.ExpenseChangeEvent;
+import com.example.expensetracker.exception.InvalidRequestException;
+import com.example.expensetracker.model.ExpenseFilter;
+import com.example.expensetracker.model.ExpenseSnapshot;
+import com.example.expensetracker.service.ExpenseSearchIndex;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpenseSearchIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+    private static final ExpenseFilter NO_FILTER = new ExpenseFilter(null, null, null, null, null);
+
+    private static ExpenseSearchIndex index(ExpenseSnapshot... expenses) {
+        ExpenseSearchIndex index = new ExpenseSearchIndex(null, 2);
+        index.onExpenseChange(ExpenseChangeEvent.created(Arrays.asList(expenses)));
+        return index;
+    }
+
+    @Test
+    void testAllTermsMustMatchAndRareTermsRankHigher() {
+        ExpenseSearchIndex index = index(
+                new ExpenseSnapshot(1L, "Coffee beans", 12.0, DAY, "Food"),
+                new ExpenseSnapshot(2L, "Coffee with the team", 8.0, DAY, "Food"),
+                new ExpenseSnapshot(3L, "Coffee", 3.0, DAY, "Food"),
+                new ExpenseSnapshot(4L, "Green beans", 2.0, DAY, "Food"),
+                new ExpenseSnapshot(5L, "Train ticket", 40.0, DAY, "Travel"));
+
+        assertEquals(Collections.singletonList(1L), index.search("beans coffee", NO_FILTER, 0, 10).getIds());
+
+        // The short description is the closest match for "coffee"
+        ExpenseSearchIndex.Hits coffee = index.search("COFFEE", NO_FILTER, 0, 10);
+        assertEquals(3, coffee.getTotal());
+        assertEquals(3L, coffee.getIds().get(0));
+        assertTrue(coffee.getScore(0) > coffee.getScore(2));
+
+        assertEquals(0, index.search("coffee ticket", NO_FILTER, 0, 10).getTotal());
+        assertEquals(0, index.search("?!", NO_FILTER, 0, 10).getTotal());
+    }
+
+    @Test
+    void testPrefixTermsAndFilters() {
+        ExpenseSearchIndex index = index(
+                new ExpenseSnapshot(1L, "Café au lait", 4.5, DAY, "Food"),
+                new ExpenseSnapshot(2L, "Cafeteria lunch", 11.0, DAY.plusDays(3), "Food"),
+                new ExpenseSnapshot(3L, "Cab to the airport", 35.0, DAY, "Travel"));
+
+        assertEquals(Arrays.asList(1L, 2L), sorted(index.search("caf*", NO_FILTER, 0, 10).getIds()));
+        assertEquals(Collections.singletonList(1L), index.search("cafe", NO_FILTER, 0, 10).getIds());
+        assertEquals(3, index.search("ca*", NO_FILTER, 0, 10).getTotal());
+
+        ExpenseFilter later = new ExpenseFilter("Food", DAY.plusDays(1), null, null, null);
+        assertEquals(Collections.singletonList(2L), index.search("ca*", later, 0, 10).getIds());
+        ExpenseFilter expensive = new ExpenseFilter(null, null, null, 20.0, null);
+        assertEquals(Collections.singletonList(3L), index.search("ca*", expensive, 0, 10).getIds());
+        assertEquals(0, index.search("ca*", new ExpenseFilter("Unknown", null, null, null, null), 0, 10).getTotal());
+
+        assertThrows(InvalidRequestException.class, () -> index.search("c*", NO_FILTER, 0, 10));
+    }
+
+    @Test
+    void testIndexFollowsChangeEvents() {
+        ExpenseSnapshot lunch = new ExpenseSnapshot(1L, "Team lunch", 30.0, DAY, "Food");
+        ExpenseSnapshot taxi = new ExpenseSnapshot(2L, "Taxi after lunch", 15.0, DAY, "Travel");
+        ExpenseSearchIndex index = index(lunch, taxi);
+
+        ExpenseSnapshot dinner = new ExpenseSnapshot(1L, "Team dinner", 30.0, DAY, "Food");
+        index.onExpenseChange(ExpenseChangeEvent.updated(lunch, dinner));
+        index.onExpenseChange(ExpenseChangeEvent.deleted(taxi));
+
+        assertEquals(0, index.search("lunch", NO_FILTER, 0, 10).getTotal());
+        assertEquals(Collections.singletonList(1L), index.search("dinner", NO_FILTER, 0, 10).getIds());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testPagesFollowRankOrder() {
+        List<ExpenseSnapshot> expenses = new ArrayList<>();
+        StringBuilder padding = new StringBuilder();
+        for (long id = 1; id <= 25; id++) {
+            // Longer descriptions rank lower, so the expected order is by id
+            expenses.add(new ExpenseSnapshot(id, "Parking" + padding, 5.0, DAY, "Travel"));
+            padding.append(" x");
+        }
+        ExpenseSearchIndex index = new ExpenseSearchIndex(null, 2);
+        index.onExpenseChange(ExpenseChangeEvent.created(expenses));
+
+        ExpenseSearchIndex.Hits second = index.search("parking", NO_FILTER, 10, 10);
+        assertEquals(25, second.getTotal());
+        assertEquals(Arrays.asList(11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L), second.getIds());
+        assertEquals(Arrays.asList(21L, 22L, 23L, 24L, 25L), index.search("parking", NO_FILTER, 20, 10).getIds());
+        assertEquals(0, index.search("parking", NO_FILTER, 30, 10).getIds().size());
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        List<Long> copy = new ArrayList<>(ids);
+        Collections.sort(copy);
+        return copy;
+    }
+}
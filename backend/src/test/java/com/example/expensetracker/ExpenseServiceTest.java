@@ -1,5 +1,6 @@
 package com.example.expensetracker;
 
+import com.example.expensetracker.event.ExpenseChangeEvent;
 import com.example.expensetracker.model.Expense;
 import com.example.expensetracker.repository.ExpenseRepository;
 import com.example.expensetracker.service.ExpenseService;
@@ -9,6 +10,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
 
 import java.time.LocalDate;
@@ -25,6 +27,9 @@ public class ExpenseServiceTest {
     @Mock
     private ExpenseRepository expenseRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private ExpenseService expenseService; // Ensure ExpenseService has a constructor-based injection
 
@@ -49,6 +54,7 @@ public class ExpenseServiceTest {
         assertNotNull(created);
         assertEquals("Lunch", created.getDescription());
         verify(expenseRepository, times(1)).save(validExpense);
+        verify(eventPublisher, times(1)).publishEvent(any(ExpenseChangeEvent.class));
     }
 
     @Test
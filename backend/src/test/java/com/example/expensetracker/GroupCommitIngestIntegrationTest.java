@@ -0,0 +1,80 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.model.Expense;
+import com.example.expensetracker.repository.ExpenseRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = { "expense.ingest.mode=group-commit", "expense.ingest.max-linger=PT0.05S" })
+public class GroupCommitIngestIntegrationTest {
+
+    private static final int REQUESTS = 40;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testConcurrentCreatesShareCommitsAndGetTheirIds() throws Exception {
+        TestRestTemplate client = restTemplate.withBasicAuth("admin", "admin");
+        ExecutorService callers = Executors.newFixedThreadPool(REQUESTS);
+        try {
+            List<CompletableFuture<ResponseEntity<Expense>>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                Expense expense = new Expense("Grouped " + i, 1.0 + i, LocalDate.of(2024, 5, 1), "Food");
+                responses.add(CompletableFuture.supplyAsync(
+                        () -> client.postForEntity("/api/expenses", expense, Expense.class), callers));
+            }
+
+            Set<Long> ids = new HashSet<>();
+            for (CompletableFuture<ResponseEntity<Expense>> response : responses) {
+                ResponseEntity<Expense> created = response.get(30, TimeUnit.SECONDS);
+                assertEquals(HttpStatus.OK, created.getStatusCode());
+                assertNotNull(created.getBody().getId());
+                ids.add(created.getBody().getId());
+                // Acknowledged means committed: the row is visible to any other transaction
+                assertTrue(expenseRepository.findById(created.getBody().getId()).isPresent());
+            }
+            assertEquals(REQUESTS, ids.size());
+        } finally {
+            callers.shutdownNow();
+        }
+
+        DistributionSummary groups = meterRegistry.get("expense.ingest.group.size").summary();
+        assertEquals(REQUESTS, (long) groups.totalAmount());
+        assertTrue(groups.count() < REQUESTS, "expected requests to share commits, got " + groups.count() + " groups");
+    }
+
+    @Test
+    void testInvalidExpenseIsRejectedBeforeQueueing() {
+        ResponseEntity<String> response = restTemplate.withBasicAuth("admin", "admin")
+                .postForEntity("/api/expenses", new Expense("", -1.0, LocalDate.of(2024, 5, 1), "Food"), String.class);
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+}
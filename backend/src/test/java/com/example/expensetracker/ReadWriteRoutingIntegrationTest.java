@@ -0,0 +1,104 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.config.ReadWriteRoutingDataSource;
+import com.jayway.jsonpath.JsonPath;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.emptyString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The replica is a second in-memory H2 database loaded with a copy of the primary; nothing replicates
+// into it afterwards, so a row written later shows which database served a read
+@SpringBootTest(properties = {
+        "expense.datasource.routing.enabled=true",
+        "expense.datasource.replica-urls=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;IFEXISTS=TRUE",
+        "expense.datasource.replica-connection-timeout=PT0.25S",
+        "expense.datasource.read-your-writes=PT1S",
+        "expense.datasource.health-check-interval=PT1H",
+        "spring.datasource.hikari.maximum-pool-size=7",
+        "expense.cache.enabled=false" })
+@AutoConfigureMockMvc
+public class ReadWriteRoutingIntegrationTest {
+
+    private static final String REPLICA_URL = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ReadWriteRoutingDataSource routingDataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void testPrimaryPoolTakesHikariSettingsAndReportsMetrics() {
+        HikariDataSource primary = (HikariDataSource) routingDataSource.getDataSources().get(0);
+        assertEquals(7, primary.getMaximumPoolSize());
+        jdbcTemplate.queryForObject("SELECT 1", Integer.class);
+        assertEquals(7, meterRegistry.get("hikaricp.connections.max").tag("pool", "primary").gauge().value());
+    }
+
+    @Test
+    void testReadsUseTheReplicaExceptForOwnWritesOrWhenItIsDown() throws Exception {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""));
+        List<String> script = jdbcTemplate.queryForList("SCRIPT", String.class);
+        replica.execute("DROP ALL OBJECTS");
+        script.stream().filter(statement -> !statement.startsWith("--")).forEach(replica::execute);
+        routingDataSource.checkReplicas();
+        assertEquals(1, routingDataSource.getHealthyReplicaCount());
+
+        // Only the primary gets the new expense, as if replication lagged behind
+        String json = "{\"description\": \"Routed\", \"amount\": 7.25, \"date\": \""
+                + LocalDate.now().minusDays(1) + "\", \"category\": \"Food\"}";
+        String created = mockMvc.perform(post("/api/expenses").with(user("alice"))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(json))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        Integer id = JsonPath.read(created, "$.id");
+
+        // The writer reads its own write from the primary; anyone else reads the replica
+        mockMvc.perform(get("/api/expenses/" + id).with(user("alice")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description", is("Routed")));
+        mockMvc.perform(get("/api/expenses/" + id).with(user("bob")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(emptyString()));
+
+        // After the read-your-writes window the writer is back on the replica
+        Thread.sleep(1200);
+        mockMvc.perform(get("/api/expenses/" + id).with(user("alice")))
+                .andExpect(content().string(emptyString()));
+
+        // With the replica gone, reads fall back to the primary
+        replica.execute("SHUTDOWN");
+        Thread.sleep(600);
+        mockMvc.perform(get("/api/expenses/" + id).with(user("bob")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.description", is("Routed")));
+        assertEquals(0, routingDataSource.getHealthyReplicaCount());
+    }
+}
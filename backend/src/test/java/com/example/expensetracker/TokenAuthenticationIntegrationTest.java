@@ -0,0 +1,99 @@
+package com.example.expensetracker;
+
+import com.example.expensetracker.security.TokenService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class TokenAuthenticationIntegrationTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLoginIssuesTokenAcceptedByExpenseApi() {
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("username", "admin");
+        credentials.put("password", "admin");
+        ResponseEntity<Map> login = restTemplate.postForEntity("/api/auth/login", credentials, Map.class);
+        assertEquals(HttpStatus.OK, login.getStatusCode());
+        assertEquals("Bearer", login.getBody().get("tokenType"));
+        String token = (String) login.getBody().get("token");
+
+        assertEquals(HttpStatus.OK, get("/api/expenses?size=5", "Bearer " + token).getStatusCode());
+
+        // A tampered signature and a missing token are both rejected
+        int at = token.indexOf('.') + 5;
+        String tampered = token.substring(0, at) + (token.charAt(at) == 'A' ? 'B' : 'A') + token.substring(at + 1);
+        assertEquals(HttpStatus.UNAUTHORIZED, get("/api/expenses?size=5", "Bearer " + tampered).getStatusCode());
+        assertEquals(HttpStatus.UNAUTHORIZED, get("/api/expenses?size=5", null).getStatusCode());
+    }
+
+    @Test
+    void testLoginRejectsWrongPassword() {
+        Map<String, String> credentials = new HashMap<>();
+        credentials.put("username", "admin");
+        credentials.put("password", "wrong");
+        ResponseEntity<String> login = restTemplate.postForEntity("/api/auth/login", credentials, String.class);
+        assertEquals(HttpStatus.UNAUTHORIZED, login.getStatusCode());
+    }
+
+    @Test
+    void testTokensExpire() {
+        Instant now = Instant.parse("2024-05-01T10:00:00Z");
+        TokenService issuer = new TokenService("secret", Duration.ofMinutes(15), Clock.fixed(now, ZoneOffset.UTC));
+        String token = issuer.issue("admin", Collections.singletonList("ROLE_USER")).getValue();
+
+        TokenService.Token verified = issuer.verify(token);
+        assertNotNull(verified);
+        assertEquals("admin", verified.getUsername());
+        assertEquals(Collections.singletonList("ROLE_USER"), verified.getAuthorities());
+
+        TokenService later = new TokenService("secret", Duration.ofMinutes(15),
+                Clock.fixed(now.plus(Duration.ofMinutes(15)), ZoneOffset.UTC));
+        assertNull(later.verify(token));
+        TokenService otherKey = new TokenService("other", Duration.ofMinutes(15), Clock.fixed(now, ZoneOffset.UTC));
+        assertNull(otherKey.verify(token));
+    }
+
+    @Test
+    void testSecretIsRequiredOutsideDevProfile() {
+        MockEnvironment production = new MockEnvironment();
+        assertThrows(IllegalStateException.class, () -> new TokenService("", Duration.ofMinutes(15), production));
+
+        MockEnvironment dev = new MockEnvironment();
+        dev.setActiveProfiles("dev");
+        TokenService random = new TokenService("", Duration.ofMinutes(15), dev);
+        assertNotNull(random.verify(random.issue("admin", Collections.emptyList()).getValue()));
+    }
+
+    private ResponseEntity<String> get(String url, String authorization) {
+        HttpHeaders headers = new HttpHeaders();
+        if (authorization != null) {
+            headers.set(HttpHeaders.AUTHORIZATION, authorization);
+        }
+        return restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), String.class);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.expensetracker;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "expense.threads.mode=virtual")
+public class VirtualThreadModeIntegrationTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Autowired
+    private ThreadPoolTaskScheduler taskScheduler;
+
+    @Autowired
+    private AsyncTaskExecutor applicationTaskExecutor;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    void testRequestsSchedulerAndAsyncWorkRunOnVirtualThreads() throws Exception {
+        Executor tomcatExecutor = ((TomcatWebServer) context.getWebServer()).getTomcat()
+                .getConnector().getProtocolHandler().getExecutor();
+        CompletableFuture<Boolean> request = new CompletableFuture<>();
+        tomcatExecutor.execute(() -> request.complete(Thread.currentThread().isVirtual()));
+        assertTrue(request.get(5, TimeUnit.SECONDS));
+
+        assertTrue(taskScheduler.submit(() -> Thread.currentThread().isVirtual()).get(5, TimeUnit.SECONDS));
+        // A long archiving run must not hold the only scheduler thread
+        assertTrue(taskScheduler.getScheduledThreadPoolExecutor().getCorePoolSize() > 1);
+        assertTrue(applicationTaskExecutor.submit(() -> Thread.currentThread().isVirtual()).get(5, TimeUnit.SECONDS));
+
+        // The whole stack (security, controller, JPA) still serves requests in this mode
+        ResponseEntity<String> response = restTemplate.withBasicAuth("admin", "admin")
+                .getForEntity("/api/expenses?pagination=cursor&size=5", String.class);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+    }
+}
@@ -61,7 +61,7 @@ describe('ExpenseForm.vue', () => {
                 date: '2025-04-09'
             },
             {
-                headers: { 'Authorization': 'Basic mockAuthToken' }
+                headers: { 'Authorization': 'Bearer mockAuthToken' }
             }
         )
 